@@ -0,0 +1,135 @@
+package com.booking_service.cache;
+
+import com.booking_service.repository.DriverProfile;
+import com.booking_service.repository.DriverRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Driver names for ride request status polls, which clients repeat every second or two for the same
+ * handful of drivers. The misses of one call are loaded together with a single query that reads only
+ * id and name; ids without a driver row are cached as well, so they don't reach the database on every poll.
+ * Entries live for ttl and the least recently used ones are evicted beyond maxSize. Profiles are edited
+ * by auth-service, so those changes show up once the entry expires; driver writes made here invalidate it
+ */
+@Component
+public class DriverProfileCache {
+
+    private final DriverRepository driverRepository;
+    private final long ttlMillis;
+    private final int maxSize;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Counter hits;
+    private final Counter misses;
+
+    // Access ordered, so the eldest entry is the least recently used one
+    private final LinkedHashMap<Long, Entry> entries;
+
+    public DriverProfileCache(DriverRepository driverRepository,
+                              @Value("${booking.driver-profile-cache.ttl-seconds:300}") long ttlSeconds,
+                              @Value("${booking.driver-profile-cache.max-size:10000}") int maxSize,
+                              MeterRegistry meterRegistry) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Driver profile cache max size must be positive, got " + maxSize);
+        }
+        this.driverRepository = driverRepository;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > DriverProfileCache.this.maxSize;
+            }
+        };
+        this.hits = Counter.builder("booking.driver-profile-cache.requests")
+                .tag("result", "hit")
+                .description("Driver names served from the cache")
+                .register(meterRegistry);
+        this.misses = Counter.builder("booking.driver-profile-cache.requests")
+                .tag("result", "miss")
+                .description("Driver names loaded from the database")
+                .register(meterRegistry);
+        Gauge.builder("booking.driver-profile-cache.size", this, DriverProfileCache::size)
+                .description("Drivers currently in the profile cache")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Names of the given drivers, keyed by id; drivers that don't exist are left out
+     */
+    public Map<Long, String> getNames(Collection<Long> driverIds) {
+        long now = System.currentTimeMillis();
+        Map<Long, String> names = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        lock.lock();
+        try {
+            for (Long driverId : new LinkedHashSet<>(driverIds)) {
+                Entry entry = entries.get(driverId);
+                if (entry == null || entry.expiresAt() <= now) {
+                    missing.add(driverId);
+                } else if (entry.name() != null) {
+                    names.put(driverId, entry.name());
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        hits.increment(driverIds.size() - missing.size());
+        if (missing.isEmpty()) {
+            return names;
+        }
+        misses.increment(missing.size());
+
+        Map<Long, String> loaded = new HashMap<>();
+        for (DriverProfile profile : driverRepository.findByIdIn(missing)) {
+            loaded.put(profile.getId(), profile.getName());
+        }
+        lock.lock();
+        try {
+            for (Long driverId : missing) {
+                String name = loaded.get(driverId);
+                entries.put(driverId, new Entry(name, now + ttlMillis));
+                if (name != null) {
+                    names.put(driverId, name);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        return names;
+    }
+
+    public void invalidate(Long driverId) {
+        lock.lock();
+        try {
+            entries.remove(driverId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // A null name marks a driver id with no row
+    private record Entry(String name, long expiresAt) {
+    }
+}
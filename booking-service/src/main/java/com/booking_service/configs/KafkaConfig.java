@@ -1,7 +1,12 @@
 package com.booking_service.configs;
 
+import com.booking_service.kafka.consumer.KeyOrderedExecutor;
+import com.booking_service.kafka.dto.DriverAvailabilityMessage;
 import com.booking_service.kafka.dto.DriverSearchRequestMessage;
 import com.booking_service.kafka.dto.DriverSearchResponseMessage;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.serialization.StringDeserializer;
@@ -10,13 +15,17 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.TopicBuilder;
 import org.springframework.kafka.core.*;
 import org.springframework.kafka.listener.ContainerProperties;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
 import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 @Configuration
 public class KafkaConfig {
@@ -27,39 +36,142 @@ public class KafkaConfig {
     @Value("${spring.kafka.consumer.group-id}")
     private String groupId;
 
+    @Value("${kafka.topic.driver-search-response}")
+    private String driverSearchResponseTopic;
+
+    @Value("${kafka.driver-search-response.partitions:6}")
+    private int driverSearchResponsePartitions;
+
+    @Value("${kafka.driver-search-response.concurrency:3}")
+    private int driverSearchResponseConcurrency;
+
+    @Value("${kafka.driver-search-response.max-poll-records:100}")
+    private int driverSearchResponseMaxPollRecords;
+
+    @Value("${kafka.driver-search-response.handler-threads:16}")
+    private int driverSearchResponseHandlerThreads;
+
+    @Value("${booking.ride-request.publish-threads:4}")
+    private int rideRequestPublishThreads;
+
+    @Value("${kafka.producer.linger-ms:5}")
+    private int lingerMs;
+
+    @Value("${kafka.producer.batch-size:32768}")
+    private int batchSize;
+
+    @Value("${kafka.producer.compression-type:lz4}")
+    private String compressionType;
+
+    @Value("${kafka.producer.max-block-ms:2000}")
+    private long maxBlockMs;
+
+    @Value("${kafka.producer.request-timeout-ms:3000}")
+    private int requestTimeoutMs;
+
+    @Value("${kafka.producer.delivery-timeout-ms:5000}")
+    private int deliveryTimeoutMs;
+
     @Bean
     public ProducerFactory<String, DriverSearchRequestMessage> producerFactory() {
+        return new DefaultKafkaProducerFactory<>(producerProps());
+    }
+
+    @Bean
+    public KafkaTemplate<String, DriverSearchRequestMessage> kafkaTemplate() {
+        return new KafkaTemplate<>(producerFactory());
+    }
+
+    @Bean
+    public ProducerFactory<String, DriverAvailabilityMessage> driverAvailabilityProducerFactory() {
+        return new DefaultKafkaProducerFactory<>(producerProps());
+    }
+
+    @Bean
+    public KafkaTemplate<String, DriverAvailabilityMessage> driverAvailabilityKafkaTemplate() {
+        return new KafkaTemplate<>(driverAvailabilityProducerFactory());
+    }
+
+    /**
+     * Shared by both producers. Sends are batched for up to linger-ms and compressed; idempotence keeps
+     * retries from duplicating or reordering messages. A broker outage fails a send after
+     * delivery-timeout-ms (max-block-ms while metadata is unavailable) instead of the client defaults of a minute or more
+     */
+    private Map<String, Object> producerProps() {
         Map<String, Object> configProps = new HashMap<>();
         configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
         configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
-        return new DefaultKafkaProducerFactory<>(configProps);
+        configProps.put(ProducerConfig.LINGER_MS_CONFIG, lingerMs);
+        configProps.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
+        configProps.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compressionType);
+        configProps.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        configProps.put(ProducerConfig.ACKS_CONFIG, "all"); // Required by idempotence
+        configProps.put(ProducerConfig.MAX_BLOCK_MS_CONFIG, maxBlockMs);
+        configProps.put(ProducerConfig.REQUEST_TIMEOUT_MS_CONFIG, requestTimeoutMs);
+        // Must be at least linger-ms + request-timeout-ms, or the producer refuses to start
+        configProps.put(ProducerConfig.DELIVERY_TIMEOUT_MS_CONFIG, Math.max(deliveryTimeoutMs, lingerMs + requestTimeoutMs));
+        return configProps;
     }
 
     @Bean
-    public KafkaTemplate<String, DriverSearchRequestMessage> kafkaTemplate() {
-        return new KafkaTemplate<>(producerFactory());
+    public KafkaAdmin kafkaAdmin() {
+        return new KafkaAdmin(Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers));
     }
 
+    /**
+     * Messages are keyed by requestId, so all messages of one request share a partition and the
+     * listener containers can split the partitions between them. Created, or grown, on startup
+     */
     @Bean
-    public ConsumerFactory<String, DriverSearchResponseMessage> consumerFactory() {
+    public NewTopic driverSearchResponseTopic() {
+        return TopicBuilder.name(driverSearchResponseTopic)
+                .partitions(driverSearchResponsePartitions)
+                .build();
+    }
+
+    @Bean
+    public ConsumerFactory<String, DriverSearchResponseMessage> consumerFactory(MeterRegistry meterRegistry) {
         Map<String, Object> props = new HashMap<>();
         props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
         props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, driverSearchResponseMaxPollRecords);
         props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
         props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, JsonDeserializer.class);
         props.put(JsonDeserializer.TRUSTED_PACKAGES, "*");
         props.put(JsonDeserializer.USE_TYPE_INFO_HEADERS, false);
         props.put(JsonDeserializer.VALUE_DEFAULT_TYPE, DriverSearchResponseMessage.class);
-        return new DefaultKafkaConsumerFactory<>(props);
+        DefaultKafkaConsumerFactory<String, DriverSearchResponseMessage> factory = new DefaultKafkaConsumerFactory<>(props);
+        // Publishes the client's own metrics, per partition offset lag (records-lag) among them, as kafka.consumer.*
+        factory.addListener(new MicrometerConsumerListener<>(meterRegistry));
+        return factory;
     }
 
+    /**
+     * Batch listener factory with one consumer per concurrency, each owning some of the partitions.
+     * Within a poll, DriverSearchResponseConsumer hands messages to driverSearchResponseExecutor
+     */
     @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, DriverSearchResponseMessage> kafkaListenerContainerFactory() {
+    public ConcurrentKafkaListenerContainerFactory<String, DriverSearchResponseMessage> kafkaListenerContainerFactory(
+            ConsumerFactory<String, DriverSearchResponseMessage> consumerFactory) {
         ConcurrentKafkaListenerContainerFactory<String, DriverSearchResponseMessage> factory =
                 new ConcurrentKafkaListenerContainerFactory<>();
-        factory.setConsumerFactory(consumerFactory());
+        factory.setConsumerFactory(consumerFactory);
+        factory.setBatchListener(true);
+        factory.setConcurrency(driverSearchResponseConcurrency);
         return factory;
     }
+
+    // Messages of the same request are handled in order, different requests in parallel
+    @Bean(destroyMethod = "shutdown")
+    public KeyOrderedExecutor driverSearchResponseExecutor(MeterRegistry meterRegistry) {
+        return new KeyOrderedExecutor("booking.driver-search-response", driverSearchResponseHandlerThreads, meterRegistry);
+    }
+
+    // Answers async ride requests once their search request is acknowledged (RideRequestService)
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService rideRequestPublishExecutor() {
+        return Executors.newFixedThreadPool(rideRequestPublishThreads, new CustomizableThreadFactory("ride-request-publish-"));
+    }
 }
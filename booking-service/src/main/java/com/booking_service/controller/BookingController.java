@@ -12,6 +12,7 @@ import lombok.AllArgsConstructor;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -88,13 +89,15 @@ public class BookingController {
     }
 
     @PostMapping("/ride-request")
-    public ResponseEntity<RideRequestResponseDto> requestRide(
+    public CompletableFuture<ResponseEntity<RideRequestResponseDto>> requestRide(
             @RequestBody CreateBookingRequestDto createBookingRequestDto) {
+        // Answered once the search request is published, without holding a request thread meanwhile
         try {
-            RideRequestResponseDto response = rideRequestService.initiateRideRequest(createBookingRequestDto);
-            return new ResponseEntity<>(response, HttpStatus.OK);
+            return rideRequestService.initiateRideRequestAsync(createBookingRequestDto)
+                    .thenApply(response -> new ResponseEntity<>(response, HttpStatus.OK))
+                    .exceptionally(e -> new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR));
         } catch (Exception e) {
-            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+            return CompletableFuture.completedFuture(new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR));
         }
     }
 
@@ -1,6 +1,9 @@
 package com.booking_service.dto;
 
 import java.sql.Date;
+import java.util.Set;
+
+import com.uber.entity.models.CarType;
 
 import lombok.*;
 
@@ -19,4 +22,6 @@ public class CreateBookingRequestDto {
   private double dropoffLongitude;
 
   private Date pickupTime;
+
+  private Set<CarType> carTypes; // Optional: only offer the ride to drivers with these vehicle types
 }
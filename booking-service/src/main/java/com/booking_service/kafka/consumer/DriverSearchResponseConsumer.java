@@ -10,33 +10,120 @@ import com.booking_service.repository.DriverRepository;
 import com.uber.entity.models.Booking;
 import com.uber.entity.models.BookingStatus;
 import com.uber.entity.models.Driver;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.beans.factory.annotation.Value;
 
 import java.sql.Date;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 @Component
 @Slf4j
-@RequiredArgsConstructor
 public class DriverSearchResponseConsumer {
 
+    private static final int MAX_HANDLED_AHEAD_OF_FAILURE = 10_000;
+
     private final BookingRepository bookingRepository;
     private final DriverRepository driverRepository;
     private final RideRequestService rideRequestService;
     private final BookingService bookingService;
     private final RestTemplate restTemplate;
+    private final KeyOrderedExecutor driverSearchResponseExecutor;
+    private final Timer lag;
+    // Messages handled after an earlier one of their poll failed, which the container is about to redeliver
+    private final Set<String> handledAheadOfFailure = ConcurrentHashMap.newKeySet();
     
     @Value("${socket.service.url:http://socket-service:8080}")
     private String socketServiceUrl; // Not final - injected via @Value
 
+    public DriverSearchResponseConsumer(BookingRepository bookingRepository, DriverRepository driverRepository,
+                                        RideRequestService rideRequestService, BookingService bookingService,
+                                        RestTemplate restTemplate, KeyOrderedExecutor driverSearchResponseExecutor,
+                                        MeterRegistry meterRegistry) {
+        this.bookingRepository = bookingRepository;
+        this.driverRepository = driverRepository;
+        this.rideRequestService = rideRequestService;
+        this.bookingService = bookingService;
+        this.restTemplate = restTemplate;
+        this.driverSearchResponseExecutor = driverSearchResponseExecutor;
+        this.lag = Timer.builder("booking.driver-search-response.lag")
+                .description("Time from a message being produced until it is picked up here")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Handles a poll's messages in parallel across requests, in order within each request (they are keyed
+     * by requestId), and returns once all are done, so offsets are only committed for handled messages.
+     * When one fails, the container commits the messages before it and redelivers from there, so delivery
+     * is at-least-once: messages that were already handled after the failed one are remembered and skipped
+     * when they come back, except those of a request with a failed message, which are handled again in order.
+     * After a rebalance a message can still be handled twice; acceptances are safe to repeat (only the first
+     * claim books), a repeated driver list or timeout only repeats the notification
+     */
     @KafkaListener(topics = "${kafka.topic.driver-search-response}", groupId = "${spring.kafka.consumer.group-id}", containerFactory = "kafkaListenerContainerFactory")
+    public void consumeDriverSearchResponses(List<ConsumerRecord<String, DriverSearchResponseMessage>> records) {
+        long now = System.currentTimeMillis();
+        List<String> keys = new ArrayList<>(records.size());
+        List<CompletableFuture<Void>> handled = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, DriverSearchResponseMessage> record : records) {
+            DriverSearchResponseMessage message = record.value();
+            String key = message.getRequestId() != null ? message.getRequestId() : record.key();
+            keys.add(key);
+            if (handledAheadOfFailure.remove(recordId(record))) {
+                handled.add(CompletableFuture.completedFuture(null));
+                continue;
+            }
+            lag.record(Math.max(0, now - record.timestamp()), TimeUnit.MILLISECONDS);
+            handled.add(driverSearchResponseExecutor.submit(key, () -> consumeDriverSearchResponse(message)));
+        }
+        CompletableFuture.allOf(handled.toArray(new CompletableFuture[0])).exceptionally(e -> null).join();
+        int failed = 0;
+        while (failed < handled.size() && !handled.get(failed).isCompletedExceptionally()) {
+            failed++;
+        }
+        if (failed == handled.size()) {
+            return;
+        }
+        Set<String> failedKeys = new HashSet<>();
+        for (int i = failed; i < handled.size(); i++) {
+            if (handled.get(i).isCompletedExceptionally()) {
+                failedKeys.add(keys.get(i));
+            }
+        }
+        if (handledAheadOfFailure.size() > MAX_HANDLED_AHEAD_OF_FAILURE) {
+            handledAheadOfFailure.clear(); // Left behind by a rebalance, the handlers cope with repeats
+        }
+        for (int i = failed + 1; i < handled.size(); i++) {
+            if (!handled.get(i).isCompletedExceptionally() && !failedKeys.contains(keys.get(i))) {
+                handledAheadOfFailure.add(recordId(records.get(i)));
+            }
+        }
+        try {
+            handled.get(failed).join();
+        } catch (CompletionException e) {
+            throw new BatchListenerFailedException("Failed to handle driver search response", e.getCause(), failed);
+        }
+    }
+
+    private static String recordId(ConsumerRecord<?, ?> record) {
+        return record.topic() + "-" + record.partition() + "@" + record.offset();
+    }
+
     public void consumeDriverSearchResponse(DriverSearchResponseMessage message) {
         // Handle three scenarios:
         // 1. Initial driver search result (requestId present, bookingId null, multiple drivers) -> Store drivers
@@ -145,38 +232,56 @@ public class DriverSearchResponseConsumer {
             return;
         }
         
-            // Create booking from ride request
-            try {
-                CreateBookingRequestDto createBookingRequest = CreateBookingRequestDto.builder()
-                    .userId(rideRequest.getUserId())
-                    .pickupLatitude(rideRequest.getPickupLatitude())
-                    .pickupLongitude(rideRequest.getPickupLongitude())
-                    .dropoffLatitude(rideRequest.getDropoffLatitude())
-                    .dropoffLongitude(rideRequest.getDropoffLongitude())
-                    .pickupTime(rideRequest.getPickupTime() != null ? rideRequest.getPickupTime() : 
-                        new Date(Instant.now().toEpochMilli()))
-                    .build();
+        // Only the first acceptance of a request creates a booking, whichever replica receives it
+        if (!rideRequestService.acceptRideRequest(requestId, acceptedDriver.getDriverId())) {
+            log.warn("Ride request already accepted or expired, ignoring acceptance: requestId={}, driverId={}",
+                    requestId, acceptedDriver.getDriverId());
+            return;
+        }
+        
+        // Create booking from ride request
+        com.booking_service.dto.CreateBookingResponseDto bookingResponse;
+        try {
+            CreateBookingRequestDto createBookingRequest = CreateBookingRequestDto.builder()
+                .userId(rideRequest.getUserId())
+                .pickupLatitude(rideRequest.getPickupLatitude())
+                .pickupLongitude(rideRequest.getPickupLongitude())
+                .dropoffLatitude(rideRequest.getDropoffLatitude())
+                .dropoffLongitude(rideRequest.getDropoffLongitude())
+                .pickupTime(rideRequest.getPickupTime() != null ? rideRequest.getPickupTime() : 
+                    new Date(Instant.now().toEpochMilli()))
+                .build();
             
             // Create booking with the accepted driver
-            com.booking_service.dto.CreateBookingResponseDto bookingResponse = 
-                bookingService.createBookingWithDriver(
+            bookingResponse = bookingService.createBookingWithDriver(
                     createBookingRequest, 
                     Long.parseLong(acceptedDriver.getDriverId()), 
                     rideRequest.getEstimatedPrice()
                 );
-            
-            log.info("Booking created from ride request: bookingId={}, requestId={}, driverId={}", 
-                    bookingResponse.getBookingId(), requestId, acceptedDriver.getDriverId());
-            
+        } catch (Exception e) {
+            log.error("Failed to create booking from ride request: requestId={}, driverId={}",
+                    requestId, acceptedDriver.getDriverId(), e);
+            // No booking was made, so give the request back instead of leaving it claimed until it expires
+            boolean released = rideRequestService.releaseRideRequest(requestId, acceptedDriver.getDriverId());
+            log.info("Released acceptance claim after failed booking: requestId={}, driverId={}, released={}",
+                    requestId, acceptedDriver.getDriverId(), released);
+            notifySocketService(requestId, "Could not confirm the ride with the driver who accepted. Waiting for another driver...");
+            return;
+        }
+        
+        log.info("Booking created from ride request: bookingId={}, requestId={}, driverId={}", 
+                bookingResponse.getBookingId(), requestId, acceptedDriver.getDriverId());
+        
+        // The booking exists from here on, so the claim is kept even if the clean-up below fails
+        try {
             // Remove ride request
             rideRequestService.removeRideRequest(requestId);
-            
-            // Notify socket service to send WebSocket notification to client with booking details
-            notifySocketServiceWithBooking(requestId, bookingResponse.getBookingId(), acceptedDriver.getDriverId());
-            
         } catch (Exception e) {
-            log.error("Failed to create booking from ride request: requestId={}", requestId, e);
+            log.error("Failed to remove ride request after booking: requestId={}", requestId, e);
         }
+        
+        // Notify socket service to send WebSocket notification to client with booking details
+        notifySocketServiceWithBooking(requestId, bookingResponse.getBookingId(), acceptedDriver.getDriverId());
     }
     
     private void notifySocketService(String requestId, String message) {
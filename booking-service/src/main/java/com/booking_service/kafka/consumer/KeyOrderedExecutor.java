@@ -0,0 +1,67 @@
+package com.booking_service.kafka.consumer;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs tasks on a shared pool, one at a time per key and in submission order, while tasks for different
+ * keys run in parallel. Each key only holds the future of its last task, removed once that task is done,
+ * so idle keys cost nothing. Tasks with a null key are not ordered against anything
+ */
+public class KeyOrderedExecutor {
+
+    private final ExecutorService pool;
+    private final ConcurrentHashMap<String, CompletableFuture<Void>> tails = new ConcurrentHashMap<>();
+    private final Timer queued;
+    private final Timer processing;
+
+    public KeyOrderedExecutor(String name, int threads, MeterRegistry meterRegistry) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException(name + " needs at least one thread, got " + threads);
+        }
+        this.pool = Executors.newFixedThreadPool(threads);
+        this.queued = Timer.builder(name + ".queued")
+                .description("Time from submission until a task starts, behind its key and the pool")
+                .register(meterRegistry);
+        this.processing = Timer.builder(name + ".processing")
+                .description("Time spent running a task")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Completes with the task, exceptionally if it throws; a failed task does not stop later ones of its key
+     */
+    public CompletableFuture<Void> submit(String key, Runnable task) {
+        long submittedAt = System.nanoTime();
+        Runnable timed = () -> {
+            queued.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+            processing.record(task);
+        };
+        if (key == null) {
+            return CompletableFuture.runAsync(timed, pool);
+        }
+        CompletableFuture<Void> next = tails.compute(key, (ignored, tail) -> tail == null
+                ? CompletableFuture.runAsync(timed, pool)
+                : tail.handle((result, e) -> null).thenRunAsync(timed, pool));
+        next.whenComplete((result, e) -> tails.remove(key, next));
+        return next;
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+        try {
+            if (!pool.awaitTermination(10, TimeUnit.SECONDS)) {
+                pool.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            pool.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.booking_service.kafka.dto;
+
+import lombok.*;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class DriverAvailabilityMessage {
+    private String driverId; // Also the Kafka key, so events of a driver stay in order
+    private boolean available; // false while the driver is on a trip
+    private Long bookingId; // Booking that caused the change, for tracing
+    private Long changedAt; // Epoch millis when the change was recorded
+}
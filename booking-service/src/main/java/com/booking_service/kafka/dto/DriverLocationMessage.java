@@ -11,4 +11,5 @@ public class DriverLocationMessage {
     private String driverId;
     private double latitude;
     private double longitude;
+    private Double distance; // Km from pickup, filled in by booking-service when the drivers are stored
 }
@@ -1,7 +1,11 @@
 package com.booking_service.kafka.dto;
 
+import com.uber.entity.models.CarType;
 import lombok.*;
 
+import java.util.List;
+import java.util.Set;
+
 @Getter
 @Setter
 @Builder
@@ -16,4 +20,8 @@ public class DriverSearchRequestMessage {
     private double dropoffLatitude;
     private double dropoffLongitude;
     private double price;
+    private Integer maxDrivers; // k nearest drivers to offer the ride to, null for location-service default
+    private List<Double> radiusStepsKm; // Search radii widened in order until maxDrivers are found
+    private Double maxRadiusKm; // Never search beyond this radius
+    private Set<CarType> carTypes; // Requested products, null or empty for any vehicle
 }
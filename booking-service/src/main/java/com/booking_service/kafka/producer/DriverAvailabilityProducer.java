@@ -0,0 +1,63 @@
+package com.booking_service.kafka.producer;
+
+import com.booking_service.kafka.dto.DriverAvailabilityMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Tells location-service when a driver starts or finishes a trip, so busy drivers drop out of searches.
+ * Inside a transaction the event is only sent once it commits, so a rolled back booking never marks a
+ * driver busy; the send itself does not wait for the broker
+ */
+@Component
+@Slf4j
+public class DriverAvailabilityProducer {
+
+    private final KafkaTemplate<String, DriverAvailabilityMessage> kafkaTemplate;
+
+    @Value("${kafka.topic.driver-availability}")
+    private String driverAvailabilityTopic;
+
+    public DriverAvailabilityProducer(KafkaTemplate<String, DriverAvailabilityMessage> driverAvailabilityKafkaTemplate) {
+        this.kafkaTemplate = driverAvailabilityKafkaTemplate;
+    }
+
+    public void sendDriverAvailability(Long driverId, boolean available, Long bookingId) {
+        DriverAvailabilityMessage message = DriverAvailabilityMessage.builder()
+                .driverId(driverId.toString())
+                .available(available)
+                .bookingId(bookingId)
+                .changedAt(System.currentTimeMillis())
+                .build();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    send(message);
+                }
+            });
+        } else {
+            send(message);
+        }
+    }
+
+    private void send(DriverAvailabilityMessage message) {
+        log.debug("Sending driver availability: driverId={}, available={}, bookingId={}",
+                message.getDriverId(), message.isAvailable(), message.getBookingId());
+        try {
+            kafkaTemplate.send(driverAvailabilityTopic, message.getDriverId(), message)
+                    .whenComplete((result, e) -> {
+                        if (e != null) {
+                            // The booking itself is already stored, a lost event only affects search results
+                            log.error("Failed to send driver availability for driverId={}", message.getDriverId(), e);
+                        }
+                    });
+        } catch (Exception e) {
+            log.error("Failed to send driver availability for driverId={}", message.getDriverId(), e);
+        }
+    }
+}
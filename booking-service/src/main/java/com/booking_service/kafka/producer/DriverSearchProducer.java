@@ -7,9 +7,8 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Component;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 
 @Component
 @Slf4j
@@ -24,28 +23,64 @@ public class DriverSearchProducer {
         this.kafkaTemplate = kafkaTemplate;
     }
 
+    /**
+     * Holds the caller's thread until the broker acknowledges the message. Only publish-mode=sync uses it, as
+     * the baseline the async mode is measured against; the wait is bounded by the producer's max-block-ms and
+     * delivery-timeout-ms, so a broker outage fails the request instead of stalling it
+     */
     public void sendDriverSearchRequest(DriverSearchRequestMessage message) {
+        String identifier = identifier(message);
+        try {
+            sendDriverSearchRequestAsync(message).get();
+        } catch (ExecutionException e) {
+            // Already logged when the send failed
+            throw new RuntimeException("Failed to send driver search request", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Interrupted while sending driver search request for {}", identifier, e);
+            throw new RuntimeException("Failed to send driver search request", e);
+        } catch (Exception e) {
+            log.error("Unexpected exception while sending driver search request for {}", identifier, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Completes when the broker acknowledges the message, on the producer's network thread, so callers
+     * must not block in their callbacks. Failures, including ones raised before the message is queued,
+     * complete the future exceptionally
+     */
+    public CompletableFuture<Void> sendDriverSearchRequestAsync(DriverSearchRequestMessage message) {
         // Allow either bookingId or requestId to be present
         if (message.getBookingId() == null && message.getRequestId() == null) {
-            throw new IllegalArgumentException("Either bookingId or requestId must be provided when sending driver search request");
+            return CompletableFuture.failedFuture(new IllegalArgumentException(
+                    "Either bookingId or requestId must be provided when sending driver search request"));
         }
         
-        String identifier = message.getRequestId() != null ? message.getRequestId() : 
-                           (message.getBookingId() != null ? "bookingId:" + message.getBookingId() : "unknown");
+        String identifier = identifier(message);
         String kafkaKey = message.getRequestId() != null ? message.getRequestId() : 
                          (message.getBookingId() != null ? message.getBookingId().toString() : "unknown");
         
+        log.debug("Sending driver search request for {} to topic: {}", identifier, driverSearchRequestTopic);
+        CompletableFuture<?> future;
         try {
-            log.debug("Sending driver search request for {} to topic: {}", identifier, driverSearchRequestTopic);
-            var future = kafkaTemplate.send(driverSearchRequestTopic, kafkaKey, message);
-            var result = future.get(10, TimeUnit.SECONDS); // Wait up to 10 seconds
-            log.debug("Successfully sent driver search request for {}", identifier);
-        } catch (InterruptedException | ExecutionException | TimeoutException e) {
-            log.error("Exception while sending driver search request for {}", identifier, e);
-            throw new RuntimeException("Failed to send driver search request", e);
+            future = kafkaTemplate.send(driverSearchRequestTopic, kafkaKey, message);
         } catch (Exception e) {
-            log.error("Unexpected exception while sending driver search request for {}", identifier, e);
-            throw e;
+            log.error("Exception while sending driver search request for {}", identifier, e);
+            return CompletableFuture.failedFuture(e);
         }
+        return future.handle((result, e) -> {
+            if (e != null) {
+                log.error("Exception while sending driver search request for {}", identifier, e);
+                throw new RuntimeException("Failed to send driver search request", e);
+            }
+            log.debug("Successfully sent driver search request for {}", identifier);
+            return null;
+        });
+    }
+
+    private static String identifier(DriverSearchRequestMessage message) {
+        return message.getRequestId() != null ? message.getRequestId() : 
+               (message.getBookingId() != null ? "bookingId:" + message.getBookingId() : "unknown");
     }
 }
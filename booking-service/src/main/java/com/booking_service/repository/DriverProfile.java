@@ -0,0 +1,9 @@
+package com.booking_service.repository;
+
+/**
+ * Closed projection of Driver: queries returning it select only these columns and skip the joins
+ */
+public interface DriverProfile {
+    Long getId();
+    String getName();
+}
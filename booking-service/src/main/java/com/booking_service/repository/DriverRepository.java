@@ -5,7 +5,10 @@ import org.springframework.stereotype.Repository;
 
 import com.uber.entity.models.Driver;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface DriverRepository extends JpaRepository<Driver,Long> {
-  
+  List<DriverProfile> findByIdIn(Collection<Long> ids);
 }
@@ -1,11 +1,13 @@
 package com.booking_service.service;
 
+import com.booking_service.cache.DriverProfileCache;
 import com.booking_service.dto.BookingDetailResponseDto;
 import com.booking_service.dto.BookingResponseDto;
 import com.booking_service.dto.CreateBookingRequestDto;
 import com.booking_service.dto.CreateBookingResponseDto;
 import com.booking_service.dto.UpdateBookingRequestDto;
 import com.booking_service.kafka.dto.DriverSearchRequestMessage;
+import com.booking_service.kafka.producer.DriverAvailabilityProducer;
 import com.booking_service.kafka.producer.DriverSearchProducer;
 import com.booking_service.repository.BookingRepository;
 import com.booking_service.repository.DriverRepository;
@@ -39,6 +41,8 @@ public class BookingServiceImpl implements BookingService {
     private final DriverRepository driverRepository;
     private final LocationRepository locationRepository;
     private final DriverSearchProducer driverSearchProducer;
+    private final DriverAvailabilityProducer driverAvailabilityProducer;
+    private final DriverProfileCache driverProfileCache;
 
     @Override
     public Optional<BookingResponseDto> getBookingById(Long bookingId) {
@@ -173,6 +177,10 @@ public class BookingServiceImpl implements BookingService {
             Booking savedBooking = bookingRepository.save(booking);
             log.info("Booking created with driver: bookingId={}, userId={}, driverId={}", 
                     savedBooking.getId(), createBookingRequestDto.getUserId(), driverId);
+
+            // Driver is on a trip now, keep them out of nearby searches
+            driver.setIsAvailable(false);
+            driverAvailabilityProducer.sendDriverAvailability(driverId, false, savedBooking.getId());
             
             return CreateBookingResponseDto.from(savedBooking);
         } catch (Exception e) {
@@ -199,6 +207,7 @@ public class BookingServiceImpl implements BookingService {
             .longitude(updateBookingRequestDto.getDropoffLongitude())
             .build());
         bookingRepository.save(booking);
+        updateDriverAvailability(booking);
         return Boolean.TRUE;
     }   
 
@@ -211,6 +220,24 @@ public class BookingServiceImpl implements BookingService {
         return Boolean.FALSE;
     }
 
+    // Trips that ended free the driver again, every other status keeps them busy
+    private void updateDriverAvailability(Booking booking) {
+        BookingStatus status = booking.getBookingStatus();
+        if (status == null || status == BookingStatus.SCHEDULED) {
+            return;
+        }
+        boolean available = status == BookingStatus.COMPLETED
+                || status == BookingStatus.CANCELLED
+                || status == BookingStatus.NO_SHOW;
+        Driver driver = booking.getDriver();
+        if (!Boolean.valueOf(available).equals(driver.getIsAvailable())) {
+            driver.setIsAvailable(available);
+            driverRepository.save(driver);
+            driverProfileCache.invalidate(driver.getId());
+        }
+        driverAvailabilityProducer.sendDriverAvailability(driver.getId(), available, booking.getId());
+    }
+
     private double calculatePrice(Location pickupLocation, Location dropoffLocation) {
         //TODO: calculate price based on distance and time
         return 100.0;
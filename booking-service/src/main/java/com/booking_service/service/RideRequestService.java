@@ -1,37 +1,44 @@
 package com.booking_service.service;
 
+import com.booking_service.cache.DriverProfileCache;
 import com.booking_service.dto.CreateBookingRequestDto;
 import com.booking_service.dto.RideRequestDto;
 import com.booking_service.dto.RideRequestResponseDto;
 import com.booking_service.kafka.dto.DriverLocationMessage;
 import com.booking_service.kafka.dto.DriverSearchRequestMessage;
 import com.booking_service.kafka.producer.DriverSearchProducer;
-import com.booking_service.repository.DriverRepository;
-import com.uber.entity.models.Driver;
-import lombok.AllArgsConstructor;
+import com.booking_service.store.RideRequestStore;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
 import java.util.stream.Collectors;
 
 @Service
-@AllArgsConstructor
+@RequiredArgsConstructor
 @Slf4j
 public class RideRequestService {
 
     private final DriverSearchProducer driverSearchProducer;
-    private final DriverRepository driverRepository;
+    private final DriverProfileCache driverProfileCache;
     
-    // Store pending ride requests: requestId -> RideRequestDto
-    private final Map<String, RideRequestDto> pendingRequests = new ConcurrentHashMap<>();
+    // Pending ride requests and the drivers found for them, evicted once expired
+    private final RideRequestStore rideRequestStore;
     
-    // Store driver locations from search: requestId -> List<DriverLocationMessage>
-    private final Map<String, List<DriverLocationMessage>> requestDrivers = new ConcurrentHashMap<>();
+    // Completes async publishes once the broker acknowledged them (KafkaConfig)
+    private final ExecutorService rideRequestPublishExecutor;
+    
+    // sync waits for the broker on the request thread; async releases it and answers on acknowledgement
+    @Value("${booking.ride-request.publish-mode:async}")
+    private String publishMode; // Not final - injected via @Value
     
     private static final long REQUEST_TIMEOUT_SECONDS = 60; // 1 minute timeout
 
@@ -40,6 +47,47 @@ public class RideRequestService {
      * Does NOT create booking yet
      */
     public RideRequestResponseDto initiateRideRequest(CreateBookingRequestDto createBookingRequestDto) {
+        RideRequestDto rideRequest = storeRideRequest(createBookingRequestDto);
+        
+        try {
+            driverSearchProducer.sendDriverSearchRequest(searchRequestFor(rideRequest, createBookingRequestDto));
+            log.info("Driver search request sent for requestId: {}", rideRequest.getRequestId());
+        } catch (Exception e) {
+            log.error("Failed to send driver search request for requestId: {}", rideRequest.getRequestId(), e);
+            rideRequestStore.remove(rideRequest.getRequestId());
+            throw new RuntimeException("Failed to initiate ride request: " + e.getMessage(), e);
+        }
+        
+        return searchingResponse(rideRequest);
+    }
+    
+    /**
+     * Same as initiateRideRequest, but in async publish mode the caller's thread is not held while the
+     * broker acknowledges the search request; the future fails if the request could not be published
+     */
+    public CompletableFuture<RideRequestResponseDto> initiateRideRequestAsync(CreateBookingRequestDto createBookingRequestDto) {
+        if (!"async".equalsIgnoreCase(publishMode)) {
+            return CompletableFuture.completedFuture(initiateRideRequest(createBookingRequestDto));
+        }
+        RideRequestDto rideRequest = storeRideRequest(createBookingRequestDto);
+        String requestId = rideRequest.getRequestId();
+        
+        CompletableFuture<Void> sent =
+                driverSearchProducer.sendDriverSearchRequestAsync(searchRequestFor(rideRequest, createBookingRequestDto));
+        // Off the producer's network thread: removing the request may be a call to Redis, which must not
+        // hold the common pool either
+        return sent.handleAsync((ignored, e) -> {
+            if (e != null) {
+                log.error("Failed to send driver search request for requestId: {}", requestId, e);
+                rideRequestStore.remove(requestId);
+                throw new RuntimeException("Failed to initiate ride request: " + e.getMessage(), e);
+            }
+            log.info("Driver search request sent for requestId: {}", requestId);
+            return searchingResponse(rideRequest);
+        }, rideRequestPublishExecutor);
+    }
+    
+    private RideRequestDto storeRideRequest(CreateBookingRequestDto createBookingRequestDto) {
         String requestId = UUID.randomUUID().toString();
         log.info("Initiating ride request: requestId={}, userId={}", requestId, createBookingRequestDto.getUserId());
         
@@ -65,35 +113,32 @@ public class RideRequestService {
                 .expiresAt(Instant.now().plusSeconds(REQUEST_TIMEOUT_SECONDS).getEpochSecond())
                 .build();
         
-        pendingRequests.put(requestId, rideRequest);
-        
-        // Send Kafka message to location service to search drivers
+        rideRequestStore.put(rideRequest);
+        return rideRequest;
+    }
+    
+    // Message to location service to search drivers
+    private DriverSearchRequestMessage searchRequestFor(RideRequestDto rideRequest, CreateBookingRequestDto createBookingRequestDto) {
         // Using requestId as bookingId temporarily (will be replaced with actual bookingId later)
-        DriverSearchRequestMessage searchRequest = DriverSearchRequestMessage.builder()
+        return DriverSearchRequestMessage.builder()
                 .bookingId(null) // No booking yet
-                .requestId(requestId) // Use requestId instead
-                .userId(createBookingRequestDto.getUserId())
-                .pickupLatitude(createBookingRequestDto.getPickupLatitude())
-                .pickupLongitude(createBookingRequestDto.getPickupLongitude())
-                .dropoffLatitude(createBookingRequestDto.getDropoffLatitude())
-                .dropoffLongitude(createBookingRequestDto.getDropoffLongitude())
-                .price(estimatedPrice)
+                .requestId(rideRequest.getRequestId()) // Use requestId instead
+                .userId(rideRequest.getUserId())
+                .pickupLatitude(rideRequest.getPickupLatitude())
+                .pickupLongitude(rideRequest.getPickupLongitude())
+                .dropoffLatitude(rideRequest.getDropoffLatitude())
+                .dropoffLongitude(rideRequest.getDropoffLongitude())
+                .price(rideRequest.getEstimatedPrice())
+                .carTypes(createBookingRequestDto.getCarTypes())
                 .build();
-        
-        try {
-            driverSearchProducer.sendDriverSearchRequest(searchRequest);
-            log.info("Driver search request sent for requestId: {}", requestId);
-        } catch (Exception e) {
-            log.error("Failed to send driver search request for requestId: {}", requestId, e);
-            pendingRequests.remove(requestId);
-            throw new RuntimeException("Failed to initiate ride request: " + e.getMessage(), e);
-        }
-        
+    }
+    
+    private RideRequestResponseDto searchingResponse(RideRequestDto rideRequest) {
         // Return immediate response with requestId
         // Drivers list will be empty initially, will be populated async
         return RideRequestResponseDto.builder()
-                .requestId(requestId)
-                .userId(createBookingRequestDto.getUserId())
+                .requestId(rideRequest.getRequestId())
+                .userId(rideRequest.getUserId())
                 .nearbyDrivers(List.of()) // Empty initially, will be updated via WebSocket
                 .status("SEARCHING")
                 .message("Searching for nearby drivers...")
@@ -104,8 +149,15 @@ public class RideRequestService {
      * Get ride request status by requestId
      */
     public RideRequestResponseDto getRideRequestStatus(String requestId) {
-        RideRequestDto rideRequest = pendingRequests.get(requestId);
+        RideRequestDto rideRequest = rideRequestStore.get(requestId);
         if (rideRequest == null) {
+            if (rideRequestStore.isExpired(requestId)) {
+                return RideRequestResponseDto.builder()
+                        .requestId(requestId)
+                        .status("TIMEOUT")
+                        .message("Ride request expired")
+                        .build();
+            }
             return RideRequestResponseDto.builder()
                     .requestId(requestId)
                     .status("NOT_FOUND")
@@ -113,27 +165,34 @@ public class RideRequestService {
                     .build();
         }
         
-        List<DriverLocationMessage> drivers = requestDrivers.get(requestId);
+        List<DriverLocationMessage> drivers = rideRequestStore.getDrivers(requestId);
         List<RideRequestResponseDto.DriverInfoDto> driverInfoList = List.of();
         
         if (drivers != null && !drivers.isEmpty()) {
+            // One lookup for every driver of the request, mostly answered by the cache on repeated polls
+            List<Long> driverIds = new ArrayList<>(drivers.size());
+            for (DriverLocationMessage driver : drivers) {
+                Long driverId = parseDriverId(driver.getDriverId());
+                if (driverId != null) {
+                    driverIds.add(driverId);
+                }
+            }
+            Map<Long, String> driverNames = driverProfileCache.getNames(driverIds);
+            
             driverInfoList = drivers.stream()
                     .map(driver -> {
-                        // Fetch driver details from database
-                        Driver driverEntity = driverRepository.findById(Long.parseLong(driver.getDriverId()))
-                                .orElse(null);
-                        
-                        // Calculate distance
-                        double distance = calculateDistance(
+                        // Stored with the drivers; computed here only for drivers stored without it
+                        double distance = driver.getDistance() != null ? driver.getDistance() : calculateDistance(
                             rideRequest.getPickupLatitude(),
                             rideRequest.getPickupLongitude(),
                             driver.getLatitude(),
                             driver.getLongitude()
                         );
+                        Long driverId = parseDriverId(driver.getDriverId());
                         
                         return RideRequestResponseDto.DriverInfoDto.builder()
                                 .driverId(driver.getDriverId())
-                                .driverName(driverEntity != null ? driverEntity.getName() : "Unknown")
+                                .driverName(driverId != null ? driverNames.getOrDefault(driverId, "Unknown") : "Unknown")
                                 .latitude(driver.getLatitude())
                                 .longitude(driver.getLongitude())
                                 .distance(distance)
@@ -142,17 +201,6 @@ public class RideRequestService {
                     .collect(Collectors.toList());
         }
         
-        // Check if expired
-        if (Instant.now().getEpochSecond() > rideRequest.getExpiresAt()) {
-            pendingRequests.remove(requestId);
-            requestDrivers.remove(requestId);
-            return RideRequestResponseDto.builder()
-                    .requestId(requestId)
-                    .status("TIMEOUT")
-                    .message("Ride request expired")
-                    .build();
-        }
-        
         return RideRequestResponseDto.builder()
                 .requestId(requestId)
                 .userId(rideRequest.getUserId())
@@ -166,33 +214,71 @@ public class RideRequestService {
      * Store drivers found for a request (called by consumer)
      */
     public void storeDriversForRequest(String requestId, List<DriverLocationMessage> drivers) {
-        requestDrivers.put(requestId, drivers);
-        log.info("Stored {} drivers for requestId: {}", drivers.size(), requestId);
+        // Distances from pickup are computed once here instead of on every status poll
+        RideRequestDto rideRequest = rideRequestStore.get(requestId);
+        if (rideRequest != null) {
+            for (DriverLocationMessage driver : drivers) {
+                driver.setDistance(calculateDistance(
+                    rideRequest.getPickupLatitude(),
+                    rideRequest.getPickupLongitude(),
+                    driver.getLatitude(),
+                    driver.getLongitude()
+                ));
+            }
+        }
+        if (rideRequest != null && rideRequestStore.setDrivers(requestId, drivers)) {
+            log.info("Stored {} drivers for requestId: {}", drivers.size(), requestId);
+        } else {
+            log.info("Ignoring {} drivers for requestId: {}, request is no longer pending", drivers.size(), requestId);
+        }
     }
     
     /**
      * Get stored drivers for a request (to check if drivers were already found)
      */
     public List<DriverLocationMessage> getStoredDriversForRequest(String requestId) {
-        return requestDrivers.get(requestId);
+        return rideRequestStore.getDrivers(requestId);
     }
     
     /**
      * Get ride request by requestId (for creating booking)
      */
     public RideRequestDto getRideRequest(String requestId) {
-        return pendingRequests.get(requestId);
+        return rideRequestStore.get(requestId);
+    }
+    
+    /**
+     * Claim the ride request for the driver who accepted it; false if another driver got it first
+     * or the request is gone
+     */
+    public boolean acceptRideRequest(String requestId, String driverId) {
+        return rideRequestStore.accept(requestId, driverId);
+    }
+
+    /**
+     * Undo acceptRideRequest when the booking could not be created, so the request can still be accepted
+     */
+    public boolean releaseRideRequest(String requestId, String driverId) {
+        return rideRequestStore.release(requestId, driverId);
     }
     
     /**
      * Remove ride request after booking is created
      */
     public void removeRideRequest(String requestId) {
-        pendingRequests.remove(requestId);
-        requestDrivers.remove(requestId);
+        rideRequestStore.remove(requestId);
         log.info("Removed ride request: requestId={}", requestId);
     }
     
+    // Drivers with a malformed id are shown as Unknown
+    private Long parseDriverId(String driverId) {
+        try {
+            return Long.parseLong(driverId);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+    
     private double calculateEstimatedPrice(double pickupLat, double pickupLon, 
                                           double dropoffLat, double dropoffLon) {
         // Simple distance-based calculation
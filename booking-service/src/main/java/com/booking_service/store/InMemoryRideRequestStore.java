@@ -0,0 +1,250 @@
+package com.booking_service.store;
+
+import com.booking_service.dto.RideRequestDto;
+import com.booking_service.kafka.dto.DriverLocationMessage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Ride requests held in this instance only, so booking-service must run as a single replica.
+ * Every request gets the same timeout, so insertion order is expiry order: entries are kept in an
+ * insertion-ordered map whose head is always the next to expire, and each eviction is O(1) (an expiry queue).
+ * At max-size the request closest to expiry is evicted to make room. Evicted request ids are remembered
+ * for expired-retention-seconds so pollers still learn that their request timed out
+ */
+@Component
+@ConditionalOnProperty(name = "booking.ride-request.store", havingValue = "memory", matchIfMissing = true)
+@Slf4j
+public class InMemoryRideRequestStore implements RideRequestStore {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+    private final LinkedHashMap<String, Long> expired = new LinkedHashMap<>(); // requestId -> forget at epoch millis
+    private final int maxSize;
+    private final long expiredRetentionMillis;
+    private final Counter expiredEvictions;
+    private final Counter capacityEvictions;
+
+    public InMemoryRideRequestStore(MeterRegistry meterRegistry,
+                                    @Value("${booking.ride-request.max-size:100000}") int maxSize,
+                                    @Value("${booking.ride-request.expired-retention-seconds:60}") long expiredRetentionSeconds) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("booking.ride-request.max-size must be positive, got " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.expiredRetentionMillis = expiredRetentionSeconds * 1000;
+        Gauge.builder("booking.ride-requests.live", this, InMemoryRideRequestStore::size)
+                .description("Pending ride requests held in memory")
+                .register(meterRegistry);
+        this.expiredEvictions = Counter.builder("booking.ride-requests.evicted")
+                .tag("reason", "expired")
+                .register(meterRegistry);
+        this.capacityEvictions = Counter.builder("booking.ride-requests.evicted")
+                .tag("reason", "capacity")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void put(RideRequestDto rideRequest) {
+        long now = System.currentTimeMillis();
+        lock.lock();
+        try {
+            evictExpired(now);
+            if (entries.size() >= maxSize && !entries.containsKey(rideRequest.getRequestId())) {
+                Map.Entry<String, Entry> soonest = entries.entrySet().iterator().next();
+                log.warn("Ride request store full ({} entries), evicting requestId={}", maxSize, soonest.getKey());
+                evict(soonest.getKey(), now, capacityEvictions);
+            }
+            entries.put(rideRequest.getRequestId(), new Entry(rideRequest));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public RideRequestDto get(String requestId) {
+        lock.lock();
+        try {
+            Entry entry = liveEntry(requestId, System.currentTimeMillis());
+            return entry != null ? entry.request : null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean setDrivers(String requestId, List<DriverLocationMessage> drivers) {
+        lock.lock();
+        try {
+            Entry entry = liveEntry(requestId, System.currentTimeMillis());
+            if (entry == null) {
+                return false;
+            }
+            entry.drivers = drivers;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<DriverLocationMessage> getDrivers(String requestId) {
+        lock.lock();
+        try {
+            Entry entry = liveEntry(requestId, System.currentTimeMillis());
+            return entry != null ? entry.drivers : null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean accept(String requestId, String driverId) {
+        lock.lock();
+        try {
+            Entry entry = liveEntry(requestId, System.currentTimeMillis());
+            if (entry == null || entry.acceptedBy != null) {
+                return false;
+            }
+            entry.acceptedBy = driverId;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean release(String requestId, String driverId) {
+        lock.lock();
+        try {
+            Entry entry = entries.get(requestId);
+            if (entry == null || !driverId.equals(entry.acceptedBy)) {
+                return false;
+            }
+            entry.acceptedBy = null;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(String requestId) {
+        lock.lock();
+        try {
+            return entries.remove(requestId) != null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isExpired(String requestId) {
+        long now = System.currentTimeMillis();
+        lock.lock();
+        try {
+            liveEntry(requestId, now); // Expires the entry if it is due
+            Long forgetAt = expired.get(requestId);
+            return forgetAt != null && forgetAt > now;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Entries also expire on access and on every put; the sweep reclaims requests nobody asks about anymore
+     */
+    @Scheduled(fixedDelayString = "${booking.ride-request.sweep-interval-ms:1000}")
+    public void evictExpired() {
+        lock.lock();
+        try {
+            int evicted = evictExpired(System.currentTimeMillis());
+            if (evicted > 0) {
+                log.debug("Evicted {} expired ride requests, {} pending", evicted, entries.size());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Caller holds the lock
+    private Entry liveEntry(String requestId, long now) {
+        Entry entry = entries.get(requestId);
+        if (entry != null && entry.expiresAtMillis <= now) {
+            evict(requestId, now, expiredEvictions);
+            return null;
+        }
+        return entry;
+    }
+
+    // Caller holds the lock. Stops at the first live entry: everything behind it expires later
+    private int evictExpired(long now) {
+        int evicted = 0;
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Entry> head = iterator.next();
+            if (head.getValue().expiresAtMillis > now) {
+                break;
+            }
+            iterator.remove();
+            remember(head.getKey(), now);
+            expiredEvictions.increment();
+            evicted++;
+        }
+        Iterator<Map.Entry<String, Long>> expiredIterator = expired.entrySet().iterator();
+        while (expiredIterator.hasNext() && expiredIterator.next().getValue() <= now) {
+            expiredIterator.remove();
+        }
+        return evicted;
+    }
+
+    // Caller holds the lock
+    private void evict(String requestId, long now, Counter reason) {
+        entries.remove(requestId);
+        remember(requestId, now);
+        reason.increment();
+    }
+
+    // Caller holds the lock. Bounded like the entries, oldest forgotten first
+    private void remember(String requestId, long now) {
+        if (expired.size() >= maxSize) {
+            Iterator<String> oldest = expired.keySet().iterator();
+            oldest.next();
+            oldest.remove();
+        }
+        expired.put(requestId, now + expiredRetentionMillis);
+    }
+
+    private static final class Entry {
+        private final RideRequestDto request;
+        private final long expiresAtMillis;
+        private List<DriverLocationMessage> drivers; // Guarded by the store lock
+        private String acceptedBy; // Guarded by the store lock
+
+        private Entry(RideRequestDto request) {
+            this.request = request;
+            this.expiresAtMillis = request.getExpiresAt() * 1000;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.booking_service.store;
+
+import com.booking_service.dto.RideRequestDto;
+import com.booking_service.kafka.dto.DriverLocationMessage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ride requests shared by every booking-service replica, one hash per request (RideRequest:{requestId}).
+ * Redis deletes the hash expired-retention-seconds after the request expires, so expired requests
+ * still answer TIMEOUT for that long and nothing has to be swept. Drivers are kept in a single field as
+ * "driverId,latitude,longitude[,distance];..." and acceptance is claimed with HSETNX, so exactly one driver wins
+ * even when acceptances for the same request land on different replicas
+ */
+@Component
+@ConditionalOnProperty(name = "booking.ride-request.store", havingValue = "redis")
+public class RedisRideRequestStore implements RideRequestStore {
+
+    private static final String KEY_PREFIX = "RideRequest:";
+    private static final String EXPIRES_AT = "expiresAt";
+    private static final String DRIVERS = "drivers";
+    private static final String DRIVER_SEPARATOR = ";";
+    private static final String FIELD_SEPARATOR = ",";
+
+    static final RedisScript<Long> PUT_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/put-ride-request.lua"), Long.class);
+    static final RedisScript<Long> SET_DRIVERS_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/set-ride-request-drivers.lua"), Long.class);
+    static final RedisScript<Long> ACCEPT_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/accept-ride-request.lua"), Long.class);
+    static final RedisScript<Long> RELEASE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/release-ride-request.lua"), Long.class);
+
+    private final StringRedisTemplate redis;
+    private final long expiredRetentionMillis;
+
+    public RedisRideRequestStore(StringRedisTemplate redis,
+                                 @Value("${booking.ride-request.expired-retention-seconds:60}") long expiredRetentionSeconds) {
+        this.redis = redis;
+        this.expiredRetentionMillis = expiredRetentionSeconds * 1000;
+    }
+
+    @Override
+    public void put(RideRequestDto rideRequest) {
+        List<String> args = new ArrayList<>();
+        args.add(Long.toString(rideRequest.getExpiresAt() * 1000 + expiredRetentionMillis));
+        addField(args, "userId", rideRequest.getUserId());
+        addField(args, "pickupLatitude", Double.toString(rideRequest.getPickupLatitude()));
+        addField(args, "pickupLongitude", Double.toString(rideRequest.getPickupLongitude()));
+        addField(args, "dropoffLatitude", Double.toString(rideRequest.getDropoffLatitude()));
+        addField(args, "dropoffLongitude", Double.toString(rideRequest.getDropoffLongitude()));
+        addField(args, "pickupTime", rideRequest.getPickupTime() != null ? Long.toString(rideRequest.getPickupTime().getTime()) : null);
+        addField(args, "estimatedPrice", Double.toString(rideRequest.getEstimatedPrice()));
+        addField(args, "createdAt", rideRequest.getCreatedAt() != null ? rideRequest.getCreatedAt().toString() : null);
+        addField(args, EXPIRES_AT, rideRequest.getExpiresAt().toString());
+        redis.execute(PUT_SCRIPT, List.of(key(rideRequest.getRequestId())), args.toArray());
+    }
+
+    @Override
+    public RideRequestDto get(String requestId) {
+        Map<Object, Object> fields = redis.opsForHash().entries(key(requestId));
+        if (fields.isEmpty() || !isLive(fields.get(EXPIRES_AT), System.currentTimeMillis())) {
+            return null;
+        }
+        return RideRequestDto.builder()
+                .requestId(requestId)
+                .userId(string(fields.get("userId")))
+                .pickupLatitude(Double.parseDouble(fields.get("pickupLatitude").toString()))
+                .pickupLongitude(Double.parseDouble(fields.get("pickupLongitude").toString()))
+                .dropoffLatitude(Double.parseDouble(fields.get("dropoffLatitude").toString()))
+                .dropoffLongitude(Double.parseDouble(fields.get("dropoffLongitude").toString()))
+                .pickupTime(fields.containsKey("pickupTime") ? new Date(Long.parseLong(fields.get("pickupTime").toString())) : null)
+                .estimatedPrice(Double.parseDouble(fields.get("estimatedPrice").toString()))
+                .createdAt(fields.containsKey("createdAt") ? Long.parseLong(fields.get("createdAt").toString()) : null)
+                .expiresAt(Long.parseLong(fields.get(EXPIRES_AT).toString()))
+                .build();
+    }
+
+    @Override
+    public boolean setDrivers(String requestId, List<DriverLocationMessage> drivers) {
+        Long updated = redis.execute(SET_DRIVERS_SCRIPT, List.of(key(requestId)),
+                Long.toString(System.currentTimeMillis()), encodeDrivers(drivers));
+        return updated != null && updated == 1;
+    }
+
+    @Override
+    public List<DriverLocationMessage> getDrivers(String requestId) {
+        List<Object> fields = redis.opsForHash().multiGet(key(requestId), List.<Object>of(EXPIRES_AT, DRIVERS));
+        if (!isLive(fields.get(0), System.currentTimeMillis()) || fields.get(1) == null) {
+            return null;
+        }
+        return decodeDrivers(fields.get(1).toString());
+    }
+
+    @Override
+    public boolean accept(String requestId, String driverId) {
+        Long claimed = redis.execute(ACCEPT_SCRIPT, List.of(key(requestId)),
+                Long.toString(System.currentTimeMillis()), driverId);
+        return claimed != null && claimed == 1;
+    }
+
+    @Override
+    public boolean release(String requestId, String driverId) {
+        Long released = redis.execute(RELEASE_SCRIPT, List.of(key(requestId)), driverId);
+        return released != null && released == 1;
+    }
+
+    @Override
+    public boolean remove(String requestId) {
+        return Boolean.TRUE.equals(redis.delete(key(requestId)));
+    }
+
+    @Override
+    public boolean isExpired(String requestId) {
+        Object expiresAt = redis.opsForHash().get(key(requestId), EXPIRES_AT);
+        return expiresAt != null && !isLive(expiresAt, System.currentTimeMillis());
+    }
+
+    private static String key(String requestId) {
+        return KEY_PREFIX + requestId;
+    }
+
+    private static boolean isLive(Object expiresAt, long nowMillis) {
+        return expiresAt != null && Long.parseLong(expiresAt.toString()) * 1000 > nowMillis;
+    }
+
+    private static void addField(List<String> args, String field, String value) {
+        if (value != null) {
+            args.add(field);
+            args.add(value);
+        }
+    }
+
+    private static String string(Object value) {
+        return value != null ? value.toString() : null;
+    }
+
+    static String encodeDrivers(List<DriverLocationMessage> drivers) {
+        StringBuilder encoded = new StringBuilder(drivers.size() * 32);
+        for (DriverLocationMessage driver : drivers) {
+            if (!encoded.isEmpty()) {
+                encoded.append(DRIVER_SEPARATOR);
+            }
+            encoded.append(driver.getDriverId()).append(FIELD_SEPARATOR)
+                    .append(driver.getLatitude()).append(FIELD_SEPARATOR)
+                    .append(driver.getLongitude());
+            if (driver.getDistance() != null) {
+                encoded.append(FIELD_SEPARATOR).append(driver.getDistance());
+            }
+        }
+        return encoded.toString();
+    }
+
+    static List<DriverLocationMessage> decodeDrivers(String encoded) {
+        List<DriverLocationMessage> drivers = new ArrayList<>();
+        if (encoded.isEmpty()) {
+            return drivers;
+        }
+        for (String driver : encoded.split(DRIVER_SEPARATOR)) {
+            String[] fields = driver.split(FIELD_SEPARATOR);
+            drivers.add(DriverLocationMessage.builder()
+                    .driverId(fields[0])
+                    .latitude(Double.parseDouble(fields[1]))
+                    .longitude(Double.parseDouble(fields[2]))
+                    .distance(fields.length > 3 ? Double.parseDouble(fields[3]) : null)
+                    .build());
+        }
+        return drivers;
+    }
+}
@@ -0,0 +1,46 @@
+package com.booking_service.store;
+
+import com.booking_service.dto.RideRequestDto;
+import com.booking_service.kafka.dto.DriverLocationMessage;
+
+import java.util.List;
+
+/**
+ * Pending ride requests and the drivers found for them, bounded and expiring.
+ * Picked by booking.ride-request.store: memory (single replica) or redis (shared by all replicas)
+ */
+public interface RideRequestStore {
+
+    void put(RideRequestDto rideRequest);
+
+    /**
+     * The pending request, or null if it is unknown, removed or expired
+     */
+    RideRequestDto get(String requestId);
+
+    /**
+     * Attach the drivers found for a request; ignored (returns false) when the request is no longer pending
+     */
+    boolean setDrivers(String requestId, List<DriverLocationMessage> drivers);
+
+    List<DriverLocationMessage> getDrivers(String requestId);
+
+    /**
+     * Claim a pending request for the driver who accepted it. Only the first claim succeeds, so concurrent
+     * or redelivered acceptances create a single booking
+     */
+    boolean accept(String requestId, String driverId);
+
+    /**
+     * Give up a claim made by accept, only while that driver still holds it, so the request can be
+     * accepted again when its booking could not be created
+     */
+    boolean release(String requestId, String driverId);
+
+    boolean remove(String requestId);
+
+    /**
+     * Whether the request expired unanswered within the last expired-retention-seconds
+     */
+    boolean isExpired(String requestId);
+}
@@ -0,0 +1,8 @@
+-- Claim a pending ride request for the driver who accepted it; only the first claim succeeds
+-- KEYS[1] = ride request hash
+-- ARGV[1] = now epoch millis, ARGV[2] = driverId
+local expiresAt = redis.call('HGET', KEYS[1], 'expiresAt')
+if not expiresAt or tonumber(expiresAt) * 1000 <= tonumber(ARGV[1]) then
+    return 0
+end
+return redis.call('HSETNX', KEYS[1], 'acceptedBy', ARGV[2])
@@ -0,0 +1,7 @@
+-- Write a ride request hash and its expiry in one step, so no request is ever left without a TTL
+-- KEYS[1] = ride request hash
+-- ARGV[1] = epoch millis at which Redis deletes the hash, ARGV[2..n] = field, value, field, value, ...
+redis.call('DEL', KEYS[1])
+redis.call('HSET', KEYS[1], unpack(ARGV, 2))
+redis.call('PEXPIREAT', KEYS[1], ARGV[1])
+return 1
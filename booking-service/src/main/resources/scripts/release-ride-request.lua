@@ -0,0 +1,7 @@
+-- Give up a driver's claim on a ride request, only while that driver still holds it
+-- KEYS[1] = ride request hash
+-- ARGV[1] = driverId
+if redis.call('HGET', KEYS[1], 'acceptedBy') == ARGV[1] then
+    return redis.call('HDEL', KEYS[1], 'acceptedBy')
+end
+return 0
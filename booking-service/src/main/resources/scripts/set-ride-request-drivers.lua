@@ -0,0 +1,9 @@
+-- Attach the drivers found for a ride request, only while the request is still pending
+-- KEYS[1] = ride request hash
+-- ARGV[1] = now epoch millis, ARGV[2] = drivers in compact form
+local expiresAt = redis.call('HGET', KEYS[1], 'expiresAt')
+if not expiresAt or tonumber(expiresAt) * 1000 <= tonumber(ARGV[1]) then
+    return 0
+end
+redis.call('HSET', KEYS[1], 'drivers', ARGV[2])
+return 1
@@ -0,0 +1,151 @@
+package com.booking_service.kafka.consumer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class KeyOrderedExecutorTest {
+
+    private KeyOrderedExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = new KeyOrderedExecutor("test", 4, new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void tasksOfAKeyRunOneAtATimeInSubmissionOrder() throws Exception {
+        int keys = 8;
+        int tasksPerKey = 500;
+        List<List<Integer>> ran = new ArrayList<>();
+        List<AtomicInteger> running = new ArrayList<>();
+        AtomicInteger overlaps = new AtomicInteger();
+        for (int k = 0; k < keys; k++) {
+            ran.add(Collections.synchronizedList(new ArrayList<>()));
+            running.add(new AtomicInteger());
+        }
+
+        // One submitting thread per key, all submitting at once
+        CountDownLatch start = new CountDownLatch(1);
+        List<CompletableFuture<Void>> lastTasks = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> submitters = new ArrayList<>();
+        for (int k = 0; k < keys; k++) {
+            int key = k;
+            Thread submitter = new Thread(() -> {
+                awaitQuietly(start);
+                CompletableFuture<Void> last = null;
+                for (int i = 0; i < tasksPerKey; i++) {
+                    int task = i;
+                    last = executor.submit("key-" + key, () -> {
+                        if (running.get(key).incrementAndGet() > 1) {
+                            overlaps.incrementAndGet();
+                        }
+                        ran.get(key).add(task);
+                        running.get(key).decrementAndGet();
+                    });
+                }
+                lastTasks.add(last);
+            });
+            submitters.add(submitter);
+            submitter.start();
+        }
+        start.countDown();
+        for (Thread submitter : submitters) {
+            submitter.join();
+        }
+        CompletableFuture.allOf(lastTasks.toArray(CompletableFuture[]::new)).get(30, TimeUnit.SECONDS);
+
+        assertThat(overlaps.get()).isZero();
+        for (int k = 0; k < keys; k++) {
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < tasksPerKey; i++) {
+                expected.add(i);
+            }
+            assertThat(ran.get(k)).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void differentKeysRunInParallel() throws Exception {
+        CountDownLatch released = new CountDownLatch(1);
+        CompletableFuture<Void> waiting = executor.submit("a", () -> awaitQuietly(released));
+        CompletableFuture<Void> releasing = executor.submit("b", released::countDown);
+
+        // Would time out if "b" waited behind "a"
+        waiting.get(5, TimeUnit.SECONDS);
+        releasing.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void failedTaskDoesNotStopLaterTasksOfItsKey() throws Exception {
+        List<String> ran = Collections.synchronizedList(new ArrayList<>());
+        CompletableFuture<Void> failed = executor.submit("a", () -> {
+            throw new IllegalStateException("Injected failure");
+        });
+        CompletableFuture<Void> next = executor.submit("a", () -> ran.add("next"));
+
+        next.get(5, TimeUnit.SECONDS);
+        assertThat(ran).containsExactly("next");
+        assertThatThrownBy(failed::get).isInstanceOf(ExecutionException.class);
+    }
+
+    @Test
+    void keysAreForgottenOnceTheirLastTaskIsDone() throws Exception {
+        List<CompletableFuture<Void>> submitted = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            submitted.add(executor.submit("key-" + (i % 50), () -> { }));
+        }
+        CompletableFuture.allOf(submitted.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+
+        // The removal runs right after each task completes, possibly just after the waiter above woke up
+        Map<?, ?> tails = (Map<?, ?>) ReflectionTestUtils.getField(executor, "tails");
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!tails.isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertThat(tails).isEmpty();
+    }
+
+    @Test
+    void tasksWithoutAKeyStillRun() throws Exception {
+        AtomicInteger ran = new AtomicInteger();
+        executor.submit(null, ran::incrementAndGet).get(5, TimeUnit.SECONDS);
+
+        assertThat(ran.get()).isEqualTo(1);
+        assertThat((Map<?, ?>) ReflectionTestUtils.getField(executor, "tails")).isEmpty();
+    }
+
+    @Test
+    void needsAtLeastOneThread() {
+        assertThatThrownBy(() -> new KeyOrderedExecutor("test", 0, new SimpleMeterRegistry()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
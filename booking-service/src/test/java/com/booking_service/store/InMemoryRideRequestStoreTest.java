@@ -0,0 +1,157 @@
+package com.booking_service.store;
+
+import com.booking_service.dto.RideRequestDto;
+import com.booking_service.kafka.dto.DriverLocationMessage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InMemoryRideRequestStoreTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private long nowSeconds;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        nowSeconds = System.currentTimeMillis() / 1000;
+    }
+
+    @Test
+    void expiredRequestsAreGoneButRememberedAsExpired() {
+        InMemoryRideRequestStore store = store(10, 60);
+        store.put(request("late", nowSeconds - 1));
+        store.put(request("live", nowSeconds + 60));
+
+        assertThat(store.get("late")).isNull();
+        assertThat(store.isExpired("late")).isTrue();
+        assertThat(store.get("live").getRequestId()).isEqualTo("live");
+        assertThat(store.isExpired("live")).isFalse();
+        assertThat(evicted("expired")).isEqualTo(1.0);
+    }
+
+    @Test
+    void sweepStopsAtTheFirstLiveRequest() {
+        InMemoryRideRequestStore store = store(10, 60);
+        store.put(request("live", nowSeconds + 60));
+        // Out of expiry order: behind a live head, so only access can expire it
+        store.put(request("late", nowSeconds - 1));
+
+        store.evictExpired();
+        assertThat(store.size()).isEqualTo(2);
+
+        assertThat(store.getDrivers("late")).isNull();
+        assertThat(store.size()).isEqualTo(1);
+        assertThat(store.isExpired("late")).isTrue();
+    }
+
+    @Test
+    void expiredRequestsAtTheHeadAreEvictedByTheNextPutOrSweep() {
+        InMemoryRideRequestStore store = store(10, 60);
+        store.put(request("first", nowSeconds - 2));
+        store.put(request("second", nowSeconds - 1));
+        assertThat(store.size()).isEqualTo(1);
+
+        store.evictExpired();
+
+        assertThat(store.size()).isEqualTo(0);
+        assertThat(store.isExpired("first")).isTrue();
+        assertThat(store.isExpired("second")).isTrue();
+        assertThat(evicted("expired")).isEqualTo(2.0);
+    }
+
+    @Test
+    void fullStoreEvictsTheRequestClosestToExpiry() {
+        InMemoryRideRequestStore store = store(2, 60);
+        store.put(request("first", nowSeconds + 60));
+        store.put(request("second", nowSeconds + 61));
+        store.put(request("third", nowSeconds + 62));
+
+        assertThat(store.size()).isEqualTo(2);
+        assertThat(store.get("first")).isNull();
+        assertThat(store.isExpired("first")).isTrue();
+        assertThat(store.get("second")).isNotNull();
+        assertThat(store.get("third")).isNotNull();
+        assertThat(evicted("capacity")).isEqualTo(1.0);
+    }
+
+    @Test
+    void replacingARequestDoesNotEvictAnother() {
+        InMemoryRideRequestStore store = store(2, 60);
+        store.put(request("first", nowSeconds + 60));
+        store.put(request("second", nowSeconds + 60));
+        store.put(request("second", nowSeconds + 60));
+
+        assertThat(store.get("first")).isNotNull();
+        assertThat(evicted("capacity")).isEqualTo(0.0);
+    }
+
+    @Test
+    void expiredRequestsAreForgottenAfterTheRetention() {
+        InMemoryRideRequestStore store = store(10, 0);
+        store.put(request("late", nowSeconds - 1));
+
+        assertThat(store.get("late")).isNull();
+        assertThat(store.isExpired("late")).isFalse();
+    }
+
+    @Test
+    void removedRequestsAreNotReportedAsExpired() {
+        InMemoryRideRequestStore store = store(10, 60);
+        store.put(request("booked", nowSeconds + 60));
+
+        assertThat(store.remove("booked")).isTrue();
+        assertThat(store.get("booked")).isNull();
+        assertThat(store.isExpired("booked")).isFalse();
+    }
+
+    @Test
+    void onlyTheFirstAcceptanceWinsUntilItIsReleased() {
+        InMemoryRideRequestStore store = store(10, 60);
+        store.put(request("ride", nowSeconds + 60));
+        assertThat(store.setDrivers("ride", List.of(DriverLocationMessage.builder().driverId("1").build()))).isTrue();
+
+        assertThat(store.accept("ride", "1")).isTrue();
+        assertThat(store.accept("ride", "2")).isFalse();
+        assertThat(store.release("ride", "2")).isFalse();
+        assertThat(store.release("ride", "1")).isTrue();
+        assertThat(store.accept("ride", "2")).isTrue();
+        assertThat(store.getDrivers("ride")).hasSize(1);
+    }
+
+    @Test
+    void expiredRequestsCannotBeAccepted() {
+        InMemoryRideRequestStore store = store(10, 60);
+        store.put(request("late", nowSeconds - 1));
+
+        assertThat(store.accept("late", "1")).isFalse();
+        assertThat(store.setDrivers("late", List.of())).isFalse();
+    }
+
+    @Test
+    void maxSizeMustBePositive() {
+        assertThatThrownBy(() -> store(0, 60)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private InMemoryRideRequestStore store(int maxSize, long expiredRetentionSeconds) {
+        return new InMemoryRideRequestStore(meterRegistry, maxSize, expiredRetentionSeconds);
+    }
+
+    private double evicted(String reason) {
+        return meterRegistry.get("booking.ride-requests.evicted").tag("reason", reason).counter().count();
+    }
+
+    private static RideRequestDto request(String requestId, long expiresAtSeconds) {
+        return RideRequestDto.builder()
+                .requestId(requestId)
+                .userId("7")
+                .createdAt(expiresAtSeconds - 30)
+                .expiresAt(expiresAtSeconds)
+                .build();
+    }
+}
@@ -0,0 +1,197 @@
+package com.booking_service.store;
+
+import com.booking_service.dto.RideRequestDto;
+import com.booking_service.kafka.dto.DriverLocationMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RedisRideRequestStoreTest {
+
+    private ScriptedRideRequestRedis redis;
+    private RedisRideRequestStore store;
+    private long nowSeconds;
+
+    @BeforeEach
+    void setUp() {
+        redis = new ScriptedRideRequestRedis();
+        store = new RedisRideRequestStore(redis, 60);
+        nowSeconds = System.currentTimeMillis() / 1000;
+    }
+
+    @Test
+    void driversSurviveTheCompactEncoding() {
+        List<DriverLocationMessage> drivers = List.of(
+                driver("1", 12.9716, 77.5946, 0.42),
+                driver("22", -33.8688, 151.2093, null),
+                driver("333", 0.0, -0.000123, 12.5));
+
+        List<DriverLocationMessage> decoded = RedisRideRequestStore.decodeDrivers(RedisRideRequestStore.encodeDrivers(drivers));
+
+        assertThat(decoded).hasSize(3);
+        for (int i = 0; i < drivers.size(); i++) {
+            assertThat(decoded.get(i).getDriverId()).isEqualTo(drivers.get(i).getDriverId());
+            assertThat(decoded.get(i).getLatitude()).isEqualTo(drivers.get(i).getLatitude());
+            assertThat(decoded.get(i).getLongitude()).isEqualTo(drivers.get(i).getLongitude());
+            assertThat(decoded.get(i).getDistance()).isEqualTo(drivers.get(i).getDistance());
+        }
+    }
+
+    @Test
+    void noDriversEncodeToAnEmptyList() {
+        assertThat(RedisRideRequestStore.encodeDrivers(List.of())).isEqualTo("");
+        assertThat(RedisRideRequestStore.decodeDrivers("")).isEmpty();
+    }
+
+    @Test
+    void requestSurvivesTheRoundTripAndIsDeletedAfterTheRetention() {
+        RideRequestDto request = request("ride", nowSeconds + 30);
+        request.setPickupTime(new Date(1_700_000_000_000L));
+        store.put(request);
+
+        RideRequestDto stored = store.get("ride");
+
+        assertThat(stored.getRequestId()).isEqualTo("ride");
+        assertThat(stored.getUserId()).isEqualTo("7");
+        assertThat(stored.getPickupLatitude()).isEqualTo(12.97);
+        assertThat(stored.getPickupLongitude()).isEqualTo(77.59);
+        assertThat(stored.getDropoffLatitude()).isEqualTo(12.99);
+        assertThat(stored.getDropoffLongitude()).isEqualTo(77.61);
+        assertThat(stored.getPickupTime().getTime()).isEqualTo(1_700_000_000_000L);
+        assertThat(stored.getEstimatedPrice()).isEqualTo(150.5);
+        assertThat(stored.getCreatedAt()).isEqualTo(nowSeconds);
+        assertThat(stored.getExpiresAt()).isEqualTo(nowSeconds + 30);
+        assertThat(redis.expireAtMillis("RideRequest:ride")).isEqualTo((nowSeconds + 30 + 60) * 1000);
+    }
+
+    @Test
+    void optionalFieldsStayNull() {
+        RideRequestDto request = request("ride", nowSeconds + 30);
+        request.setCreatedAt(null);
+        store.put(request);
+
+        RideRequestDto stored = store.get("ride");
+
+        assertThat(stored.getPickupTime()).isNull();
+        assertThat(stored.getCreatedAt()).isNull();
+    }
+
+    @Test
+    void expiredRequestsAnswerTimeoutUntilRedisDeletesThem() {
+        store.put(request("late", nowSeconds - 1));
+        store.put(request("live", nowSeconds + 30));
+
+        assertThat(store.get("late")).isNull();
+        assertThat(store.isExpired("late")).isTrue();
+        assertThat(store.isExpired("live")).isFalse();
+        assertThat(store.isExpired("unknown")).isFalse();
+        assertThat(store.setDrivers("late", List.of(driver("1", 1.0, 2.0, null)))).isFalse();
+        assertThat(store.getDrivers("late")).isNull();
+        assertThat(store.accept("late", "1")).isFalse();
+    }
+
+    @Test
+    void driversAreOnlyAttachedToPendingRequests() {
+        store.put(request("ride", nowSeconds + 30));
+
+        assertThat(store.getDrivers("ride")).isNull();
+        assertThat(store.setDrivers("ride", List.of(driver("1", 1.0, 2.0, 0.3)))).isTrue();
+        assertThat(store.setDrivers("unknown", List.of(driver("1", 1.0, 2.0, 0.3)))).isFalse();
+
+        assertThat(store.getDrivers("ride")).singleElement()
+                .satisfies(driver -> assertThat(driver.getDriverId()).isEqualTo("1"));
+    }
+
+    @Test
+    void exactlyOneOfManyConcurrentAcceptancesWins() throws Exception {
+        store.put(request("ride", nowSeconds + 30));
+        int drivers = 16;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(drivers);
+        try {
+            List<Future<Boolean>> claims = new ArrayList<>();
+            for (int i = 0; i < drivers; i++) {
+                String driverId = Integer.toString(i);
+                Callable<Boolean> claim = () -> {
+                    start.await();
+                    return store.accept("ride", driverId);
+                };
+                claims.add(pool.submit(claim));
+            }
+            start.countDown();
+
+            List<String> winners = new ArrayList<>();
+            for (int i = 0; i < drivers; i++) {
+                if (claims.get(i).get()) {
+                    winners.add(Integer.toString(i));
+                }
+            }
+            assertThat(winners).hasSize(1);
+            assertThat(redis.field("RideRequest:ride", "acceptedBy")).isEqualTo(winners.get(0));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void redeliveredAcceptanceDoesNotClaimTwice() {
+        store.put(request("ride", nowSeconds + 30));
+
+        assertThat(store.accept("ride", "1")).isTrue();
+        assertThat(store.accept("ride", "1")).isFalse();
+    }
+
+    @Test
+    void onlyTheDriverHoldingTheClaimCanReleaseIt() {
+        store.put(request("ride", nowSeconds + 30));
+        store.accept("ride", "1");
+
+        assertThat(store.release("ride", "2")).isFalse();
+        assertThat(store.accept("ride", "2")).isFalse();
+        assertThat(store.release("ride", "1")).isTrue();
+        assertThat(store.accept("ride", "2")).isTrue();
+    }
+
+    @Test
+    void removedRequestsAreGone() {
+        store.put(request("ride", nowSeconds + 30));
+
+        assertThat(store.remove("ride")).isTrue();
+        assertThat(store.remove("ride")).isFalse();
+        assertThat(store.get("ride")).isNull();
+        assertThat(store.isExpired("ride")).isFalse();
+    }
+
+    private RideRequestDto request(String requestId, long expiresAtSeconds) {
+        return RideRequestDto.builder()
+                .requestId(requestId)
+                .userId("7")
+                .pickupLatitude(12.97)
+                .pickupLongitude(77.59)
+                .dropoffLatitude(12.99)
+                .dropoffLongitude(77.61)
+                .estimatedPrice(150.5)
+                .createdAt(nowSeconds)
+                .expiresAt(expiresAtSeconds)
+                .build();
+    }
+
+    private static DriverLocationMessage driver(String driverId, double latitude, double longitude, Double distance) {
+        return DriverLocationMessage.builder()
+                .driverId(driverId)
+                .latitude(latitude)
+                .longitude(longitude)
+                .distance(distance)
+                .build();
+    }
+}
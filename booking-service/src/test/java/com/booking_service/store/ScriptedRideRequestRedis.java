@@ -0,0 +1,102 @@
+package com.booking_service.store;
+
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Redis stand-in for RedisRideRequestStore tests: the ride request scripts are replayed in Java against
+ * in-memory hashes. Every command runs under one monitor, like Redis running one command at a time,
+ * so concurrent callers see the scripts as atomic. Keys are not deleted at their expiry, only recorded
+ */
+final class ScriptedRideRequestRedis extends StringRedisTemplate {
+
+    private final Map<String, Map<String, String>> hashes = new HashMap<>();
+    private final Map<String, Long> expireAtMillis = new HashMap<>();
+
+    synchronized Long expireAtMillis(String key) {
+        return expireAtMillis.get(key);
+    }
+
+    synchronized String field(String key, String field) {
+        return hashes.getOrDefault(key, Map.of()).get(field);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public synchronized <T> T execute(RedisScript<T> script, List<String> keys, Object... args) {
+        String key = keys.get(0);
+        if (script == RedisRideRequestStore.PUT_SCRIPT) {
+            Map<String, String> hash = new HashMap<>();
+            for (int i = 1; i < args.length; i += 2) {
+                hash.put(args[i].toString(), args[i + 1].toString());
+            }
+            hashes.put(key, hash);
+            expireAtMillis.put(key, Long.parseLong(args[0].toString()));
+            return (T) Long.valueOf(1);
+        }
+        Map<String, String> hash = hashes.getOrDefault(key, new HashMap<>());
+        if (script == RedisRideRequestStore.SET_DRIVERS_SCRIPT) {
+            if (!isLive(hash, args[0])) {
+                return (T) Long.valueOf(0);
+            }
+            hash.put("drivers", args[1].toString());
+            return (T) Long.valueOf(1);
+        }
+        if (script == RedisRideRequestStore.ACCEPT_SCRIPT) {
+            if (!isLive(hash, args[0]) || hash.containsKey("acceptedBy")) {
+                return (T) Long.valueOf(0);
+            }
+            hash.put("acceptedBy", args[1].toString());
+            return (T) Long.valueOf(1);
+        }
+        if (script == RedisRideRequestStore.RELEASE_SCRIPT) {
+            return (T) Long.valueOf(hash.remove("acceptedBy", args[0].toString()) ? 1 : 0);
+        }
+        throw new UnsupportedOperationException("Script not supported by the stand-in");
+    }
+
+    @Override
+    public synchronized Boolean delete(String key) {
+        expireAtMillis.remove(key);
+        return hashes.remove(key) != null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public HashOperations<String, Object, Object> opsForHash() {
+        return (HashOperations<String, Object, Object>) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{HashOperations.class}, (proxy, method, methodArgs) -> {
+                    synchronized (this) {
+                        Map<String, String> hash = hashes.getOrDefault(methodArgs[0].toString(), Map.of());
+                        switch (method.getName()) {
+                            case "entries":
+                                return new HashMap<Object, Object>(hash);
+                            case "get":
+                                return hash.get(methodArgs[1].toString());
+                            case "multiGet":
+                                List<Object> values = new ArrayList<>();
+                                for (Object field : (Collection<Object>) methodArgs[1]) {
+                                    values.add(hash.get(field.toString()));
+                                }
+                                return values;
+                            default:
+                                throw new UnsupportedOperationException(method.getName() + " not supported by the stand-in");
+                        }
+                    }
+                });
+    }
+
+    // Same check as the scripts: expiresAt is in epoch seconds, now in epoch millis
+    private static boolean isLive(Map<String, String> hash, Object nowMillis) {
+        String expiresAt = hash.get("expiresAt");
+        return expiresAt != null && Long.parseLong(expiresAt) * 1000 > Long.parseLong(nowMillis.toString());
+    }
+}
@@ -0,0 +1,31 @@
+#!/bin/bash
+
+# Latency of POST /api/v1/booking/ride-request with the driver search published sync vs async
+# (booking.ride-request.publish-mode). Restarts booking-service in each mode, runs load-generator
+# against it and prints the ride.request totals of both runs.
+# Needs the docker-compose stack up and the images built (build-entity.sh)
+# Usage: ./compare-publish-modes.sh [duration-seconds] [requests-per-second]
+
+set -e
+
+DURATION=${1:-120}
+RATE=${2:-50}
+
+for MODE in sync async; do
+    echo "================================================"
+    echo "publish-mode=$MODE: restarting booking service..."
+    BOOKING_RIDE_REQUEST_PUBLISH_MODE=$MODE docker compose up -d --force-recreate --no-deps booking-service
+    until curl -sf http://localhost:8002/actuator/health > /dev/null; do
+        sleep 2
+    done
+
+    echo "publish-mode=$MODE: running load for $DURATION s at $RATE ride requests/s..."
+    (cd load-generator && ./gradlew bootRun --quiet --args="--load.duration-seconds=$DURATION --load.ride.requests-per-second=$RATE") \
+        > "publish-mode-$MODE.log" 2>&1
+done
+
+echo "================================================"
+for MODE in sync async; do
+    echo "publish-mode=$MODE: $(sed -n '/Totals over/,$p' "publish-mode-$MODE.log" | grep 'ride.request' | sed 's/.*ride.request/ride.request/')"
+done
+echo "Full output in publish-mode-sync.log and publish-mode-async.log"
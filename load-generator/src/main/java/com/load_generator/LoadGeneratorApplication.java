@@ -0,0 +1,18 @@
+package com.load_generator;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+/**
+ * Simulates a fleet of drivers and a stream of riders against a running stack (see docker-compose.yaml)
+ * and reports throughput and latency percentiles, then exits. Every setting in application.properties
+ * can be overridden on the command line, e.g. --load.drivers=100000
+ */
+@SpringBootApplication
+public class LoadGeneratorApplication {
+
+	public static void main(String[] args) {
+		System.exit(SpringApplication.exit(SpringApplication.run(LoadGeneratorApplication.class, args)));
+	}
+
+}
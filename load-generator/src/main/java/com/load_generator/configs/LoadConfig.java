@@ -0,0 +1,30 @@
+package com.load_generator.configs;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+@Configuration
+public class LoadConfig {
+
+    /**
+     * Ticks, arrivals and status polls; sends never block it, responses complete on the HTTP client's threads
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ScheduledExecutorService loadScheduler(@Value("${load.scheduler-threads:4}") int threads) {
+        return Executors.newScheduledThreadPool(threads);
+    }
+
+    @Bean
+    public HttpClient httpClient(@Value("${load.http.connect-timeout-ms:1000}") long connectTimeoutMs) {
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1) // Keep-alive connections, like a fleet of separate clients
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .build();
+    }
+}
@@ -0,0 +1,16 @@
+package com.load_generator.dto;
+
+import lombok.*;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CreateBookingRequestDto {
+    private String userId;
+    private double pickupLatitude;
+    private double pickupLongitude;
+    private double dropoffLatitude;
+    private double dropoffLongitude;
+}
@@ -0,0 +1,19 @@
+package com.load_generator.dto;
+
+import lombok.*;
+
+/**
+ * Body of location-service location updates, over HTTP and on the driver-location-updates topic
+ */
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class DriverLocationUpdateMessage {
+    private String driverId;
+    private double latitude;
+    private double longitude;
+    private String carType;
+    private Long reportedAt; // Epoch millis
+}
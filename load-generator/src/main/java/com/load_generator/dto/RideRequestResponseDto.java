@@ -0,0 +1,27 @@
+package com.load_generator.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * The part of booking-service's ride request response the load generator reads
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class RideRequestResponseDto {
+    private String requestId;
+    private String status; // "SEARCHING", "DRIVER_FOUND", "TIMEOUT", "NOT_FOUND"
+    private List<DriverInfo> nearbyDrivers; // Nearest first, as offered
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class DriverInfo {
+        private String driverId;
+    }
+}
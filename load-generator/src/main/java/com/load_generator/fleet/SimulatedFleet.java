@@ -0,0 +1,109 @@
+package com.load_generator.fleet;
+
+import com.load_generator.dto.DriverLocationUpdateMessage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Random;
+
+/**
+ * Drivers on random walks inside a square city: each keeps a heading that drifts a little on every move
+ * and bounces off the city edge. State is kept in primitive arrays so a fleet of hundreds of thousands stays cheap.
+ * Not thread safe, moved only from the location load tick
+ */
+@Component
+public class SimulatedFleet {
+
+    private static final double KM_PER_DEGREE_LATITUDE = 110.574;
+    private static final double KM_PER_DEGREE_LONGITUDE_AT_EQUATOR = 111.320;
+    private static final double HEADING_DRIFT_RADIANS = 0.5;
+    private static final String[] CAR_TYPES = {"SUV", "SEDAN", "HATCH_BACK"};
+
+    private final Random random = new Random(42);
+    private final long driverIdOffset;
+    private final double speedKmPerSecond;
+    private final double minLatitude;
+    private final double maxLatitude;
+    private final double minLongitude;
+    private final double maxLongitude;
+    private final String[] driverIds;
+    private final double[] latitude;
+    private final double[] longitude;
+    private final double[] heading;
+
+    public SimulatedFleet(@Value("${load.drivers:10000}") int drivers,
+                          @Value("${load.driver-id-offset:1000000}") long driverIdOffset,
+                          @Value("${load.driver-speed-kmh:30}") double speedKmh,
+                          @Value("${load.city.center-latitude}") double centerLatitude,
+                          @Value("${load.city.center-longitude}") double centerLongitude,
+                          @Value("${load.city.size-km:30}") double citySizeKm) {
+        if (drivers <= 0) {
+            throw new IllegalArgumentException("load.drivers must be positive, got " + drivers);
+        }
+        this.driverIdOffset = driverIdOffset;
+        this.speedKmPerSecond = speedKmh / 3600;
+        double latitudeHalfSpan = citySizeKm / 2 / KM_PER_DEGREE_LATITUDE;
+        double longitudeHalfSpan = citySizeKm / 2 / kmPerDegreeLongitude(centerLatitude);
+        this.minLatitude = centerLatitude - latitudeHalfSpan;
+        this.maxLatitude = centerLatitude + latitudeHalfSpan;
+        this.minLongitude = centerLongitude - longitudeHalfSpan;
+        this.maxLongitude = centerLongitude + longitudeHalfSpan;
+
+        driverIds = new String[drivers];
+        latitude = new double[drivers];
+        longitude = new double[drivers];
+        heading = new double[drivers];
+        for (int i = 0; i < drivers; i++) {
+            driverIds[i] = Long.toString(driverIdOffset + i);
+            latitude[i] = randomLatitude(random);
+            longitude[i] = randomLongitude(random);
+            heading[i] = random.nextDouble() * 2 * Math.PI;
+        }
+    }
+
+    public int size() {
+        return driverIds.length;
+    }
+
+    /**
+     * Advance a driver by elapsedSeconds of driving and return its new position report
+     */
+    public DriverLocationUpdateMessage move(int driver, double elapsedSeconds, long reportedAtMillis) {
+        heading[driver] += (random.nextDouble() - 0.5) * 2 * HEADING_DRIFT_RADIANS;
+        double distanceKm = speedKmPerSecond * elapsedSeconds;
+        double lat = latitude[driver] + distanceKm * Math.cos(heading[driver]) / KM_PER_DEGREE_LATITUDE;
+        double lon = longitude[driver] + distanceKm * Math.sin(heading[driver]) / kmPerDegreeLongitude(latitude[driver]);
+        if (lat < minLatitude || lat > maxLatitude) {
+            heading[driver] = Math.PI - heading[driver];
+            lat = Math.max(minLatitude, Math.min(maxLatitude, lat));
+        }
+        if (lon < minLongitude || lon > maxLongitude) {
+            heading[driver] = -heading[driver];
+            lon = Math.max(minLongitude, Math.min(maxLongitude, lon));
+        }
+        latitude[driver] = lat;
+        longitude[driver] = lon;
+        return DriverLocationUpdateMessage.builder()
+                .driverId(driverIds[driver])
+                .latitude(lat)
+                .longitude(lon)
+                .carType(CAR_TYPES[(int) ((driverIdOffset + driver) % CAR_TYPES.length)])
+                .reportedAt(reportedAtMillis)
+                .build();
+    }
+
+    /**
+     * A uniformly random point of the city, for pickups and drop-offs
+     */
+    public double randomLatitude(Random random) {
+        return minLatitude + random.nextDouble() * (maxLatitude - minLatitude);
+    }
+
+    public double randomLongitude(Random random) {
+        return minLongitude + random.nextDouble() * (maxLongitude - minLongitude);
+    }
+
+    private static double kmPerDegreeLongitude(double latitude) {
+        return KM_PER_DEGREE_LONGITUDE_AT_EQUATOR * Math.cos(Math.toRadians(latitude));
+    }
+}
@@ -0,0 +1,88 @@
+package com.load_generator.load;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies (HdrHistogram, microsecond resolution) and outcome counts of one kind of operation.
+ * Latency is measured from when the operation was due, not when it was actually sent, so a stalled
+ * generator or a saturated target shows up in the percentiles instead of being hidden (coordinated omission).
+ * Recording is thread safe; reports are taken by one thread
+ */
+public class LatencyRecorder {
+
+    private static final double MICROS_PER_MILLI = 1000.0;
+
+    private final String name;
+    private final Recorder recorder = new Recorder(3);
+    private final Histogram total = new Histogram(3);
+    private final LongAdder succeeded = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private Histogram interval;
+    private long reportedSucceeded;
+    private long reportedFailed;
+    private long reportedDropped;
+
+    public LatencyRecorder(String name) {
+        this.name = name;
+    }
+
+    /**
+     * count operations that were due at dueNanos (System.nanoTime) all completed now
+     */
+    public void recordSuccess(long dueNanos, int count) {
+        recorder.recordValue(Math.max(0, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - dueNanos)));
+        succeeded.add(count);
+    }
+
+    public void recordFailure(int count) {
+        failed.add(count);
+    }
+
+    /**
+     * Operations not even attempted because the in-flight limit was reached
+     */
+    public void recordDropped(int count) {
+        dropped.add(count);
+    }
+
+    /**
+     * One line for the operations completed since the previous call
+     */
+    public synchronized String intervalReport(double elapsedSeconds) {
+        interval = recorder.getIntervalHistogram(interval);
+        total.add(interval);
+        long nowSucceeded = succeeded.sum();
+        long nowFailed = failed.sum();
+        long nowDropped = dropped.sum();
+        String line = format(interval, nowSucceeded - reportedSucceeded, nowFailed - reportedFailed,
+                nowDropped - reportedDropped, elapsedSeconds);
+        reportedSucceeded = nowSucceeded;
+        reportedFailed = nowFailed;
+        reportedDropped = nowDropped;
+        return line;
+    }
+
+    /**
+     * One line for the whole run; takes the last interval in first
+     */
+    public synchronized String totalReport(double elapsedSeconds) {
+        intervalReport(elapsedSeconds);
+        return format(total, reportedSucceeded, reportedFailed, reportedDropped, elapsedSeconds);
+    }
+
+    private String format(Histogram histogram, long ok, long failures, long drops, double elapsedSeconds) {
+        return String.format("%-16s %9.1f/s ok %8d failed %8d dropped | ms p50 %8.1f p90 %8.1f p99 %8.1f p99.9 %8.1f max %8.1f",
+                name, ok / Math.max(elapsedSeconds, 1e-9), failures, drops,
+                millis(histogram, 50), millis(histogram, 90), millis(histogram, 99), millis(histogram, 99.9),
+                histogram.getMaxValue() / MICROS_PER_MILLI);
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / MICROS_PER_MILLI;
+    }
+}
@@ -0,0 +1,65 @@
+package com.load_generator.load;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs both loads for load.duration-seconds, printing a report line per operation every
+ * load.report-interval-seconds, then waits for outstanding ride requests and prints the totals
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LoadRunner implements CommandLineRunner {
+
+    private final LocationLoad locationLoad;
+    private final RideRequestLoad rideRequestLoad;
+    private final ScheduledExecutorService loadScheduler;
+
+    @Value("${load.duration-seconds:300}")
+    private long durationSeconds; // Not final - injected via @Value
+
+    @Value("${load.report-interval-seconds:10}")
+    private long reportIntervalSeconds;
+
+    @Override
+    public void run(String... args) throws InterruptedException {
+        List<LatencyRecorder> recorders = new ArrayList<>(List.of(locationLoad.getUpdates(), rideRequestLoad.getRequests(),
+                rideRequestLoad.getCandidates()));
+        if (rideRequestLoad.isAcceptingRides()) {
+            recorders.add(rideRequestLoad.getMatched());
+        }
+        log.info("Starting load for {} s: {} location updates/s", durationSeconds, String.format("%.0f", locationLoad.updatesPerSecond()));
+
+        locationLoad.start(loadScheduler);
+        rideRequestLoad.start(loadScheduler);
+        ScheduledFuture<?> reporter = loadScheduler.scheduleAtFixedRate(() -> {
+            for (LatencyRecorder recorder : recorders) {
+                log.info(recorder.intervalReport(reportIntervalSeconds));
+            }
+        }, reportIntervalSeconds, reportIntervalSeconds, TimeUnit.SECONDS);
+
+        TimeUnit.SECONDS.sleep(durationSeconds);
+        locationLoad.stop();
+        rideRequestLoad.stop();
+        // Ride requests made near the end still get their chance to find candidates and be confirmed
+        TimeUnit.NANOSECONDS.sleep(rideRequestLoad.drainNanos());
+        reporter.cancel(false);
+        rideRequestLoad.close();
+
+        // Rates are over the load duration, latencies include the requests that finished during the wait
+        log.info("Totals over {} s:", durationSeconds);
+        for (LatencyRecorder recorder : recorders) {
+            log.info(recorder.totalReport(durationSeconds));
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.load_generator.load;
+
+import com.load_generator.dto.DriverLocationUpdateMessage;
+import com.load_generator.fleet.SimulatedFleet;
+import com.load_generator.sink.LocationSink;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Every driver reports once per report interval. The fleet is split into one slice per tick, and each tick
+ * moves its slice and sends it in batches, so the update rate is drivers / interval and evenly spread.
+ * Open loop: batches are sent on schedule whether or not earlier ones were answered, up to max-in-flight
+ */
+@Component
+@Slf4j
+public class LocationLoad {
+
+    private final SimulatedFleet fleet;
+    private final LocationSink sink;
+    private final LatencyRecorder updates = new LatencyRecorder("location.update");
+    private final long reportIntervalMs;
+    private final long tickMs;
+    private final int batchSize;
+    private final Semaphore inFlight;
+    private final int ticksPerInterval;
+    private long startNanos;
+    private long tick;
+    private ScheduledFuture<?> ticker;
+
+    public LocationLoad(SimulatedFleet fleet, LocationSink sink,
+                        @Value("${load.location.report-interval-ms:4000}") long reportIntervalMs,
+                        @Value("${load.location.tick-ms:100}") long tickMs,
+                        @Value("${load.location.batch-size:500}") int batchSize,
+                        @Value("${load.location.max-in-flight:64}") int maxInFlight) {
+        this.fleet = fleet;
+        this.sink = sink;
+        this.reportIntervalMs = reportIntervalMs;
+        this.tickMs = tickMs;
+        this.batchSize = Math.max(1, batchSize);
+        this.inFlight = new Semaphore(maxInFlight);
+        this.ticksPerInterval = (int) Math.max(1, reportIntervalMs / tickMs);
+    }
+
+    public LatencyRecorder getUpdates() {
+        return updates;
+    }
+
+    public double updatesPerSecond() {
+        return fleet.size() * 1000.0 / reportIntervalMs;
+    }
+
+    public void start(ScheduledExecutorService scheduler) {
+        startNanos = System.nanoTime();
+        ticker = scheduler.scheduleAtFixedRate(this::tick, 0, tickMs, TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        if (ticker != null) {
+            ticker.cancel(false);
+        }
+    }
+
+    private void tick() {
+        try {
+            // The time this tick was due: a late tick counts its delay against every batch it sends
+            long dueNanos = startNanos + tick * TimeUnit.MILLISECONDS.toNanos(tickMs);
+            int slice = (int) (tick % ticksPerInterval);
+            tick++;
+            int from = (int) ((long) fleet.size() * slice / ticksPerInterval);
+            int to = (int) ((long) fleet.size() * (slice + 1) / ticksPerInterval);
+            long reportedAt = System.currentTimeMillis();
+            for (int start = from; start < to; start += batchSize) {
+                int end = Math.min(to, start + batchSize);
+                List<DriverLocationUpdateMessage> batch = new ArrayList<>(end - start);
+                for (int driver = start; driver < end; driver++) {
+                    batch.add(fleet.move(driver, reportIntervalMs / 1000.0, reportedAt));
+                }
+                send(batch, dueNanos);
+            }
+        } catch (RuntimeException e) {
+            // An exception would silently cancel the periodic task
+            log.error("Location load tick failed", e);
+        }
+    }
+
+    private void send(List<DriverLocationUpdateMessage> batch, long dueNanos) {
+        if (!inFlight.tryAcquire()) {
+            updates.recordDropped(batch.size());
+            return;
+        }
+        CompletableFuture<Void> sent;
+        try {
+            sent = sink.send(batch);
+        } catch (RuntimeException e) {
+            inFlight.release();
+            updates.recordFailure(batch.size());
+            log.debug("Location batch failed", e);
+            return;
+        }
+        sent.whenComplete((ignored, e) -> {
+            inFlight.release();
+            if (e == null) {
+                updates.recordSuccess(dueNanos, batch.size());
+            } else {
+                updates.recordFailure(batch.size());
+                log.debug("Location batch failed", e);
+            }
+        });
+    }
+}
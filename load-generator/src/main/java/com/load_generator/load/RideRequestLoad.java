@@ -0,0 +1,314 @@
+package com.load_generator.load;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.load_generator.dto.CreateBookingRequestDto;
+import com.load_generator.dto.RideRequestResponseDto;
+import com.load_generator.fleet.SimulatedFleet;
+import com.load_generator.socket.SocketServiceClient;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Riders arrive as a Poisson process at booking-service POST /api/v1/booking/ride-request. Each accepted
+ * request is then polled at GET /ride-request/{requestId} until candidate drivers are found
+ * (time-to-candidates), the request times out, or candidate-timeout-seconds pass.
+ * With load.ride.accept on, the nearest offered driver then accepts through socket-service like the driver
+ * app does, and the rider's status topic is watched until BOOKING_CONFIRMED (time-to-match, from arrival).
+ * Booking-service only confirms drivers it has stored, so the fleet ids have to be registered drivers
+ */
+@Component
+@Slf4j
+public class RideRequestLoad {
+
+    private static final String DRIVER_FOUND = "DRIVER_FOUND";
+    private static final String SEARCHING = "SEARCHING";
+    private static final String BOOKING_CONFIRMED = "BOOKING_CONFIRMED";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Random random = new Random(7);
+    private final LatencyRecorder requests = new LatencyRecorder("ride.request");
+    private final LatencyRecorder candidates = new LatencyRecorder("ride.candidates");
+    private final LatencyRecorder matched = new LatencyRecorder("ride.matched");
+    private final AtomicLong riders = new AtomicLong();
+    private final SimulatedFleet fleet;
+    private final HttpClient httpClient;
+    private final SocketServiceClient socketClient;
+    private final String rideRequestUrl;
+    private final double requestsPerSecond;
+    private final long pollIntervalMs;
+    private final long candidateTimeoutNanos;
+    private final boolean acceptRides;
+    private final long acceptDelayMs;
+    private final long matchTimeoutNanos;
+    private final Duration requestTimeout;
+    private final Semaphore inFlight;
+    private ScheduledExecutorService scheduler;
+    private volatile boolean running;
+    private long nextArrivalNanos;
+
+    public RideRequestLoad(SimulatedFleet fleet, HttpClient httpClient, SocketServiceClient socketClient,
+                           @Value("${load.ride.booking-url}") String bookingServiceUrl,
+                           @Value("${load.ride.requests-per-second:5}") double requestsPerSecond,
+                           @Value("${load.ride.poll-interval-ms:250}") long pollIntervalMs,
+                           @Value("${load.ride.candidate-timeout-seconds:30}") long candidateTimeoutSeconds,
+                           @Value("${load.ride.accept:true}") boolean acceptRides,
+                           @Value("${load.ride.accept-delay-ms:1000}") long acceptDelayMs,
+                           @Value("${load.ride.match-timeout-seconds:60}") long matchTimeoutSeconds,
+                           @Value("${load.ride.max-in-flight:1024}") int maxInFlight,
+                           @Value("${load.http.request-timeout-ms:5000}") long requestTimeoutMs) {
+        this.fleet = fleet;
+        this.httpClient = httpClient;
+        this.socketClient = socketClient;
+        this.rideRequestUrl = bookingServiceUrl + "/api/v1/booking/ride-request";
+        this.requestsPerSecond = requestsPerSecond;
+        this.pollIntervalMs = pollIntervalMs;
+        this.candidateTimeoutNanos = TimeUnit.SECONDS.toNanos(candidateTimeoutSeconds);
+        this.acceptRides = acceptRides;
+        this.acceptDelayMs = acceptDelayMs;
+        this.matchTimeoutNanos = TimeUnit.SECONDS.toNanos(matchTimeoutSeconds);
+        this.requestTimeout = Duration.ofMillis(requestTimeoutMs);
+        this.inFlight = new Semaphore(maxInFlight);
+    }
+
+    public LatencyRecorder getRequests() {
+        return requests;
+    }
+
+    public LatencyRecorder getCandidates() {
+        return candidates;
+    }
+
+    public LatencyRecorder getMatched() {
+        return matched;
+    }
+
+    public boolean isAcceptingRides() {
+        return acceptRides;
+    }
+
+    /**
+     * How long requests made before stop() can still take to finish
+     */
+    public long drainNanos() {
+        return acceptRides ? Math.max(candidateTimeoutNanos, matchTimeoutNanos) : candidateTimeoutNanos;
+    }
+
+    public void start(ScheduledExecutorService scheduler) {
+        if (requestsPerSecond <= 0) {
+            return;
+        }
+        if (acceptRides) {
+            socketClient.connect();
+        }
+        this.scheduler = scheduler;
+        running = true;
+        nextArrivalNanos = System.nanoTime();
+        scheduleNextArrival();
+    }
+
+    /**
+     * No new riders arrive; requests already made keep being polled until they finish
+     */
+    public void stop() {
+        running = false;
+    }
+
+    public void close() {
+        if (acceptRides) {
+            socketClient.disconnect();
+        }
+    }
+
+    // Only ever called from the arrival task, which never runs concurrently with itself
+    private void scheduleNextArrival() {
+        nextArrivalNanos += (long) (-Math.log(1 - random.nextDouble()) / requestsPerSecond * 1e9);
+        long dueNanos = nextArrivalNanos;
+        scheduler.schedule(() -> arrive(dueNanos), dueNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    private void arrive(long dueNanos) {
+        if (!running) {
+            return;
+        }
+        try {
+            CreateBookingRequestDto body = CreateBookingRequestDto.builder()
+                    .userId("load-" + riders.incrementAndGet())
+                    .pickupLatitude(fleet.randomLatitude(random))
+                    .pickupLongitude(fleet.randomLongitude(random))
+                    .dropoffLatitude(fleet.randomLatitude(random))
+                    .dropoffLongitude(fleet.randomLongitude(random))
+                    .build();
+            scheduleNextArrival();
+            request(body, dueNanos);
+        } catch (RuntimeException e) {
+            log.error("Ride request arrival failed", e);
+        }
+    }
+
+    private void request(CreateBookingRequestDto body, long dueNanos) {
+        if (!inFlight.tryAcquire()) {
+            requests.recordDropped(1);
+            return;
+        }
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(URI.create(rideRequestUrl))
+                    .timeout(requestTimeout)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body)))
+                    .build();
+        } catch (JsonProcessingException e) {
+            inFlight.release();
+            requests.recordFailure(1);
+            return;
+        }
+        call(request).whenComplete((response, e) -> {
+            if (e != null || response.getRequestId() == null) {
+                inFlight.release();
+                requests.recordFailure(1);
+                log.debug("Ride request failed", e);
+                return;
+            }
+            requests.recordSuccess(dueNanos, 1);
+            Ride ride = new Ride(response.getRequestId(), dueNanos);
+            if (acceptRides) {
+                // Subscribed before any driver is offered the ride, so the confirmation cannot be missed
+                try {
+                    ride.subscription = socketClient.subscribeRideStatus(ride.requestId, message -> onRideStatus(ride, message));
+                } catch (RuntimeException subscribeFailure) {
+                    log.debug("Could not subscribe to ride request {}", ride.requestId, subscribeFailure);
+                    finish(ride, false);
+                    return;
+                }
+            }
+            schedulePoll(ride);
+        });
+    }
+
+    private void schedulePoll(Ride ride) {
+        scheduler.schedule(() -> poll(ride), pollIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void poll(Ride ride) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(rideRequestUrl + "/" + ride.requestId))
+                .timeout(requestTimeout)
+                .GET()
+                .build();
+        call(request).whenComplete((response, e) -> {
+            String status = e == null ? response.getStatus() : null;
+            if (DRIVER_FOUND.equals(status)) {
+                candidates.recordSuccess(ride.dueNanos, 1);
+                if (acceptRides) {
+                    scheduleAcceptance(ride, response.getNearbyDrivers());
+                } else {
+                    finish(ride, false);
+                }
+            } else if ((e == null && !SEARCHING.equals(status)) || System.nanoTime() - ride.dueNanos > candidateTimeoutNanos) {
+                // TIMEOUT / NOT_FOUND from booking-service, or we gave up waiting
+                candidates.recordFailure(1);
+                finish(ride, false);
+                log.debug("Ride request {} ended without candidates, status={}", ride.requestId, status);
+            } else {
+                schedulePoll(ride); // Still searching, or a failed poll worth retrying
+            }
+        });
+    }
+
+    // The nearest driver is offered the ride first, in the cascade's first wave as in a batch
+    private void scheduleAcceptance(Ride ride, List<RideRequestResponseDto.DriverInfo> nearbyDrivers) {
+        if (nearbyDrivers == null || nearbyDrivers.isEmpty() || nearbyDrivers.get(0).getDriverId() == null) {
+            finish(ride, false);
+            return;
+        }
+        String driverId = nearbyDrivers.get(0).getDriverId();
+        scheduler.schedule(() -> {
+            try {
+                socketClient.accept(ride.requestId, driverId);
+            } catch (JsonProcessingException | RuntimeException e) {
+                log.debug("Driver {} could not accept ride request {}", driverId, ride.requestId, e);
+                finish(ride, false);
+            }
+        }, acceptDelayMs, TimeUnit.MILLISECONDS);
+        long remainingNanos = ride.dueNanos + matchTimeoutNanos - System.nanoTime();
+        scheduler.schedule(() -> {
+            if (finish(ride, false)) {
+                log.debug("Ride request {} was not confirmed in time", ride.requestId);
+            }
+        }, Math.max(remainingNanos, 0), TimeUnit.NANOSECONDS);
+    }
+
+    // Runs on the STOMP client's thread
+    private void onRideStatus(Ride ride, Map<String, Object> message) {
+        if (BOOKING_CONFIRMED.equals(message.get("type"))) {
+            finish(ride, true);
+        }
+    }
+
+    /**
+     * Ends the ride once, whichever of confirmation, failure or timeout comes first; false if it had already ended
+     */
+    private boolean finish(Ride ride, boolean confirmed) {
+        if (!ride.finished.compareAndSet(false, true)) {
+            return false;
+        }
+        inFlight.release();
+        if (ride.subscription != null) {
+            try {
+                socketClient.unsubscribe(ride.subscription);
+            } catch (RuntimeException e) {
+                log.debug("Could not unsubscribe from ride request {}", ride.requestId, e);
+            }
+        }
+        if (confirmed) {
+            matched.recordSuccess(ride.dueNanos, 1);
+        } else if (acceptRides) {
+            matched.recordFailure(1);
+        }
+        return true;
+    }
+
+    private CompletableFuture<RideRequestResponseDto> call(HttpRequest request) {
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .thenApply(response -> {
+                    if (response.statusCode() / 100 != 2) {
+                        throw new IllegalStateException("Booking service answered with status " + response.statusCode());
+                    }
+                    try {
+                        return objectMapper.readValue(response.body(), RideRequestResponseDto.class);
+                    } catch (IOException e) {
+                        throw new IllegalStateException("Unreadable ride request response", e);
+                    }
+                });
+    }
+
+    private static final class Ride {
+        private final String requestId;
+        private final long dueNanos;
+        private final AtomicBoolean finished = new AtomicBoolean();
+        private volatile StompSession.Subscription subscription;
+
+        private Ride(String requestId, long dueNanos) {
+            this.requestId = requestId;
+            this.dueNanos = dueNanos;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.load_generator.sink;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.load_generator.dto.DriverLocationUpdateMessage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * POSTs each batch to location-service /api/v1/location/update/batch
+ */
+@Component
+@ConditionalOnProperty(name = "load.location.transport", havingValue = "http", matchIfMissing = true)
+public class HttpLocationSink implements LocationSink {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient httpClient;
+    private final URI batchUri;
+    private final Duration requestTimeout;
+
+    public HttpLocationSink(HttpClient httpClient,
+                            @Value("${load.location.url}") String locationServiceUrl,
+                            @Value("${load.http.request-timeout-ms:5000}") long requestTimeoutMs) {
+        this.httpClient = httpClient;
+        this.batchUri = URI.create(locationServiceUrl + "/api/v1/location/update/batch");
+        this.requestTimeout = Duration.ofMillis(requestTimeoutMs);
+    }
+
+    @Override
+    public CompletableFuture<Void> send(List<DriverLocationUpdateMessage> batch) {
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(batchUri)
+                    .timeout(requestTimeout)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(batch)))
+                    .build();
+        } catch (JsonProcessingException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .thenCompose(response -> response.statusCode() / 100 == 2
+                        ? CompletableFuture.<Void>completedFuture(null)
+                        : CompletableFuture.<Void>failedFuture(new IOException("Location update rejected with status " + response.statusCode())));
+    }
+}
@@ -0,0 +1,37 @@
+package com.load_generator.sink;
+
+import com.load_generator.dto.DriverLocationUpdateMessage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Publishes each update to driver-location-updates keyed by driver id, as a driver app gateway would
+ */
+@Component
+@ConditionalOnProperty(name = "load.location.transport", havingValue = "kafka")
+public class KafkaLocationSink implements LocationSink {
+
+    private final KafkaTemplate<String, DriverLocationUpdateMessage> kafkaTemplate;
+    private final String topic;
+
+    public KafkaLocationSink(KafkaTemplate<String, DriverLocationUpdateMessage> driverLocationKafkaTemplate,
+                             @Value("${kafka.topic.driver-location-updates}") String topic) {
+        this.kafkaTemplate = driverLocationKafkaTemplate;
+        this.topic = topic;
+    }
+
+    @Override
+    public CompletableFuture<Void> send(List<DriverLocationUpdateMessage> batch) {
+        CompletableFuture<?>[] sends = new CompletableFuture<?>[batch.size()];
+        for (int i = 0; i < sends.length; i++) {
+            DriverLocationUpdateMessage message = batch.get(i);
+            sends[i] = kafkaTemplate.send(topic, message.getDriverId(), message);
+        }
+        return CompletableFuture.allOf(sends);
+    }
+}
@@ -0,0 +1,17 @@
+package com.load_generator.sink;
+
+import com.load_generator.dto.DriverLocationUpdateMessage;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Where simulated location updates go, picked by load.location.transport
+ */
+public interface LocationSink {
+
+    /**
+     * Completes when the whole batch was accepted, exceptionally otherwise
+     */
+    CompletableFuture<Void> send(List<DriverLocationUpdateMessage> batch);
+}
@@ -0,0 +1,106 @@
+package com.load_generator.socket;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * One STOMP session to socket-service, shared by all simulated riders and drivers: riders subscribe to their
+ * ride status topic, drivers answer offers on /app/driver/ride-response like the driver app does.
+ * Payloads are sent and received as JSON bytes. Sends are serialized, the WebSocket session is not thread safe
+ */
+@Component
+@Slf4j
+public class SocketServiceClient {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final WebSocketStompClient stompClient = new WebSocketStompClient(new StandardWebSocketClient());
+    private final String socketUrl;
+    private final long connectTimeoutMs;
+    private volatile StompSession session;
+
+    public SocketServiceClient(@Value("${load.ride.socket-url}") String socketUrl,
+                               @Value("${load.http.connect-timeout-ms:1000}") long connectTimeoutMs) {
+        this.socketUrl = socketUrl;
+        this.connectTimeoutMs = connectTimeoutMs;
+    }
+
+    public void connect() {
+        try {
+            session = stompClient.connectAsync(socketUrl, new StompSessionHandlerAdapter() {
+                @Override
+                public void handleTransportError(StompSession failed, Throwable e) {
+                    log.error("Connection to socket service lost, ride statuses will no longer arrive", e);
+                }
+            }).get(connectTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not connect to socket service at " + socketUrl, e);
+        }
+    }
+
+    /**
+     * Messages sent to the rider of requestId, decoded from JSON (a plain string arrives as "content")
+     */
+    public synchronized StompSession.Subscription subscribeRideStatus(String requestId, Consumer<Map<String, Object>> handler) {
+        return session.subscribe("/topic/user/" + requestId + "/ride-status", new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return byte[].class;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders headers, Object payload) {
+                handler.accept(decode((byte[]) payload));
+            }
+        });
+    }
+
+    public synchronized void unsubscribe(StompSession.Subscription subscription) {
+        subscription.unsubscribe();
+    }
+
+    /**
+     * Accept an offered ride as driverId
+     */
+    public synchronized void accept(String requestId, String driverId) throws JsonProcessingException {
+        StompHeaders headers = new StompHeaders();
+        headers.setDestination("/app/driver/ride-response");
+        headers.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        session.send(headers, objectMapper.writeValueAsBytes(Map.of(
+                "requestId", requestId,
+                "driverId", driverId,
+                "action", "ACCEPT")));
+    }
+
+    public void disconnect() {
+        StompSession connected = session;
+        if (connected != null && connected.isConnected()) {
+            connected.disconnect();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> decode(byte[] payload) {
+        try {
+            Object message = objectMapper.readValue(payload, Object.class);
+            return message instanceof Map ? (Map<String, Object>) message : Map.of("content", String.valueOf(message));
+        } catch (IOException e) {
+            return Map.of("content", new String(payload));
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package com.uber.location_service.location_service.configs;
+
+import com.uber.location_service.location_service.geo.GeoMath;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Stand-in for Redis behind RedisGeo, so the search and update paths can be benchmarked offline.
+ * The state, placement and search scripts and the state hash reads are replayed in Java over the same keys,
+ * also when RedisGeo pipelines them; geo sets are ordered by a 52-bit interleaved score and searched through the 3x3 cells
+ * around the point, the way GEOSEARCH does, so cost grows with the drivers near the point rather than
+ * with the region. Single threaded, and only the commands the benchmarks call are supported
+ */
+final class InMemoryGeoRedis extends StringRedisTemplate {
+
+    private static final int STEP_BITS = 26; // Per axis, as in Redis geo scores
+
+    private final Map<String, Map<String, String>> hashes = new HashMap<>();
+    private final Map<String, Map<String, Long>> lastSeen = new HashMap<>();
+    private final Map<String, GeoSet> geoSets = new HashMap<>();
+    private final Set<String> regions = new HashSet<>();
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T execute(RedisScript<T> script, List<String> keys, Object... args) {
+        if (script == RedisGeo.SET_STATE_SCRIPT) {
+            return (T) setState(keys, args);
+        }
+        if (script == RedisGeo.PLACE_SCRIPT) {
+            return (T) place(keys, args);
+        }
+        if (script == RedisGeo.REMOVE_SCRIPT) {
+            return (T) remove(keys, args);
+        }
+        if (script == RedisGeo.SEARCH_NEARBY_SCRIPT) {
+            return (T) searchNearby(keys, args);
+        }
+        throw new UnsupportedOperationException("Script not supported by the in-memory stand-in");
+    }
+
+    /**
+     * Runs the callback against a connection that only understands EVALSHA of the scripts above and HMGET,
+     * and returns their replies in call order
+     */
+    @Override
+    public List<Object> executePipelined(RedisCallback<?> action) {
+        Map<String, RedisScript<?>> bySha = new HashMap<>();
+        for (RedisScript<?> script : List.of(RedisGeo.SET_STATE_SCRIPT, RedisGeo.PLACE_SCRIPT, RedisGeo.REMOVE_SCRIPT,
+                RedisGeo.SEARCH_NEARBY_SCRIPT)) {
+            bySha.put(script.getSha1(), script);
+        }
+        List<Object> replies = new ArrayList<>();
+        StringRedisConnection connection = (StringRedisConnection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{StringRedisConnection.class}, (proxy, method, methodArgs) -> {
+                    if (method.getName().equals("hMGet")) {
+                        replies.add(hashFields(methodArgs[0].toString(), Arrays.asList((Object[]) methodArgs[1])));
+                        return null;
+                    }
+                    if (!method.getName().equals("evalSha") || !(methodArgs[0] instanceof String sha)) {
+                        throw new UnsupportedOperationException(method.getName() + " not supported by the in-memory stand-in");
+                    }
+                    int numKeys = (Integer) methodArgs[2];
+                    String[] keysAndArgs = (String[]) methodArgs[3];
+                    List<String> keys = Arrays.asList(keysAndArgs).subList(0, numKeys);
+                    Object[] args = Arrays.copyOfRange(keysAndArgs, numKeys, keysAndArgs.length);
+                    replies.add(execute(bySha.get(sha), keys, args));
+                    return null;
+                });
+        action.doInRedis(connection);
+        return replies;
+    }
+
+    // State hash reads (HMGET) only
+    @Override
+    @SuppressWarnings("unchecked")
+    public HashOperations<String, Object, Object> opsForHash() {
+        return (HashOperations<String, Object, Object>) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{HashOperations.class}, (proxy, method, methodArgs) -> {
+                    if (!method.getName().equals("multiGet")) {
+                        throw new UnsupportedOperationException(method.getName() + " not supported by the in-memory stand-in");
+                    }
+                    return hashFields(methodArgs[0].toString(), new ArrayList<>((Collection<Object>) methodArgs[1]));
+                });
+    }
+
+    private List<Object> hashFields(String key, List<Object> fields) {
+        Map<String, String> hash = hashes.getOrDefault(key, Map.of());
+        List<Object> values = new ArrayList<>(fields.size());
+        for (Object field : fields) {
+            values.add(hash.get(field.toString()));
+        }
+        return values;
+    }
+
+    // Region registry (SADD) only
+    @Override
+    @SuppressWarnings("unchecked")
+    public SetOperations<String, String> opsForSet() {
+        return (SetOperations<String, String>) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{SetOperations.class}, (proxy, method, methodArgs) -> {
+                    if (!method.getName().equals("add")) {
+                        throw new UnsupportedOperationException(method.getName() + " not supported by the in-memory stand-in");
+                    }
+                    long added = 0;
+                    for (Object member : (Object[]) methodArgs[1]) {
+                        added += regions.add(member.toString()) ? 1 : 0;
+                    }
+                    return added;
+                });
+    }
+
+    // set-driver-state.lua
+    private List<Object> setState(List<String> keys, Object[] args) {
+        Map<String, String> state = hashes.computeIfAbsent(keys.get(0), key -> new HashMap<>());
+        String carType = args[4].toString();
+        if (carType.isEmpty()) {
+            carType = state.getOrDefault("carType", args[5].toString());
+        } else {
+            state.put("carType", carType);
+        }
+        String partition = ("1".equals(state.get("busy")) ? "busy" : "available") + ":" + carType;
+        state.put("lon", args[0].toString());
+        state.put("lat", args[1].toString());
+        state.put("seenAt", args[2].toString());
+        state.put("cell", args[3].toString());
+        state.put("partition", partition);
+        return List.of(args[3].toString(), args[7].toString(), partition);
+    }
+
+    // place-driver.lua
+    private Long place(List<String> keys, Object[] args) {
+        String driverId = args[0].toString();
+        if (keys.size() > 2) {
+            GeoSet left = geoSets.get(keys.get(2));
+            if (left != null) {
+                left.remove(driverId);
+            }
+        }
+        if (keys.size() > 3) {
+            Map<String, Long> leftSeen = lastSeen.get(keys.get(3));
+            if (leftSeen != null) {
+                leftSeen.remove(driverId);
+            }
+        }
+        geoSets.computeIfAbsent(keys.get(0), key -> new GeoSet())
+                .add(driverId, Double.parseDouble(args[2].toString()), Double.parseDouble(args[1].toString()));
+        lastSeen.computeIfAbsent(keys.get(1), key -> new HashMap<>()).put(driverId, Long.parseLong(args[3].toString()));
+        return 1L;
+    }
+
+    // remove-driver.lua
+    private Long remove(List<String> keys, Object[] args) {
+        String driverId = args[0].toString();
+        Map<String, Long> seen = lastSeen.get(keys.get(0));
+        if (seen != null) {
+            seen.remove(driverId);
+        }
+        long removed = 0;
+        for (String key : keys.subList(1, keys.size())) {
+            GeoSet geoSet = geoSets.get(key);
+            removed += geoSet != null && geoSet.remove(driverId) ? 1 : 0;
+        }
+        return removed;
+    }
+
+    // search-nearby-drivers.lua: stale members met within COUNT are removed and the partition searched again
+    private List<Object> searchNearby(List<String> keys, Object[] args) {
+        double longitude = Double.parseDouble(args[0].toString());
+        double latitude = Double.parseDouble(args[1].toString());
+        double radiusKm = Double.parseDouble(args[2].toString());
+        int limit = Integer.parseInt(args[3].toString());
+        long minLastSeen = Long.parseLong(args[4].toString());
+        Map<String, Long> seen = lastSeen.getOrDefault(keys.get(keys.size() - 1), Map.of());
+        List<Object> result = new ArrayList<>();
+        for (int i = 0; i < keys.size() - 1; i++) {
+            GeoSet geoSet = geoSets.get(keys.get(i));
+            if (geoSet == null) {
+                continue;
+            }
+            List<Hit> fresh = new ArrayList<>();
+            for (int count = limit; ; count *= 4) {
+                List<Hit> hits = geoSet.search(latitude, longitude, radiusKm, count);
+                fresh.clear();
+                int purged = 0;
+                for (Hit hit : hits) {
+                    Long seenAt = seen.get(hit.member().id());
+                    if (seenAt != null && seenAt >= minLastSeen) {
+                        if (fresh.size() < limit) {
+                            fresh.add(hit);
+                        }
+                    } else {
+                        geoSet.remove(hit.member().id());
+                        purged++;
+                    }
+                }
+                if (fresh.size() >= limit || purged == 0 || hits.size() < count) {
+                    break;
+                }
+            }
+            for (Hit hit : fresh) {
+                result.add(hit.member().id());
+                result.add(Double.toString(hit.distanceKm()));
+                result.add(Double.toString(hit.member().longitude()));
+                result.add(Double.toString(hit.member().latitude()));
+                result.add((long) (i + 1));
+                result.add(Long.toString(seen.get(hit.member().id())));
+            }
+        }
+        return result;
+    }
+
+    private static final class GeoSet {
+        private final NavigableSet<Member> byScore = new TreeSet<>(
+                Comparator.comparingLong(Member::score).thenComparing(Member::id));
+        private final Map<String, Member> byId = new HashMap<>();
+
+        void add(String id, double latitude, double longitude) {
+            Member member = new Member(score(latitude, longitude), id, latitude, longitude);
+            Member previous = byId.put(id, member);
+            if (previous != null) {
+                byScore.remove(previous);
+            }
+            byScore.add(member);
+        }
+
+        boolean remove(String id) {
+            Member previous = byId.remove(id);
+            if (previous != null) {
+                byScore.remove(previous);
+            }
+            return previous != null;
+        }
+
+        List<Hit> search(double latitude, double longitude, double radiusKm, int count) {
+            int step = stepFor(latitude, radiusKm);
+            long latitudeCell = cellIndex(latitude, 90, step);
+            long longitudeCell = cellIndex(longitude, 180, step);
+            long maxCell = (1L << step) - 1;
+            int shift = 2 * (STEP_BITS - step);
+            List<Hit> hits = new ArrayList<>();
+            for (long dLat = -1; dLat <= 1; dLat++) {
+                for (long dLon = -1; dLon <= 1; dLon++) {
+                    long lat = latitudeCell + dLat;
+                    long lon = longitudeCell + dLon;
+                    if (lat < 0 || lon < 0 || lat > maxCell || lon > maxCell) {
+                        continue;
+                    }
+                    long from = interleave(lat, lon) << shift;
+                    long to = (interleave(lat, lon) + 1) << shift;
+                    for (Member member : byScore.subSet(new Member(from, "", 0, 0), true, new Member(to, "", 0, 0), false)) {
+                        double distance = GeoMath.haversineKm(latitude, longitude, member.latitude(), member.longitude());
+                        if (distance <= radiusKm) {
+                            hits.add(new Hit(member, distance));
+                        }
+                    }
+                }
+            }
+            hits.sort(Comparator.comparingDouble(Hit::distanceKm));
+            return hits.size() > count ? hits.subList(0, count) : hits;
+        }
+
+        // Finest step whose cells are at least radiusKm on both sides, so the 3x3 block covers the circle
+        private static int stepFor(double latitude, double radiusKm) {
+            double kmPerDegreeLongitude = Math.max(0.01, GeoMath.kmPerDegreeLongitude(Math.min(89.9, Math.abs(latitude))));
+            int step = STEP_BITS;
+            while (step > 1 && (180.0 / (1L << step) * GeoMath.KM_PER_DEGREE_LATITUDE < radiusKm
+                    || 360.0 / (1L << step) * kmPerDegreeLongitude < radiusKm)) {
+                step--;
+            }
+            return step;
+        }
+
+        private static long score(double latitude, double longitude) {
+            return interleave(cellIndex(latitude, 90, STEP_BITS), cellIndex(longitude, 180, STEP_BITS));
+        }
+
+        private static long cellIndex(double value, double range, int step) {
+            long cells = 1L << step;
+            return Math.max(0, Math.min(cells - 1, (long) ((value + range) / (2 * range) * cells)));
+        }
+
+        private static long interleave(long latitudeBits, long longitudeBits) {
+            return spread(latitudeBits) | (spread(longitudeBits) << 1);
+        }
+
+        private static long spread(long bits) {
+            long v = bits & 0xFFFFFFFFL;
+            v = (v | (v << 16)) & 0x0000FFFF0000FFFFL;
+            v = (v | (v << 8)) & 0x00FF00FF00FF00FFL;
+            v = (v | (v << 4)) & 0x0F0F0F0F0F0F0F0FL;
+            v = (v | (v << 2)) & 0x3333333333333333L;
+            v = (v | (v << 1)) & 0x5555555555555555L;
+            return v;
+        }
+    }
+
+    private record Member(long score, String id, double latitude, double longitude) {
+    }
+
+    private record Hit(Member member, double distanceKm) {
+    }
+}
@@ -0,0 +1,114 @@
+package com.uber.location_service.location_service.configs;
+
+import com.uber.entity.models.CarType;
+import com.uber.location_service.location_service.dto.DriverLocationDto;
+import com.uber.location_service.location_service.geo.GeoMath;
+import com.uber.location_service.location_service.index.DriverSpatialIndex;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.geo.Point;
+
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Nearest-driver search and location update, through RedisGeo (on the in-memory Redis stand-in, so
+ * the numbers cover shard selection, script arguments and reply parsing but no network) and through
+ * the in-memory DriverSpatialIndex, for drivers spread uniformly over a square city
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class LocationSearchBenchmark {
+
+    private static final double CENTER_LATITUDE = 12.9716;
+    private static final double CENTER_LONGITUDE = 77.5946;
+    private static final double CITY_SIZE_KM = 40;
+    private static final int SHARD_PRECISION = 4; // location.shard.geohash-precision
+    private static final double INDEX_CELL_SIZE_DEGREES = 0.01; // location.index.cell-size-degrees
+    private static final int LIMIT = 10;
+    private static final int POINTS = 4096; // Power of two, cycled through with a mask
+
+    @Param({"1000", "10000", "100000", "500000"})
+    private int drivers;
+
+    @Param({"1", "3", "10"})
+    private double radiusKm;
+
+    private RedisGeo redisGeo;
+    private DriverSpatialIndex index;
+    private CarType[] carTypes;
+    private final double[] latitude = new double[POINTS];
+    private final double[] longitude = new double[POINTS];
+    private final int[] movedDriver = new int[POINTS];
+    private int cursor;
+    private long clock;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        redisGeo = new RedisGeo(new InMemoryGeoRedis());
+        Field shardPrecision = RedisGeo.class.getDeclaredField("shardPrecision");
+        shardPrecision.setAccessible(true);
+        shardPrecision.setInt(redisGeo, SHARD_PRECISION);
+        index = new DriverSpatialIndex(INDEX_CELL_SIZE_DEGREES);
+        carTypes = CarType.values();
+
+        Random random = new Random(42);
+        clock = System.currentTimeMillis();
+        for (int i = 0; i < drivers; i++) {
+            double driverLatitude = randomLatitude(random);
+            double driverLongitude = randomLongitude(random);
+            CarType carType = carTypes[i % carTypes.length];
+            redisGeo.setGeo(new Point(driverLongitude, driverLatitude), Integer.toString(i), carType, clock);
+            index.upsert(i, driverLatitude, driverLongitude, clock, carType);
+        }
+        for (int i = 0; i < POINTS; i++) {
+            latitude[i] = randomLatitude(random);
+            longitude[i] = randomLongitude(random);
+            movedDriver[i] = random.nextInt(drivers);
+        }
+    }
+
+    @Benchmark
+    public List<DriverLocationDto> redisNearBy() {
+        int i = next();
+        return redisGeo.nearBy(longitude[i], latitude[i], radiusKm, LIMIT, 0, null);
+    }
+
+    @Benchmark
+    public List<DriverLocationDto> indexNearest() {
+        int i = next();
+        return index.nearest(latitude[i], longitude[i], radiusKm, LIMIT, 0, null);
+    }
+
+    // Moves an existing driver, so the density stays the same
+    @Benchmark
+    public void redisSetGeo() {
+        int i = next();
+        int driver = movedDriver[i];
+        redisGeo.setGeo(new Point(longitude[i], latitude[i]), Integer.toString(driver), carTypes[driver % carTypes.length], ++clock);
+    }
+
+    @Benchmark
+    public void indexUpsert() {
+        int i = next();
+        int driver = movedDriver[i];
+        index.upsert(driver, latitude[i], longitude[i], ++clock, carTypes[driver % carTypes.length]);
+    }
+
+    private int next() {
+        return cursor++ & (POINTS - 1);
+    }
+
+    private static double randomLatitude(Random random) {
+        return CENTER_LATITUDE + (random.nextDouble() - 0.5) * CITY_SIZE_KM / GeoMath.KM_PER_DEGREE_LATITUDE;
+    }
+
+    private static double randomLongitude(Random random) {
+        return CENTER_LONGITUDE + (random.nextDouble() - 0.5) * CITY_SIZE_KM / GeoMath.kmPerDegreeLongitude(CENTER_LATITUDE);
+    }
+}
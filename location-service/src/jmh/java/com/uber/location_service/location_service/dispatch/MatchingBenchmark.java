@@ -0,0 +1,55 @@
+package com.uber.location_service.location_service.dispatch;
+
+import com.uber.location_service.location_service.dto.DriverLocationDto;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Solve time of one batch matching window. requests=1000, drivers=1000, candidatesPerRequest=1000
+ * is the dense 1k x 1k case; hungarianDense times the solver alone on a random requests x requests matrix
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MatchingBenchmark {
+
+    @Param({"1", "10", "100", "1000"})
+    private int requests;
+
+    @Param({"1000"})
+    private int drivers;
+
+    @Param({"10", "1000"})
+    private int candidatesPerRequest;
+
+    private List<List<DriverLocationDto>> candidates;
+    private double[][] denseCost;
+
+    @Setup
+    public void setUp() {
+        candidates = new MatchingScenario(requests, drivers, candidatesPerRequest, 10, 42).candidates;
+        Random random = new Random(42);
+        denseCost = new double[requests][requests];
+        for (double[] row : denseCost) {
+            for (int j = 0; j < row.length; j++) {
+                row[j] = random.nextDouble() * 10;
+            }
+        }
+    }
+
+    @Benchmark
+    public int[] batchMatch() {
+        return BatchMatcher.match(candidates);
+    }
+
+    @Benchmark
+    public int[] hungarianDense() {
+        return HungarianSolver.solve(denseCost);
+    }
+}
@@ -0,0 +1,153 @@
+package com.uber.location_service.location_service.dispatch;
+
+import com.uber.location_service.location_service.dto.DriverLocationDto;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Compares pickup distances and ETAs of the batch matching mode with broadcast, where every candidate
+ * gets the offer and the first driver to accept wins. In broadcast the winner is modelled as a random
+ * free candidate (whoever taps first), plus the optimistic case where the nearest free candidate always wins.
+ * As in BatchMatchingDispatcher, batch requests left unassigned are carried into the following windows with
+ * their candidates that are not holding an offer, and count as unmatched once max-windows windows passed.
+ * Every window brings new drivers, so a carried request only competes with other carried requests.
+ * Arguments: [requests per window] [drivers] [candidates per request] [city size km] [windows] [speed km/h]
+ * [max windows] [offer hold in windows]
+ */
+public final class MatchingComparison {
+
+    public static void main(String[] args) {
+        int requests = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int drivers = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int candidatesPerRequest = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        double citySizeKm = args.length > 3 ? Double.parseDouble(args[3]) : 10;
+        int windows = args.length > 4 ? Integer.parseInt(args[4]) : 50;
+        double speedKmh = args.length > 5 ? Double.parseDouble(args[5]) : 25;
+        int maxWindows = args.length > 6 ? Integer.parseInt(args[6]) : 3;
+        int holdWindows = args.length > 7 ? Integer.parseInt(args[7]) : 4; // offer-hold-ms / window-ms
+
+        List<Double> randomBroadcast = new ArrayList<>();
+        List<Double> nearestBroadcast = new ArrayList<>();
+        BatchSimulation batch = new BatchSimulation(maxWindows, holdWindows);
+        Random random = new Random(7);
+        for (int window = 0; window < windows; window++) {
+            MatchingScenario scenario = new MatchingScenario(requests, drivers, candidatesPerRequest, citySizeKm, window);
+            randomBroadcast.addAll(broadcast(scenario.candidates, random, false));
+            nearestBroadcast.addAll(broadcast(scenario.candidates, random, true));
+            batch.window(window, scenario.candidates);
+        }
+        // Windows without new requests, for the requests still carried
+        for (int window = windows; batch.hasCarried(); window++) {
+            batch.window(window, List.of());
+        }
+
+        System.out.printf("%d windows of %d requests, %d drivers, %d candidates each, %.0f km city, %.0f km/h%n",
+                windows, requests, drivers, candidatesPerRequest, citySizeKm, speedKmh);
+        print("broadcast (random winner)", randomBroadcast, windows * requests, speedKmh);
+        print("broadcast (nearest winner)", nearestBroadcast, windows * requests, speedKmh);
+        print("batch matching", batch.distances, windows * requests, speedKmh);
+        System.out.printf("%-28s %d carry-overs into a later window%n", "", batch.carriedCount);
+    }
+
+    // Requests arrive in random order, each goes to one of its candidates that is still free
+    private static List<Double> broadcast(List<List<DriverLocationDto>> candidates, Random random, boolean nearestWins) {
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < candidates.size(); i++) {
+            order.add(i);
+        }
+        Collections.shuffle(order, random);
+        Set<String> taken = new HashSet<>();
+        List<Double> distances = new ArrayList<>();
+        for (int request : order) {
+            List<DriverLocationDto> free = new ArrayList<>();
+            for (DriverLocationDto driver : candidates.get(request)) {
+                if (!taken.contains(driver.getDriverId())) {
+                    free.add(driver); // Candidates are sorted by distance
+                }
+            }
+            if (!free.isEmpty()) {
+                DriverLocationDto winner = nearestWins ? free.get(0) : free.get(random.nextInt(free.size()));
+                taken.add(winner.getDriverId());
+                distances.add(winner.getDistance());
+            }
+        }
+        return distances;
+    }
+
+    /**
+     * Batch matching window after window, tracking carried requests and drivers holding an offer
+     */
+    private static final class BatchSimulation {
+
+        private final int maxWindows;
+        private final int holdWindows;
+        // Driver ids repeat in every window's scenario, so held drivers are keyed by window too
+        private final Map<String, Integer> heldUntilWindow = new HashMap<>();
+        private List<PendingRequest> carried = new ArrayList<>();
+        private final List<Double> distances = new ArrayList<>();
+        private int carriedCount;
+
+        private BatchSimulation(int maxWindows, int holdWindows) {
+            this.maxWindows = Math.max(1, maxWindows);
+            this.holdWindows = holdWindows;
+        }
+
+        private boolean hasCarried() {
+            return !carried.isEmpty();
+        }
+
+        private void window(int window, List<List<DriverLocationDto>> newCandidates) {
+            heldUntilWindow.values().removeIf(until -> until <= window);
+            List<PendingRequest> batch = new ArrayList<>(carried);
+            for (List<DriverLocationDto> requestCandidates : newCandidates) {
+                batch.add(new PendingRequest(window, requestCandidates, 1));
+            }
+            List<List<DriverLocationDto>> free = new ArrayList<>(batch.size());
+            for (PendingRequest request : batch) {
+                free.add(request.drivers().stream()
+                        .filter(driver -> !heldUntilWindow.containsKey(request.heldKey(driver)))
+                        .toList());
+            }
+            int[] assigned = BatchMatcher.match(free);
+
+            carried = new ArrayList<>();
+            for (int i = 0; i < batch.size(); i++) {
+                PendingRequest request = batch.get(i);
+                if (assigned[i] != BatchMatcher.UNASSIGNED) {
+                    DriverLocationDto driver = free.get(i).get(assigned[i]);
+                    heldUntilWindow.put(request.heldKey(driver), window + holdWindows);
+                    distances.add(driver.getDistance());
+                } else if (request.windows() < maxWindows) {
+                    carried.add(new PendingRequest(request.scenarioWindow(), request.drivers(), request.windows() + 1));
+                    carriedCount++;
+                }
+                // Otherwise reported as "no drivers", unmatched
+            }
+        }
+    }
+
+    // windows counts the matching windows the request has been part of, including the current one
+    private record PendingRequest(int scenarioWindow, List<DriverLocationDto> drivers, int windows) {
+
+        private String heldKey(DriverLocationDto driver) {
+            return scenarioWindow + ":" + driver.getDriverId();
+        }
+    }
+
+    private static void print(String mode, List<Double> distances, int requests, double speedKmh) {
+        double[] sorted = distances.stream().mapToDouble(Double::doubleValue).sorted().toArray();
+        double total = Arrays.stream(sorted).sum();
+        double mean = sorted.length == 0 ? 0 : total / sorted.length;
+        double p95 = sorted.length == 0 ? 0 : sorted[(int) Math.min(sorted.length - 1, Math.ceil(sorted.length * 0.95) - 1)];
+        System.out.printf("%-28s matched %5.1f%%  mean pickup %.2f km (ETA %.1f min)  p95 %.2f km (ETA %.1f min)%n",
+                mode, 100.0 * sorted.length / requests, mean, mean / speedKmh * 60, p95, p95 / speedKmh * 60);
+    }
+}
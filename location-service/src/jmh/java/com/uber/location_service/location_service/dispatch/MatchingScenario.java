@@ -0,0 +1,55 @@
+package com.uber.location_service.location_service.dispatch;
+
+import com.uber.location_service.location_service.dto.DriverLocationDto;
+import com.uber.location_service.location_service.geo.GeoMath;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Random drivers and ride requests spread over a square city, with the k nearest drivers of every
+ * request as its candidates (what DriverSearchRequestConsumer hands to the dispatcher)
+ */
+final class MatchingScenario {
+
+    private static final double CENTER_LATITUDE = 12.9716;
+    private static final double CENTER_LONGITUDE = 77.5946;
+
+    final double[] pickupLatitude;
+    final double[] pickupLongitude;
+    final List<List<DriverLocationDto>> candidates;
+
+    MatchingScenario(int requests, int drivers, int candidatesPerRequest, double citySizeKm, long seed) {
+        Random random = new Random(seed);
+        double latitudeSpan = citySizeKm / GeoMath.KM_PER_DEGREE_LATITUDE;
+        double longitudeSpan = citySizeKm / GeoMath.kmPerDegreeLongitude(CENTER_LATITUDE);
+
+        double[] driverLatitude = new double[drivers];
+        double[] driverLongitude = new double[drivers];
+        for (int i = 0; i < drivers; i++) {
+            driverLatitude[i] = CENTER_LATITUDE + (random.nextDouble() - 0.5) * latitudeSpan;
+            driverLongitude[i] = CENTER_LONGITUDE + (random.nextDouble() - 0.5) * longitudeSpan;
+        }
+
+        pickupLatitude = new double[requests];
+        pickupLongitude = new double[requests];
+        candidates = new ArrayList<>(requests);
+        for (int r = 0; r < requests; r++) {
+            pickupLatitude[r] = CENTER_LATITUDE + (random.nextDouble() - 0.5) * latitudeSpan;
+            pickupLongitude[r] = CENTER_LONGITUDE + (random.nextDouble() - 0.5) * longitudeSpan;
+            List<DriverLocationDto> all = new ArrayList<>(drivers);
+            for (int i = 0; i < drivers; i++) {
+                all.add(DriverLocationDto.builder()
+                        .driverId(Integer.toString(i))
+                        .latitude(driverLatitude[i])
+                        .longitude(driverLongitude[i])
+                        .distance(GeoMath.haversineKm(pickupLatitude[r], pickupLongitude[r], driverLatitude[i], driverLongitude[i]))
+                        .build());
+            }
+            all.sort(Comparator.comparingDouble(DriverLocationDto::getDistance));
+            candidates.add(new ArrayList<>(all.subList(0, Math.min(candidatesPerRequest, drivers))));
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.uber.location_service.location_service.geo;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one distance computation, the inner loop of every search and of batch matching
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeoMathBenchmark {
+
+    private static final int POINTS = 1024; // Power of two, cycled through with a mask
+
+    private final double[] latitude = new double[POINTS];
+    private final double[] longitude = new double[POINTS];
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        for (int i = 0; i < POINTS; i++) {
+            latitude[i] = 12.9716 + (random.nextDouble() - 0.5) * 0.4;
+            longitude[i] = 77.5946 + (random.nextDouble() - 0.5) * 0.4;
+        }
+    }
+
+    @Benchmark
+    public double haversineKm() {
+        int i = cursor++ & (POINTS - 1);
+        int j = (i + 1) & (POINTS - 1);
+        return GeoMath.haversineKm(latitude[i], longitude[i], latitude[j], longitude[j]);
+    }
+
+    @Benchmark
+    public double kmPerDegreeLongitude() {
+        return GeoMath.kmPerDegreeLongitude(latitude[cursor++ & (POINTS - 1)]);
+    }
+}
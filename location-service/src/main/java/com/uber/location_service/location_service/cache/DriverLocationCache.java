@@ -0,0 +1,146 @@
+package com.uber.location_service.location_service.cache;
+
+import com.uber.location_service.location_service.dto.DriverLocationDto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Small near-cache in front of single driver lookups, which rider apps poll several times a second
+ * during pickup. Entries live for ttl and the least recently used ones are evicted beyond maxSize.
+ * Writes on this instance refresh entries that are already cached; they don't add new ones, so a stream
+ * of writes can't push the polled drivers out. Writes handled by other instances show up once the entry expires
+ */
+@Component
+public class DriverLocationCache {
+
+    private final boolean enabled;
+    private final long ttlMillis;
+    private final int maxSize;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    // Access ordered, so the eldest entry is the least recently used one
+    private final LinkedHashMap<String, Entry> entries;
+
+    public DriverLocationCache(@Value("${location.near-cache.enabled:true}") boolean enabled,
+                               @Value("${location.near-cache.ttl-ms:1000}") long ttlMillis,
+                               @Value("${location.near-cache.max-size:10000}") int maxSize,
+                               MeterRegistry meterRegistry) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Near-cache max size must be positive, got " + maxSize);
+        }
+        this.enabled = enabled;
+        this.ttlMillis = ttlMillis;
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > DriverLocationCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+        this.hits = Counter.builder("location.near-cache.requests")
+                .tag("result", "hit")
+                .description("Driver location lookups served from the near-cache")
+                .register(meterRegistry);
+        this.misses = Counter.builder("location.near-cache.requests")
+                .tag("result", "miss")
+                .description("Driver location lookups that went to Redis")
+                .register(meterRegistry);
+        this.evictions = Counter.builder("location.near-cache.evictions")
+                .description("Entries dropped because the near-cache was full")
+                .register(meterRegistry);
+        Gauge.builder("location.near-cache.size", this, DriverLocationCache::size)
+                .description("Drivers currently in the near-cache")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Cached location if present and fresh, counts a hit or a miss
+     */
+    public Optional<DriverLocationDto> get(String driverId, long nowMillis) {
+        Entry entry;
+        lock.lock();
+        try {
+            entry = entries.get(driverId);
+            if (entry != null && entry.expiresAt() <= nowMillis) {
+                entries.remove(driverId);
+                entry = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (entry == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        return Optional.of(DriverLocationDto.builder()
+                .driverId(driverId)
+                .latitude(entry.latitude())
+                .longitude(entry.longitude())
+                .build());
+    }
+
+    /**
+     * Cache a location just read from Redis
+     */
+    public void put(String driverId, double latitude, double longitude, long nowMillis) {
+        lock.lock();
+        try {
+            entries.put(driverId, new Entry(latitude, longitude, nowMillis + ttlMillis));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Write path: refresh the entry if the driver is cached, otherwise leave the cache alone
+     */
+    public void refresh(String driverId, double latitude, double longitude, long nowMillis) {
+        lock.lock();
+        try {
+            entries.replace(driverId, new Entry(latitude, longitude, nowMillis + ttlMillis));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidate(String driverId) {
+        lock.lock();
+        try {
+            entries.remove(driverId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private record Entry(double latitude, double longitude, long expiresAt) {
+    }
+}
@@ -1,7 +1,10 @@
 package com.uber.location_service.location_service.configs;
 
+import com.uber.location_service.location_service.kafka.dto.DriverAvailabilityMessage;
+import com.uber.location_service.location_service.kafka.dto.DriverLocationUpdateMessage;
 import com.uber.location_service.location_service.kafka.dto.DriverSearchRequestMessage;
 import com.uber.location_service.location_service.kafka.dto.DriverSearchResponseMessage;
+import com.uber.location_service.location_service.kafka.dto.RideRequestDispatch;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.serialization.StringDeserializer;
@@ -26,6 +29,15 @@ public class KafkaConfig {
     @Value("${spring.kafka.consumer.group-id}")
     private String groupId;
 
+    @Value("${kafka.location-updates.max-poll-records:500}")
+    private int locationUpdatesMaxPollRecords;
+
+    @Value("${kafka.location-updates.fetch-max-wait-ms:100}")
+    private int locationUpdatesFetchMaxWaitMs;
+
+    @Value("${kafka.location-updates.concurrency:1}")
+    private int locationUpdatesConcurrency;
+
     @Bean
     public ProducerFactory<String, DriverSearchResponseMessage> producerFactory() {
         Map<String, Object> configProps = new HashMap<>();
@@ -40,6 +52,41 @@ public class KafkaConfig {
         return new KafkaTemplate<>(producerFactory());
     }
 
+    @Bean
+    public ProducerFactory<String, RideRequestDispatch> rideRequestDispatchProducerFactory() {
+        Map<String, Object> configProps = new HashMap<>();
+        configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
+        configProps.put(JsonSerializer.ADD_TYPE_INFO_HEADERS, false); // socket-service has its own copy of the DTO
+        return new DefaultKafkaProducerFactory<>(configProps);
+    }
+
+    @Bean
+    public KafkaTemplate<String, RideRequestDispatch> rideRequestDispatchKafkaTemplate() {
+        return new KafkaTemplate<>(rideRequestDispatchProducerFactory());
+    }
+
+    /**
+     * Location reports taken over REST are republished to driver-location-updates so the other
+     * instances' indexes see them too (see DriverLocationUpdateProducer)
+     */
+    @Bean
+    public ProducerFactory<String, DriverLocationUpdateMessage> driverLocationProducerFactory() {
+        Map<String, Object> configProps = new HashMap<>();
+        configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
+        configProps.put(JsonSerializer.ADD_TYPE_INFO_HEADERS, false);
+        configProps.put(ProducerConfig.LINGER_MS_CONFIG, 5); // REST updates arrive one by one, batch them a little
+        return new DefaultKafkaProducerFactory<>(configProps);
+    }
+
+    @Bean
+    public KafkaTemplate<String, DriverLocationUpdateMessage> driverLocationKafkaTemplate() {
+        return new KafkaTemplate<>(driverLocationProducerFactory());
+    }
+
     @Bean
     public ConsumerFactory<String, DriverSearchRequestMessage> consumerFactory() {
         Map<String, Object> props = new HashMap<>();
@@ -61,4 +108,86 @@ public class KafkaConfig {
         factory.setConsumerFactory(consumerFactory());
         return factory;
     }
+
+    /**
+     * Ride requests counted by every instance's heatmap, under a per-instance group id
+     * (see kafka.driver-search-request.heatmap-group-id). Starts at the latest offset: the group is new on
+     * every start and demand older than the heatmap window does not count anyway
+     */
+    @Bean
+    public ConsumerFactory<String, DriverSearchRequestMessage> heatmapDemandConsumerFactory() {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest");
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, JsonDeserializer.class);
+        props.put(JsonDeserializer.TRUSTED_PACKAGES, "*");
+        props.put(JsonDeserializer.USE_TYPE_INFO_HEADERS, false);
+        props.put(JsonDeserializer.VALUE_DEFAULT_TYPE, DriverSearchRequestMessage.class);
+        return new DefaultKafkaConsumerFactory<>(props);
+    }
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, DriverSearchRequestMessage> heatmapDemandContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, DriverSearchRequestMessage> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(heatmapDemandConsumerFactory());
+        return factory;
+    }
+
+    @Bean
+    public ConsumerFactory<String, DriverLocationUpdateMessage> driverLocationConsumerFactory() {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest"); // Old positions are worthless after a restart
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, locationUpdatesMaxPollRecords);
+        props.put(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, locationUpdatesFetchMaxWaitMs);
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, JsonDeserializer.class);
+        props.put(JsonDeserializer.TRUSTED_PACKAGES, "*");
+        props.put(JsonDeserializer.USE_TYPE_INFO_HEADERS, false);
+        props.put(JsonDeserializer.VALUE_DEFAULT_TYPE, DriverLocationUpdateMessage.class);
+        return new DefaultKafkaConsumerFactory<>(props);
+    }
+
+    /**
+     * Batch listener factory: each poll of driver-location-updates is handed over as one list.
+     * Shared by the Redis writer (shared group id) and the index feed (per-instance group id), whose
+     * listeners set the group id
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, DriverLocationUpdateMessage> driverLocationBatchContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, DriverLocationUpdateMessage> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(driverLocationConsumerFactory());
+        factory.setBatchListener(true);
+        factory.setConcurrency(locationUpdatesConcurrency);
+        return factory;
+    }
+
+    /**
+     * Availability events are consumed twice, like location updates: under the shared group to write Redis
+     * once, and under a per-instance group (see kafka.driver-availability.index-group-id) for every
+     * instance's own in-memory index
+     */
+    @Bean
+    public ConsumerFactory<String, DriverAvailabilityMessage> driverAvailabilityConsumerFactory() {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest"); // State before startup is loaded from Redis
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, JsonDeserializer.class);
+        props.put(JsonDeserializer.TRUSTED_PACKAGES, "*");
+        props.put(JsonDeserializer.USE_TYPE_INFO_HEADERS, false);
+        props.put(JsonDeserializer.VALUE_DEFAULT_TYPE, DriverAvailabilityMessage.class);
+        return new DefaultKafkaConsumerFactory<>(props);
+    }
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, DriverAvailabilityMessage> driverAvailabilityContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, DriverAvailabilityMessage> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(driverAvailabilityConsumerFactory());
+        return factory;
+    }
 }
@@ -0,0 +1,130 @@
+package com.uber.location_service.location_service.configs;
+
+import com.uber.entity.models.CarType;
+import com.uber.location_service.location_service.dto.DriverLocationDto;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.geo.Point;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Non-blocking twin of RedisGeo: same keys and Lua scripts, executed over Lettuce so no thread
+ * waits on Redis. Only present when location.redis.client=reactive
+ */
+@Component
+@ConditionalOnProperty(name = "location.redis.client", havingValue = "reactive")
+@RequiredArgsConstructor
+@Slf4j
+public class ReactiveRedisGeo {
+    private final ReactiveStringRedisTemplate redis;
+    private final RedisGeo redisGeo; // Owns the key layout and script arguments
+
+    /**
+     * Stored placement first, then the region writes, then the state hash, as in RedisGeo.setGeo
+     */
+    public Mono<Void> setGeo(Point point, String driverId, CarType carType, long seenAtMillis) {
+        log.debug("Setting driver location: driverId={}, point=({}, {}), carType={}", driverId, point.getX(), point.getY(), carType);
+        String cell = redisGeo.cellOf(point);
+        return redis.opsForHash().multiGet(RedisGeo.stateKey(driverId), RedisGeo.PLACEMENT_FIELDS)
+                .defaultIfEmpty(List.of())
+                .map(RedisGeo.StoredPlacement::of)
+                .flatMap(previous -> {
+                    String partition = previous.partitionFor(carType);
+                    RedisGeo.ScriptCall state = redisGeo.stateCall(driverId, point, carType, cell, partition, seenAtMillis);
+                    return Flux.fromIterable(redisGeo.placementCalls(driverId, point, cell, seenAtMillis, previous, partition))
+                            .concatMap(this::execute)
+                            .then(Mono.defer(() -> executeForList(state)))
+                            .flatMap(placed -> {
+                                RedisGeo.ScriptCall correction = redisGeo.moveCall(driverId, placed);
+                                return correction == null ? Mono.empty() : execute(correction).then();
+                            });
+                })
+                .then(Mono.defer(() -> registerRegion(cell)));
+    }
+
+    /**
+     * Commands sent concurrently on the shared connection are pipelined by Lettuce
+     */
+    public Mono<Void> setGeoBatch(Map<String, DriverLocationDto> locations, long seenAtMillis) {
+        if (locations.isEmpty()) {
+            return Mono.empty();
+        }
+        log.debug("Setting {} driver locations", locations.size());
+        return Flux.fromIterable(locations.entrySet())
+                .flatMap(entry -> setGeo(new Point(entry.getValue().getLongitude(), entry.getValue().getLatitude()),
+                        entry.getKey(), entry.getValue().getCarType(), seenAtMillis))
+                .then();
+    }
+
+    public Mono<List<DriverLocationDto>> nearBy(double lon, double lat, double radiusKm, int limit, long minLastSeenMillis,
+                                                Set<CarType> carTypes) {
+        List<RedisGeo.ShardSearch> searches = redisGeo.shardSearches(lat, lon, radiusKm, carTypes);
+        log.debug("Searching for drivers near ({}, {}) within {} km, limit {}, regions {}", lon, lat, radiusKm, limit, searches.size());
+        return Flux.fromIterable(RedisGeo.searchCalls(searches, lon, lat, radiusKm, limit, minLastSeenMillis))
+                .flatMapSequential(this::executeForList)
+                .collectList()
+                .map(replies -> RedisGeo.toNearest(replies, searches, limit));
+    }
+
+    public Mono<Optional<DriverLocationDto>> getDriverLocation(String driverId) {
+        return redis.opsForHash().multiGet(RedisGeo.stateKey(driverId), List.of("lon", "lat"))
+                .map(position -> RedisGeo.toLocation(driverId, position))
+                .defaultIfEmpty(Optional.empty())
+                .onErrorReturn(Optional.empty());
+    }
+
+    public Mono<Boolean> deleteDriverLocation(String driverId) {
+        return executeForList(new RedisGeo.ScriptCall(RedisGeo.DELETE_LOCATION_SCRIPT, List.of(RedisGeo.stateKey(driverId)), List.of()))
+                .flatMap(stored -> {
+                    RedisGeo.ScriptCall removal = redisGeo.removalCall(driverId, stored);
+                    return removal == null ? Mono.just(Boolean.FALSE) : execute(removal).map(removed -> removed > 0);
+                })
+                .defaultIfEmpty(Boolean.FALSE)
+                .onErrorReturn(Boolean.FALSE);
+    }
+
+    public Mono<Void> setDriverAvailability(String driverId, boolean available) {
+        log.debug("Setting driver availability: driverId={}, available={}", driverId, available);
+        RedisGeo.ScriptCall state = new RedisGeo.ScriptCall(RedisGeo.SET_AVAILABILITY_SCRIPT,
+                List.of(RedisGeo.stateKey(driverId)), Arrays.asList(redisGeo.availabilityArgs(available)));
+        return executeForList(state)
+                .flatMap(switched -> {
+                    RedisGeo.ScriptCall move = redisGeo.moveCall(driverId, switched);
+                    return move == null ? Mono.empty() : execute(move).then();
+                });
+    }
+
+    private Mono<Void> registerRegion(String cell) {
+        if (!redisGeo.markRegionRegistered(cell)) {
+            return Mono.empty();
+        }
+        return redis.opsForSet().add(RedisGeo.REGIONS_KEY, cell)
+                .doOnError(e -> redisGeo.unmarkRegionRegistered(cell))
+                .then();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Mono<Long> execute(RedisGeo.ScriptCall call) {
+        return redis.execute((RedisScript<Long>) call.script(), call.keys(), call.args()).next();
+    }
+
+    // Multi-bulk script replies may come back element by element or as one list, depending on the driver
+    @SuppressWarnings("unchecked")
+    private Mono<List<Object>> executeForList(RedisGeo.ScriptCall call) {
+        return redis.execute(call.script(), call.keys(), call.args())
+                .cast(Object.class)
+                .collectList()
+                .map(reply -> reply.size() == 1 && reply.get(0) instanceof List ? (List<Object>) reply.get(0) : reply);
+    }
+}
@@ -1,10 +1,15 @@
 package com.uber.location_service.location_service.configs;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
 import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
 import org.springframework.data.redis.core.RedisTemplate;
 
 @Configuration
@@ -17,6 +22,7 @@ public class RedisConfig {
     private int redisPort;
 
     @Bean
+    @Primary
     public RedisConnectionFactory redisConnectionFactory(){
         JedisConnectionFactory jedisConnectionFactory = new JedisConnectionFactory();
         jedisConnectionFactory.getStandaloneConfiguration().setHostName(redisHost);
@@ -30,4 +36,20 @@ public class RedisConfig {
         template.setConnectionFactory(connectionFactory);
         return template;
     }
+
+    /**
+     * Lettuce multiplexes every command over one non-blocking connection, so the async endpoints
+     * don't hold a thread per in-flight Redis call. Only created when location.redis.client=reactive
+     */
+    @Bean
+    @ConditionalOnProperty(name = "location.redis.client", havingValue = "reactive")
+    public LettuceConnectionFactory reactiveRedisConnectionFactory() {
+        return new LettuceConnectionFactory(new RedisStandaloneConfiguration(redisHost, redisPort));
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "location.redis.client", havingValue = "reactive")
+    public ReactiveStringRedisTemplate reactiveStringRedisTemplate(LettuceConnectionFactory reactiveRedisConnectionFactory) {
+        return new ReactiveStringRedisTemplate(reactiveRedisConnectionFactory);
+    }
 }
@@ -1,75 +1,658 @@
 package com.uber.location_service.location_service.configs;
 
+import com.uber.entity.models.CarType;
 import com.uber.location_service.location_service.dto.DriverLocationDto;
-import lombok.AllArgsConstructor;
+import com.uber.location_service.location_service.geo.GeoHash;
+import com.uber.location_service.location_service.geo.GeoMath;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.data.geo.*;
-import org.springframework.data.redis.connection.RedisGeoCommands;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 
+/**
+ * Driver positions in Redis, split into regions by coarse geohash prefix. Every key of a region carries the
+ * region as hash tag, so a region lives in one Redis Cluster slot and no key is shared by all writes:
+ * its geo sets, partitioned by availability and vehicle type (Location:Driver:{cell}:available:{carType} and
+ * Location:Driver:{cell}:busy:{carType}) so searches only ever read drivers that can take the requested ride,
+ * and its last-seen sorted set (Location:Driver:{cell}:lastSeen) so stale drivers can be skipped by searches
+ * and swept in bounded batches.
+ * Each driver also has a state hash (Location:Driver:state:{driverId}) with its position, region, partition,
+ * vehicle type and busy flag, kept for state-ttl-hours after the last write.
+ * A write reads where the state hash last placed the driver, places it in its new region (leaving its previous
+ * partition there), takes it out of the region it left, and records the new placement in the state hash last.
+ * The driver is in at least one region at every step, a search reading both regions mid-move keeps the copy
+ * reported last, and a write that fails half way is repaired by the next one, which still sees the old region.
+ * Regions on different cluster slots cannot be written atomically, so a move across regions is only a single
+ * script with single-slot=true: every region key then shares one hash tag (and one cluster node).
+ * Regions that ever held a driver are listed in Location:Driver:regions, written once per region by each
+ * instance, for the stale sweep
+ */
 @Component
-@AllArgsConstructor
+@RequiredArgsConstructor
 @Slf4j
 public class RedisGeo {
-    private StringRedisTemplate redis;
-    private final String PREFIX_KEY = "Location:Driver";
-
-    public void setGeo( Point point, String driverId){
-        log.debug("Setting driver location: driverId={}, point=({}, {})", driverId, point.getX(), point.getY());
-        redis.opsForGeo().add(PREFIX_KEY,point,driverId);
-    }
-
-    public List<DriverLocationDto> nearBy(double lon, double lat){
-        Distance distance = new Distance(5, Metrics.KILOMETERS);
-        Point point = new Point(lon,lat);
-        Circle circle = new Circle(point,distance);
-        log.debug("Searching for drivers near ({}, {}) within {} km", lon, lat, distance.getValue());
-        GeoResults<RedisGeoCommands.GeoLocation<String>> results =  redis.opsForGeo().radius(PREFIX_KEY,circle);
-        List<DriverLocationDto> drivers = results
-                .getContent()
-                .stream()
-                .map(r ->{
-                    Point p = redis.opsForGeo().position(PREFIX_KEY,r.getContent().getName()).get(0);
-                    return DriverLocationDto
-                        .builder()
-                        .driverId(r.getContent().getName())
-                        .longitude(p.getX())
-                        .latitude(p.getY())
-                        .build();
+    private final StringRedisTemplate redis;
+    private final Set<String> registeredRegions = ConcurrentHashMap.newKeySet();
+    private static final String PREFIX_KEY = "Location:Driver";
+    private static final String STATE_KEY_PREFIX = PREFIX_KEY + ":state:";
+    static final String REGIONS_KEY = PREFIX_KEY + ":regions";
+    private static final String AVAILABLE = "available";
+    private static final String BUSY = "busy";
+    private static final String UNKNOWN_CAR_TYPE = "UNKNOWN"; // Partition of drivers whose vehicle is not known
+    private static final String SINGLE_SLOT_TAG = "all";
+    static final List<Object> PLACEMENT_FIELDS = List.of("cell", "partition", "carType", "busy");
+    private static final int SCAN_PAGE_SIZE = 1000;
+
+    @SuppressWarnings("rawtypes")
+    static final RedisScript<List> SET_STATE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/set-driver-state.lua"), List.class);
+    static final RedisScript<Long> PLACE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/place-driver.lua"), Long.class);
+    static final RedisScript<Long> REMOVE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/remove-driver.lua"), Long.class);
+    static final RedisScript<Long> MOVE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/move-driver.lua"), Long.class);
+    @SuppressWarnings("rawtypes")
+    static final RedisScript<List> DELETE_LOCATION_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/delete-driver-location.lua"), List.class);
+    @SuppressWarnings("rawtypes")
+    static final RedisScript<List> SEARCH_NEARBY_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/search-nearby-drivers.lua"), List.class);
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> EXPIRE_STALE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/expire-stale-drivers.lua"), List.class);
+    private static final RedisScript<Long> FORGET_POSITION_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/forget-driver-position.lua"), Long.class);
+    @SuppressWarnings("rawtypes")
+    static final RedisScript<List> SET_AVAILABILITY_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/set-driver-availability.lua"), List.class);
+
+    @Value("${location.shard.geohash-precision:4}")
+    private int shardPrecision; // Not final - injected via @Value
+
+    @Value("${location.shard.state-ttl-hours:24}")
+    private long stateTtlHours;
+
+    @Value("${location.shard.single-slot:false}")
+    private boolean singleSlot;
+
+    /**
+     * A null carType keeps the vehicle type remembered from an earlier report
+     */
+    @SuppressWarnings("unchecked")
+    public void setGeo( Point point, String driverId, CarType carType, long seenAtMillis){
+        log.debug("Setting driver location: driverId={}, point=({}, {}), carType={}", driverId, point.getX(), point.getY(), carType);
+        String cell = cellOf(point);
+        StoredPlacement previous = StoredPlacement.of(redis.opsForHash().multiGet(stateKey(driverId), PLACEMENT_FIELDS));
+        String partition = previous.partitionFor(carType);
+        for (ScriptCall call : placementCalls(driverId, point, cell, seenAtMillis, previous, partition)) {
+            redis.execute(call.script(), call.keys(), call.args().toArray());
+        }
+        ScriptCall state = stateCall(driverId, point, carType, cell, partition, seenAtMillis);
+        ScriptCall correction = moveCall(driverId, redis.execute(SET_STATE_SCRIPT, state.keys(), state.args().toArray()));
+        if (correction != null) {
+            redis.execute(MOVE_SCRIPT, correction.keys(), correction.args().toArray());
+        }
+        registerRegion(cell);
+    }
+
+    /**
+     * Write many driver positions at once, one pipeline per step of setGeo: read the stored placements,
+     * place every driver, take movers out of the regions they left, then record the new state hashes
+     */
+    @SuppressWarnings("unchecked")
+    public void setGeoBatch(Map<String, DriverLocationDto> locations, long seenAtMillis){
+        if (locations.isEmpty()) {
+            return;
+        }
+        log.debug("Setting {} driver locations in pipelines", locations.size());
+        List<String> driverIds = new ArrayList<>(locations.keySet());
+        List<StoredPlacement> previous = readPlacements(driverIds);
+        List<ScriptCall> places = new ArrayList<>(locations.size());
+        List<ScriptCall> leaves = new ArrayList<>();
+        List<ScriptCall> states = new ArrayList<>(locations.size());
+        List<String> cells = new ArrayList<>(locations.size());
+        for (int i = 0; i < driverIds.size(); i++) {
+            String driverId = driverIds.get(i);
+            DriverLocationDto location = locations.get(driverId);
+            Point point = new Point(location.getLongitude(), location.getLatitude());
+            String cell = cellOf(point);
+            String partition = previous.get(i).partitionFor(location.getCarType());
+            places.add(placeCall(driverId, point, cell, seenAtMillis, previous.get(i), partition));
+            ScriptCall leave = leaveCall(driverId, cell, previous.get(i));
+            if (leave != null) {
+                leaves.add(leave);
+            }
+            states.add(stateCall(driverId, point, location.getCarType(), cell, partition, seenAtMillis));
+            cells.add(cell);
+        }
+        // Separate pipelines: in a cluster the calls of one pipeline may reach their nodes in any order
+        executeAll(places);
+        if (!leaves.isEmpty()) {
+            executeAll(leaves);
+        }
+        List<Object> placed = executeAll(states);
+        List<ScriptCall> corrections = new ArrayList<>();
+        for (int i = 0; i < driverIds.size(); i++) {
+            ScriptCall correction = moveCall(driverIds.get(i), (List<Object>) placed.get(i));
+            if (correction != null) {
+                corrections.add(correction);
+            }
+        }
+        if (!corrections.isEmpty()) {
+            executeAll(corrections);
+        }
+        cells.forEach(this::registerRegion);
+    }
+
+    /**
+     * One script call per region the search circle overlaps (pipelined when there are several): each runs
+     * GEOSEARCH (coordinates, distance, ordering, COUNT) on the region's partitions and drops drivers not
+     * seen since minLastSeenMillis. Only the available partitions of the requested car types are read
+     * (all types when carTypes is null or empty).
+     */
+    public List<DriverLocationDto> nearBy(double lon, double lat, double radiusKm, int limit, long minLastSeenMillis,
+                                          Set<CarType> carTypes){
+        List<ShardSearch> searches = shardSearches(lat, lon, radiusKm, carTypes);
+        log.debug("Searching for drivers near ({}, {}) within {} km, limit {}, regions {}", lon, lat, radiusKm, limit, searches.size());
+        List<ScriptCall> calls = searchCalls(searches, lon, lat, radiusKm, limit, minLastSeenMillis);
+        List<Object> replies = calls.size() == 1
+                ? Collections.singletonList(redis.execute(SEARCH_NEARBY_SCRIPT, calls.get(0).keys(), calls.get(0).args().toArray()))
+                : executeAll(calls);
+        List<DriverLocationDto> nearest = toNearest(replies, searches, limit);
+        log.debug("Found {} drivers near ({}, {})", nearest.size(), lon, lat);
+        return nearest;
+    }
+
+    /**
+     * Walk every driver state page by page (SCAN over the state keys, then one pipelined HMGET per page).
+     * Used to rebuild in-memory state on startup; drivers without a stored position are passed a null point
+     */
+    public int forEachDriverLocation(DriverPositionConsumer consumer) {
+        int count = 0;
+        List<String> page = new ArrayList<>(SCAN_PAGE_SIZE);
+        ScanOptions options = ScanOptions.scanOptions().match(STATE_KEY_PREFIX + "*").count(SCAN_PAGE_SIZE).build();
+        try (Cursor<String> cursor = redis.scan(options)) {
+            while (cursor.hasNext()) {
+                page.add(cursor.next());
+                if (page.size() == SCAN_PAGE_SIZE) {
+                    count += readStates(page, consumer);
+                    page.clear();
                 }
-                )
-                .toList();
-        log.debug("Found {} drivers near ({}, {})", drivers.size(), lon, lat);
-        return drivers;
+            }
+        }
+        count += readStates(page, consumer);
+        return count;
     }
 
     public Optional<DriverLocationDto> getDriverLocation(String driverId) {
         try {
-            Point point = redis.opsForGeo().position(PREFIX_KEY, driverId).get(0);
-            if (point != null) {
-                return Optional.of(DriverLocationDto.builder()
-                        .driverId(driverId)
-                        .longitude(point.getX())
-                        .latitude(point.getY())
-                        .build());
-            }
-            return Optional.empty();
+            List<Object> position = redis.opsForHash().multiGet(stateKey(driverId), List.of("lon", "lat"));
+            return toLocation(driverId, position);
         } catch (Exception e) {
             return Optional.empty();
         }
     }
 
+    @SuppressWarnings("unchecked")
     public Boolean deleteDriverLocation(String driverId) {
         try {
-            Long removed = redis.opsForGeo().remove(PREFIX_KEY, driverId);
-            return removed > 0;
+            List<Object> stored = redis.execute(DELETE_LOCATION_SCRIPT, List.of(stateKey(driverId)));
+            ScriptCall removal = removalCall(driverId, stored);
+            if (removal == null) {
+                return Boolean.FALSE;
+            }
+            Long removed = redis.execute(REMOVE_SCRIPT, removal.keys(), removal.args().toArray());
+            return removed != null && removed > 0;
         } catch (Exception e) {
             return Boolean.FALSE;
         }
     }
+
+    /**
+     * Mark a driver available or busy; its stored position moves to the matching partition
+     */
+    @SuppressWarnings("unchecked")
+    public void setDriverAvailability(String driverId, boolean available) {
+        log.debug("Setting driver availability: driverId={}, available={}", driverId, available);
+        List<Object> switched = redis.execute(SET_AVAILABILITY_SCRIPT, List.of(stateKey(driverId)),
+                (Object[]) availabilityArgs(available));
+        ScriptCall move = moveCall(driverId, switched);
+        if (move != null) {
+            redis.execute(MOVE_SCRIPT, move.keys(), move.args().toArray());
+        }
+    }
+
+    /**
+     * Remove drivers whose last report is older than cutoffMillis, region by region in batches of batchSize
+     * (at most maxBatches per region), and clear their stored positions. Returns the removed driver ids
+     */
+    @SuppressWarnings("unchecked")
+    public List<String> expireStaleDrivers(long cutoffMillis, int batchSize, int maxBatches) {
+        Set<String> regions = redis.opsForSet().members(REGIONS_KEY);
+        if (regions == null || regions.isEmpty()) {
+            return List.of();
+        }
+        List<String> removed = new ArrayList<>();
+        List<ScriptCall> forgets = new ArrayList<>();
+        for (String cell : regions) {
+            List<String> keys = new ArrayList<>();
+            keys.add(lastSeenKey(cell));
+            keys.addAll(regionGeoKeys(cell));
+            for (int batch = 0; batch < maxBatches; batch++) {
+                List<Object> expired = redis.execute(EXPIRE_STALE_SCRIPT, keys, Long.toString(cutoffMillis), Integer.toString(batchSize));
+                if (expired == null) {
+                    break;
+                }
+                for (Object driverId : expired) {
+                    removed.add(driverId.toString());
+                    forgets.add(new ScriptCall(FORGET_POSITION_SCRIPT, List.of(stateKey(driverId.toString())), List.of(cell)));
+                }
+                if (expired.size() < batchSize) {
+                    break;
+                }
+            }
+        }
+        if (!forgets.isEmpty()) {
+            executeAll(forgets);
+        }
+        return removed;
+    }
+
+    // Key and argument layout shared with ReactiveRedisGeo
+
+    String cellOf(Point point) {
+        return GeoHash.encode(point.getY(), point.getX(), shardPrecision);
+    }
+
+    static String stateKey(String driverId) {
+        return STATE_KEY_PREFIX + driverId;
+    }
+
+    // The hash tag maps every key of a region to the same slot: {cell}, or one tag for all regions with single-slot
+    String regionKey(String cell, String partition) {
+        return singleSlot
+                ? PREFIX_KEY + ":{" + SINGLE_SLOT_TAG + "}:" + cell + ":" + partition
+                : PREFIX_KEY + ":{" + cell + "}:" + partition;
+    }
+
+    String lastSeenKey(String cell) {
+        return regionKey(cell, "lastSeen");
+    }
+
+    ScriptCall stateCall(String driverId, Point point, CarType carType, String cell, String partition, long seenAtMillis) {
+        return new ScriptCall(SET_STATE_SCRIPT, List.of(stateKey(driverId)), List.of(
+                Double.toString(point.getX()), Double.toString(point.getY()), Long.toString(seenAtMillis), cell,
+                carType != null ? carType.name() : "", UNKNOWN_CAR_TYPE, Long.toString(stateTtlMillis()), partition));
+    }
+
+    /**
+     * Region writes of a location update, in the order they must run: place, then leave the previous region
+     */
+    List<ScriptCall> placementCalls(String driverId, Point point, String cell, long seenAtMillis, StoredPlacement previous,
+                                    String partition) {
+        ScriptCall leave = leaveCall(driverId, cell, previous);
+        ScriptCall place = placeCall(driverId, point, cell, seenAtMillis, previous, partition);
+        return leave == null ? List.of(place) : List.of(place, leave);
+    }
+
+    /**
+     * Put the driver in its partition, leaving its previous partition of the same region in the same script,
+     * and with single-slot also the region it left
+     */
+    ScriptCall placeCall(String driverId, Point point, String cell, long seenAtMillis, StoredPlacement previous,
+                         String partition) {
+        List<String> keys = new ArrayList<>(4);
+        keys.add(regionKey(cell, partition));
+        keys.add(lastSeenKey(cell));
+        if (previous.cell().equals(cell)) {
+            if (!previous.partition().isEmpty() && !previous.partition().equals(partition)) {
+                keys.add(regionKey(cell, previous.partition()));
+            }
+        } else if (singleSlot && !previous.cell().isEmpty() && !previous.partition().isEmpty()) {
+            keys.add(regionKey(previous.cell(), previous.partition()));
+            keys.add(lastSeenKey(previous.cell()));
+        }
+        return new ScriptCall(PLACE_SCRIPT, keys, List.of(driverId, Double.toString(point.getX()),
+                Double.toString(point.getY()), Long.toString(seenAtMillis)));
+    }
+
+    /**
+     * Take a driver out of every partition of the region it left, once it is placed in the new one (its busy flag
+     * may have been switched in the old region meanwhile); null when there is nothing to leave
+     */
+    ScriptCall leaveCall(String driverId, String cell, StoredPlacement previous) {
+        if (singleSlot || previous.cell().isEmpty() || previous.cell().equals(cell)) {
+            return null;
+        }
+        List<String> keys = new ArrayList<>();
+        keys.add(lastSeenKey(previous.cell()));
+        keys.addAll(regionGeoKeys(previous.cell()));
+        return new ScriptCall(REMOVE_SCRIPT, keys, List.of(driverId));
+    }
+
+    // Region write following a state delete, null when no position was stored
+    ScriptCall removalCall(String driverId, List<Object> stored) {
+        if (stored == null || stored.size() < 2) {
+            return null;
+        }
+        String cell = stored.get(0).toString();
+        return new ScriptCall(REMOVE_SCRIPT, List.of(lastSeenKey(cell), regionKey(cell, stored.get(1).toString())), List.of(driverId));
+    }
+
+    // Region write following an availability change or a state update, null when nothing has to move
+    ScriptCall moveCall(String driverId, List<Object> switched) {
+        if (switched == null || switched.size() < 3 || switched.get(1).equals(switched.get(2))) {
+            return null;
+        }
+        String cell = switched.get(0).toString();
+        return new ScriptCall(MOVE_SCRIPT, List.of(regionKey(cell, switched.get(1).toString()),
+                regionKey(cell, switched.get(2).toString())), List.of(driverId));
+    }
+
+    String[] availabilityArgs(boolean available) {
+        return new String[]{available ? "1" : "0", Long.toString(stateTtlMillis())};
+    }
+
+    /**
+     * Record a region in the region list the first time this instance writes to it
+     */
+    void registerRegion(String cell) {
+        if (markRegionRegistered(cell)) {
+            try {
+                redis.opsForSet().add(REGIONS_KEY, cell);
+            } catch (RuntimeException e) {
+                registeredRegions.remove(cell);
+                throw e;
+            }
+        }
+    }
+
+    // True when the region still has to be added to the region list
+    boolean markRegionRegistered(String cell) {
+        return registeredRegions.add(cell);
+    }
+
+    void unmarkRegionRegistered(String cell) {
+        registeredRegions.remove(cell);
+    }
+
+    /**
+     * Available-partition keys of the requested car types in every region overlapping the search circle,
+     * one search per region with its last-seen key last, as the search script expects
+     */
+    List<ShardSearch> shardSearches(double lat, double lon, double radiusKm, Set<CarType> carTypes) {
+        List<String> typePartitions = typePartitions(carTypes);
+        List<ShardSearch> searches = new ArrayList<>();
+        for (String cell : cellsWithin(lat, lon, radiusKm)) {
+            List<String> keys = new ArrayList<>(typePartitions.size() + 1);
+            for (String typePartition : typePartitions) {
+                keys.add(regionKey(cell, AVAILABLE + ":" + typePartition));
+            }
+            keys.add(lastSeenKey(cell));
+            searches.add(new ShardSearch(keys, typePartitions));
+        }
+        return searches;
+    }
+
+    static List<ScriptCall> searchCalls(List<ShardSearch> searches, double lon, double lat, double radiusKm, int limit,
+                                        long minLastSeenMillis) {
+        List<String> args = List.of(Double.toString(lon), Double.toString(lat), Double.toString(radiusKm),
+                Integer.toString(limit), Long.toString(minLastSeenMillis));
+        List<ScriptCall> calls = new ArrayList<>(searches.size());
+        for (ShardSearch search : searches) {
+            calls.add(new ScriptCall(SEARCH_NEARBY_SCRIPT, search.keys(), args));
+        }
+        return calls;
+    }
+
+    /**
+     * Parse the flat search script replies, one per region, and keep the limit nearest across all of them.
+     * A driver caught between joining one region and leaving the other is only counted once, at the position
+     * it reported last
+     */
+    @SuppressWarnings("unchecked")
+    static List<DriverLocationDto> toNearest(List<?> replies, List<ShardSearch> searches, int limit) {
+        List<Hit> hits = new ArrayList<>();
+        for (int region = 0; region < replies.size(); region++) {
+            List<Object> reply = (List<Object>) replies.get(region);
+            if (reply == null) {
+                continue;
+            }
+            List<String> partitionOfKey = searches.get(region).partitionOfKey();
+            for (int i = 0; i + 5 < reply.size(); i += 6) {
+                String typePartition = partitionOfKey.get(Integer.parseInt(reply.get(i + 4).toString()) - 1);
+                hits.add(new Hit(DriverLocationDto
+                        .builder()
+                        .driverId(reply.get(i).toString())
+                        .distance(Double.parseDouble(reply.get(i + 1).toString()))
+                        .longitude(Double.parseDouble(reply.get(i + 2).toString()))
+                        .latitude(Double.parseDouble(reply.get(i + 3).toString()))
+                        .carType(UNKNOWN_CAR_TYPE.equals(typePartition) ? null : CarType.valueOf(typePartition))
+                        .build(), (long) Double.parseDouble(reply.get(i + 5).toString())));
+            }
+        }
+        if (replies.size() > 1) {
+            Map<String, Hit> newest = new HashMap<>();
+            for (Hit hit : hits) {
+                newest.merge(hit.driver().getDriverId(), hit,
+                        (kept, other) -> other.lastSeenMillis() > kept.lastSeenMillis() ? other : kept);
+            }
+            hits.removeIf(hit -> newest.get(hit.driver().getDriverId()) != hit);
+        }
+        if (replies.size() > 1 || searches.get(0).partitionOfKey().size() > 1) {
+            hits.sort(Comparator.comparingDouble(hit -> hit.driver().getDistance()));
+        }
+        List<DriverLocationDto> drivers = new ArrayList<>(Math.min(limit, hits.size()));
+        for (int i = 0; i < hits.size() && i < limit; i++) {
+            drivers.add(hits.get(i).driver());
+        }
+        return drivers;
+    }
+
+    static Optional<DriverLocationDto> toLocation(String driverId, List<Object> position) {
+        if (position != null && position.size() == 2 && position.get(0) != null && position.get(1) != null) {
+            return Optional.of(DriverLocationDto.builder()
+                    .driverId(driverId)
+                    .longitude(Double.parseDouble(position.get(0).toString()))
+                    .latitude(Double.parseDouble(position.get(1).toString()))
+                    .build());
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Script calls in one pipeline; replies in call order. On NOSCRIPT the scripts are loaded and the
+     * pipeline replayed, which is safe because a call either ran or failed as a whole and every call is
+     * idempotent once its state update has been applied
+     */
+    List<Object> executeAll(List<ScriptCall> calls) {
+        try {
+            return pipeline(calls);
+        } catch (RuntimeException e) {
+            if (!isMissingScript(e)) {
+                throw e;
+            }
+            calls.stream().map(ScriptCall::script).distinct().forEach(script -> {
+                byte[] source = script.getScriptAsString().getBytes(StandardCharsets.UTF_8);
+                redis.execute((RedisCallback<String>) connection -> connection.scriptingCommands().scriptLoad(source));
+            });
+            return pipeline(calls);
+        }
+    }
+
+    private List<Object> pipeline(List<ScriptCall> calls) {
+        return redis.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            for (ScriptCall call : calls) {
+                String[] keysAndArgs = new String[call.keys().size() + call.args().size()];
+                int i = 0;
+                for (String key : call.keys()) {
+                    keysAndArgs[i++] = key;
+                }
+                for (String arg : call.args()) {
+                    keysAndArgs[i++] = arg;
+                }
+                stringConnection.evalSha(call.script().getSha1(), ReturnType.fromJavaType(call.script().getResultType()),
+                        call.keys().size(), keysAndArgs);
+            }
+            return null;
+        });
+    }
+
+    private List<StoredPlacement> readPlacements(List<String> driverIds) {
+        List<Object> states = redis.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            for (String driverId : driverIds) {
+                stringConnection.hMGet(stateKey(driverId), "cell", "partition", "carType", "busy");
+            }
+            return null;
+        });
+        List<StoredPlacement> placements = new ArrayList<>(states.size());
+        for (Object state : states) {
+            placements.add(StoredPlacement.of((List<?>) state));
+        }
+        return placements;
+    }
+
+    private int readStates(List<String> stateKeys, DriverPositionConsumer consumer) {
+        if (stateKeys.isEmpty()) {
+            return 0;
+        }
+        List<Object> states = redis.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            for (String key : stateKeys) {
+                stringConnection.hMGet(key, "lon", "lat", "seenAt", "partition", "busy");
+            }
+            return null;
+        });
+        int count = 0;
+        for (int i = 0; i < stateKeys.size(); i++) {
+            List<?> state = (List<?>) states.get(i);
+            if (state == null) {
+                continue;
+            }
+            String driverId = stateKeys.get(i).substring(STATE_KEY_PREFIX.length());
+            Point point = state.get(0) != null && state.get(1) != null
+                    ? new Point(Double.parseDouble(state.get(0).toString()), Double.parseDouble(state.get(1).toString()))
+                    : null;
+            long seenAt = state.get(2) != null ? Long.parseLong(state.get(2).toString()) : 0L;
+            CarType carType = state.get(3) != null ? carTypeOfPartition(state.get(3).toString()) : null;
+            consumer.accept(driverId, point, carType, seenAt, !"1".equals(state.get(4)));
+            if (point != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private long stateTtlMillis() {
+        return TimeUnit.HOURS.toMillis(stateTtlHours);
+    }
+
+    private Set<String> cellsWithin(double lat, double lon, double radiusKm) {
+        double latDelta = radiusKm / GeoMath.KM_PER_DEGREE_LATITUDE;
+        double lonDelta = radiusKm / Math.max(0.01, GeoMath.kmPerDegreeLongitude(Math.min(89.9, Math.abs(lat) + latDelta)));
+        return GeoHash.covering(lat - latDelta, lon - lonDelta, lat + latDelta, lon + lonDelta, shardPrecision);
+    }
+
+    // Every geo set of a region: both availabilities of every vehicle type
+    private List<String> regionGeoKeys(String cell) {
+        List<String> keys = new ArrayList<>();
+        for (String typePartition : typePartitions(null)) {
+            keys.add(regionKey(cell, AVAILABLE + ":" + typePartition));
+            keys.add(regionKey(cell, BUSY + ":" + typePartition));
+        }
+        return keys;
+    }
+
+    // Partitions are {availability}:{carType}
+    private static CarType carTypeOfPartition(String partition) {
+        String carType = partition.substring(partition.indexOf(':') + 1);
+        for (CarType value : CarType.values()) {
+            if (value.name().equals(carType)) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    private static List<String> typePartitions(Set<CarType> carTypes) {
+        List<String> partitions = new ArrayList<>();
+        if (carTypes == null || carTypes.isEmpty()) {
+            for (CarType carType : CarType.values()) {
+                partitions.add(carType.name());
+            }
+            partitions.add(UNKNOWN_CAR_TYPE);
+        } else {
+            carTypes.forEach(carType -> partitions.add(carType.name()));
+        }
+        return partitions;
+    }
+
+    private static boolean isMissingScript(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause.getMessage() != null && cause.getMessage().contains("NOSCRIPT")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    record ShardSearch(List<String> keys, List<String> partitionOfKey) {
+    }
+
+    private record Hit(DriverLocationDto driver, long lastSeenMillis) {
+    }
+
+    /**
+     * Where the state hash last placed a driver ('' when nowhere), and what decides its next partition
+     */
+    record StoredPlacement(String cell, String partition, String carType, boolean busy) {
+
+        static StoredPlacement of(List<?> fields) {
+            return new StoredPlacement(field(fields, 0), field(fields, 1), field(fields, 2), "1".equals(field(fields, 3)));
+        }
+
+        // {availability}:{car type}, with the car type reported now or the one remembered from an earlier report
+        String partitionFor(CarType reported) {
+            String type = reported != null ? reported.name() : !carType.isEmpty() ? carType : UNKNOWN_CAR_TYPE;
+            return (busy ? BUSY : AVAILABLE) + ":" + type;
+        }
+
+        private static String field(List<?> fields, int i) {
+            return fields != null && fields.size() > i && fields.get(i) != null ? fields.get(i).toString() : "";
+        }
+    }
+
+    // A script call whose keys all live in one slot
+    record ScriptCall(RedisScript<?> script, List<String> keys, List<String> args) {
+    }
+
+    @FunctionalInterface
+    public interface DriverPositionConsumer {
+        void accept(String driverId, Point point, CarType carType, long lastSeenMillis, boolean available);
+    }
 }
@@ -0,0 +1,76 @@
+package com.uber.location_service.location_service.controller;
+
+import com.uber.entity.models.CarType;
+import com.uber.location_service.location_service.dto.DriverLocationDto;
+import com.uber.location_service.location_service.dto.DriverSearchCriteria;
+import com.uber.location_service.location_service.service.AsyncLocationService;
+import lombok.AllArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Same operations as LocationController, completed asynchronously so the servlet thread is released
+ * while Redis answers
+ */
+@RestController
+@RequestMapping("/api/v1/location/async")
+@AllArgsConstructor
+public class AsyncLocationController {
+
+    private AsyncLocationService asyncLocationService;
+
+    @PostMapping("/update")
+    public CompletableFuture<ResponseEntity<Boolean>> updateDriverLocation(@RequestBody DriverLocationDto driverLocationDto) {
+        return asyncLocationService.updateDriverLocation(driverLocationDto)
+                .thenApply(result -> new ResponseEntity<>(result, HttpStatus.CREATED))
+                .exceptionally(e -> new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR));
+    }
+
+    @PostMapping("/update/batch")
+    public CompletableFuture<ResponseEntity<Integer>> updateDriverLocations(@RequestBody List<DriverLocationDto> driverLocations) {
+        return asyncLocationService.updateDriverLocations(driverLocations)
+                .thenApply(updated -> new ResponseEntity<>(updated, HttpStatus.CREATED))
+                .exceptionally(e -> new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR));
+    }
+
+    @GetMapping("/search")
+    public CompletableFuture<ResponseEntity<List<DriverLocationDto>>> searchNearbyDrivers(
+            @RequestParam double latitude,
+            @RequestParam double longitude,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) Double maxRadiusKm,
+            @RequestParam(required = false) Set<CarType> carTypes) {
+        return asyncLocationService.searchNearest(DriverSearchCriteria.builder()
+                        .latitude(latitude)
+                        .longitude(longitude)
+                        .limit(limit)
+                        .maxRadiusKm(maxRadiusKm)
+                        .carTypes(carTypes)
+                        .build())
+                .thenApply(result -> new ResponseEntity<>(result, HttpStatus.OK))
+                .exceptionally(e -> new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR));
+    }
+
+    @GetMapping("/driver/{driverId}")
+    public CompletableFuture<ResponseEntity<DriverLocationDto>> getDriverLocation(@PathVariable String driverId) {
+        return asyncLocationService.getDriverLocation(driverId)
+                .thenApply(location -> location
+                        .map(found -> new ResponseEntity<>(found, HttpStatus.OK))
+                        .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND)))
+                .exceptionally(e -> new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR));
+    }
+
+    @DeleteMapping("/driver/{driverId}")
+    public CompletableFuture<ResponseEntity<Boolean>> deleteDriverLocation(@PathVariable String driverId) {
+        return asyncLocationService.deleteDriverLocation(driverId)
+                .thenApply(deleted -> deleted
+                        ? new ResponseEntity<Boolean>(HttpStatus.OK)
+                        : new ResponseEntity<Boolean>(HttpStatus.NOT_FOUND))
+                .exceptionally(e -> new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR));
+    }
+}
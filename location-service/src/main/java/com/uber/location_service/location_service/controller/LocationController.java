@@ -1,6 +1,9 @@
 package com.uber.location_service.location_service.controller;
 
+import com.uber.entity.models.CarType;
 import com.uber.location_service.location_service.dto.DriverLocationDto;
+import com.uber.location_service.location_service.dto.DriverSearchCriteria;
+import com.uber.location_service.location_service.dto.HeatmapDto;
 import com.uber.location_service.location_service.service.LocationService;
 import lombok.AllArgsConstructor;
 import org.springframework.http.HttpStatus;
@@ -9,6 +12,7 @@ import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/v1/location")
@@ -27,13 +31,52 @@ public class LocationController {
         }
     }
 
+    @PostMapping("/update/batch")
+    public ResponseEntity<Integer> updateDriverLocations(@RequestBody List<DriverLocationDto> driverLocations) {
+        try {
+            Integer updated = locationService.updateDriverLocations(driverLocations);
+            return new ResponseEntity<>(updated, HttpStatus.CREATED);
+        } catch (Exception e) {
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
     @GetMapping("/search")
     public ResponseEntity<List<DriverLocationDto>> searchNearbyDrivers(
             @RequestParam double latitude,
-            @RequestParam double longitude) {
+            @RequestParam double longitude,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) Double maxRadiusKm,
+            @RequestParam(required = false) Set<CarType> carTypes) {
         try {
-            List<DriverLocationDto> result = locationService.searchNearBy(longitude, latitude);
-        return new ResponseEntity<>(result, HttpStatus.OK);
+            List<DriverLocationDto> result = locationService.searchNearest(DriverSearchCriteria.builder()
+                    .latitude(latitude)
+                    .longitude(longitude)
+                    .limit(limit)
+                    .maxRadiusKm(maxRadiusKm)
+                    .carTypes(carTypes)
+                    .build());
+            return new ResponseEntity<>(result, HttpStatus.OK);
+        } catch (Exception e) {
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Available drivers and recent ride requests per cell inside the bounding box
+     */
+    @GetMapping("/heatmap")
+    public ResponseEntity<HeatmapDto> getHeatmap(
+            @RequestParam double minLatitude,
+            @RequestParam double minLongitude,
+            @RequestParam double maxLatitude,
+            @RequestParam double maxLongitude) {
+        if (minLatitude > maxLatitude || minLongitude > maxLongitude) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        try {
+            HeatmapDto heatmap = locationService.getHeatmap(minLatitude, minLongitude, maxLatitude, maxLongitude);
+            return new ResponseEntity<>(heatmap, HttpStatus.OK);
         } catch (Exception e) {
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
         }
@@ -52,6 +95,18 @@ public class LocationController {
         }
     }
 
+    // Writes Redis and this instance's index only: other instances' indexes learn availability from the
+    // driver-availability topic, so this is for manual fixes, trips switch drivers through booking-service
+    @PutMapping("/driver/{driverId}/availability")
+    public ResponseEntity<Void> updateDriverAvailability(@PathVariable String driverId, @RequestParam boolean available) {
+        try {
+            locationService.updateDriverAvailability(driverId, available);
+            return new ResponseEntity<>(HttpStatus.OK);
+        } catch (Exception e) {
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
     @DeleteMapping("/driver/{driverId}")
     public ResponseEntity<Boolean> deleteDriverLocation(@PathVariable String driverId) {
         try {
@@ -0,0 +1,124 @@
+package com.uber.location_service.location_service.dispatch;
+
+import com.uber.location_service.location_service.dto.DriverLocationDto;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Assigns at most one driver to every request of a batch so that as many requests as possible get a
+ * driver and, among those assignments, the total pickup distance is minimal.
+ * Requests only compete with requests that share a candidate driver, so the batch is split into
+ * connected components first; a component with one request simply takes its nearest driver and only
+ * the contended components go through the Hungarian solver
+ */
+public final class BatchMatcher {
+
+    public static final int UNASSIGNED = -1;
+
+    // Cost of a request/driver pair that is not a candidate; dominates any real pickup distance so the
+    // solver maximises the number of matches before minimising distance
+    private static final double NO_EDGE = 1e9;
+
+    private BatchMatcher() {
+    }
+
+    /**
+     * @param candidates candidate drivers of every request, each with its pickup distance in km
+     * @return for every request the index of the assigned driver in its candidate list, or UNASSIGNED
+     */
+    public static int[] match(List<List<DriverLocationDto>> candidates) {
+        int requests = candidates.size();
+        int[] assigned = new int[requests];
+        Arrays.fill(assigned, UNASSIGNED);
+
+        // Union requests that share a driver
+        int[] parent = new int[requests];
+        for (int i = 0; i < requests; i++) {
+            parent[i] = i;
+        }
+        Map<String, Integer> firstRequestOfDriver = new HashMap<>();
+        for (int request = 0; request < requests; request++) {
+            for (DriverLocationDto driver : candidates.get(request)) {
+                Integer other = firstRequestOfDriver.putIfAbsent(driver.getDriverId(), request);
+                if (other != null) {
+                    union(parent, other, request);
+                }
+            }
+        }
+
+        Map<Integer, List<Integer>> components = new HashMap<>();
+        for (int request = 0; request < requests; request++) {
+            components.computeIfAbsent(find(parent, request), root -> new ArrayList<>()).add(request);
+        }
+        for (List<Integer> component : components.values()) {
+            if (component.size() == 1) {
+                int request = component.get(0);
+                assigned[request] = nearest(candidates.get(request));
+            } else {
+                solveComponent(candidates, component, assigned);
+            }
+        }
+        return assigned;
+    }
+
+    private static void solveComponent(List<List<DriverLocationDto>> candidates, List<Integer> component, int[] assigned) {
+        Map<String, Integer> columnOfDriver = new HashMap<>();
+        for (int request : component) {
+            for (DriverLocationDto driver : candidates.get(request)) {
+                columnOfDriver.putIfAbsent(driver.getDriverId(), columnOfDriver.size());
+            }
+        }
+        int rows = component.size();
+        // Extra no-edge columns keep the matrix solvable when requests outnumber drivers
+        int cols = Math.max(rows, columnOfDriver.size());
+        double[][] cost = new double[rows][cols];
+        for (int row = 0; row < rows; row++) {
+            Arrays.fill(cost[row], NO_EDGE);
+            for (DriverLocationDto driver : candidates.get(component.get(row))) {
+                int col = columnOfDriver.get(driver.getDriverId());
+                cost[row][col] = Math.min(cost[row][col], driver.getDistance());
+            }
+        }
+
+        int[] colOfRow = HungarianSolver.solve(cost);
+        for (int row = 0; row < rows; row++) {
+            int col = colOfRow[row];
+            if (cost[row][col] >= NO_EDGE) {
+                continue; // Every candidate went to a request that needed it more
+            }
+            List<DriverLocationDto> requestCandidates = candidates.get(component.get(row));
+            for (int i = 0; i < requestCandidates.size(); i++) {
+                if (columnOfDriver.get(requestCandidates.get(i).getDriverId()) == col) {
+                    assigned[component.get(row)] = i;
+                    break;
+                }
+            }
+        }
+    }
+
+    private static int nearest(List<DriverLocationDto> drivers) {
+        int best = UNASSIGNED;
+        for (int i = 0; i < drivers.size(); i++) {
+            if (best == UNASSIGNED || drivers.get(i).getDistance() < drivers.get(best).getDistance()) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    private static void union(int[] parent, int a, int b) {
+        parent[find(parent, a)] = find(parent, b);
+    }
+}
@@ -0,0 +1,149 @@
+package com.uber.location_service.location_service.dispatch;
+
+import com.uber.location_service.location_service.dto.DriverLocationDto;
+import com.uber.location_service.location_service.geo.GeoMath;
+import com.uber.location_service.location_service.kafka.dto.DriverSearchRequestMessage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Instead of offering every request to all nearby drivers, collects the requests of a short window
+ * and offers each one to a single driver picked by a global minimum-pickup-distance assignment (see BatchMatcher).
+ * A driver that was offered a request is held back from other requests for offer-hold-ms, so no driver
+ * gets two offers at once. Requests that lose all their candidates are carried into the next window,
+ * up to max-windows windows, and then reported as "no drivers".
+ * Only used when location.dispatch.matching=batch, delivery goes through the transport dispatcher
+ */
+@Component
+@Primary
+@ConditionalOnProperty(name = "location.dispatch.matching", havingValue = "batch")
+@Slf4j
+public class BatchMatchingDispatcher implements RideRequestDispatcher {
+
+    private final RideRequestDispatcher transport;
+    private final ConcurrentLinkedQueue<PendingRequest> pending = new ConcurrentLinkedQueue<>();
+    // Only touched by matchWindow, which never overlaps itself
+    private final List<PendingRequest> carried = new ArrayList<>();
+    private final Map<String, Long> heldUntil = new HashMap<>();
+    private final long offerHoldMillis;
+    private final int maxWindows;
+    private final Timer solveTimer;
+    private final Counter matchedRequests;
+    private final Counter carriedRequests;
+    private final Counter unmatchedRequests;
+
+    public BatchMatchingDispatcher(@Qualifier(RideRequestDispatcher.TRANSPORT) RideRequestDispatcher transport,
+                                   @Value("${location.dispatch.batch.offer-hold-ms:8000}") long offerHoldMillis,
+                                   @Value("${location.dispatch.batch.max-windows:3}") int maxWindows,
+                                   MeterRegistry meterRegistry) {
+        this.transport = transport;
+        this.offerHoldMillis = offerHoldMillis;
+        this.maxWindows = Math.max(1, maxWindows);
+        this.solveTimer = Timer.builder("location.dispatch.batch.solve")
+                .description("Time to assign drivers to one window of ride requests")
+                .register(meterRegistry);
+        this.matchedRequests = Counter.builder("location.dispatch.batch.requests")
+                .tag("result", "matched")
+                .description("Ride requests offered to their assigned driver")
+                .register(meterRegistry);
+        this.carriedRequests = Counter.builder("location.dispatch.batch.requests")
+                .tag("result", "carried")
+                .description("Ride requests without a free candidate, carried into the next window")
+                .register(meterRegistry);
+        this.unmatchedRequests = Counter.builder("location.dispatch.batch.requests")
+                .tag("result", "no-drivers")
+                .description("Ride requests still without a free candidate after max-windows, reported as no drivers")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void dispatch(DriverSearchRequestMessage message, List<DriverLocationDto> drivers) {
+        if (drivers.isEmpty()) {
+            transport.dispatch(message, drivers); // Nothing to match, report "no drivers" right away
+            return;
+        }
+        pending.add(new PendingRequest(message, withDistances(message, drivers), 1));
+    }
+
+    @Scheduled(fixedDelayString = "${location.dispatch.batch.window-ms:2000}")
+    public void matchWindow() {
+        List<PendingRequest> batch = new ArrayList<>(carried);
+        carried.clear();
+        PendingRequest request;
+        while ((request = pending.poll()) != null) {
+            batch.add(request);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        heldUntil.values().removeIf(until -> until <= now);
+
+        // Drivers still holding an offer from an earlier window are not candidates
+        List<List<DriverLocationDto>> candidates = new ArrayList<>(batch.size());
+        for (PendingRequest pendingRequest : batch) {
+            List<DriverLocationDto> free = new ArrayList<>(pendingRequest.drivers().size());
+            for (DriverLocationDto driver : pendingRequest.drivers()) {
+                if (!heldUntil.containsKey(driver.getDriverId())) {
+                    free.add(driver);
+                }
+            }
+            candidates.add(free);
+        }
+        int[] assigned = solveTimer.record(() -> BatchMatcher.match(candidates));
+
+        int matched = 0;
+        int carriedOver = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            PendingRequest pendingRequest = batch.get(i);
+            try {
+                if (assigned[i] != BatchMatcher.UNASSIGNED) {
+                    DriverLocationDto driver = candidates.get(i).get(assigned[i]);
+                    heldUntil.put(driver.getDriverId(), now + offerHoldMillis);
+                    transport.dispatch(pendingRequest.message(), List.of(driver));
+                    matched++;
+                } else if (pendingRequest.windows() < maxWindows) {
+                    carried.add(new PendingRequest(pendingRequest.message(), pendingRequest.drivers(), pendingRequest.windows() + 1));
+                    carriedOver++;
+                } else {
+                    transport.dispatch(pendingRequest.message(), List.of()); // Reported as "no drivers"
+                }
+            } catch (Exception e) {
+                log.error("Failed to dispatch ride request {}", pendingRequest.message().getRequestId(), e);
+            }
+        }
+        matchedRequests.increment(matched);
+        carriedRequests.increment(carriedOver);
+        unmatchedRequests.increment(batch.size() - matched - carriedOver);
+        log.debug("Matched {} of {} ride requests in window, {} carried over", matched, batch.size(), carriedOver);
+    }
+
+    // Redis searches may come back without distances
+    private static List<DriverLocationDto> withDistances(DriverSearchRequestMessage message, List<DriverLocationDto> drivers) {
+        for (DriverLocationDto driver : drivers) {
+            if (driver.getDistance() == null) {
+                driver.setDistance(GeoMath.haversineKm(message.getPickupLatitude(), message.getPickupLongitude(),
+                        driver.getLatitude(), driver.getLongitude()));
+            }
+        }
+        return drivers;
+    }
+
+    // windows counts the matching windows the request has been part of, including the current one
+    private record PendingRequest(DriverSearchRequestMessage message, List<DriverLocationDto> drivers, int windows) {
+    }
+}
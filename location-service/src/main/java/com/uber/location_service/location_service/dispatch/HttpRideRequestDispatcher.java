@@ -0,0 +1,196 @@
+package com.uber.location_service.location_service.dispatch;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.uber.location_service.location_service.dto.DriverLocationDto;
+import com.uber.location_service.location_service.kafka.dto.DriverSearchRequestMessage;
+import com.uber.location_service.location_service.kafka.dto.DriverSearchResponseMessage;
+import com.uber.location_service.location_service.kafka.producer.DriverSearchResponseProducer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * POSTs ride requests to socket-service /api/ride-requests/send without waiting for the answer.
+ * The JDK client keeps a pool of HTTP/2 (or keep-alive HTTP/1.1) connections; a semaphore bounds the
+ * requests in flight so a slow socket-service cannot pile up unbounded work, and failed attempts
+ * (I/O errors, timeouts, 5xx) are retried with exponential backoff. Socket-service ignores repeats of a
+ * requestId (or bookingId) it already has, so only those requests are retried after they may have arrived;
+ * a request with neither is only retried when the connection could not be made. A request that finds no
+ * free slot is answered with an empty driver list on the response topic, so booking-service reports
+ * "no drivers" instead of waiting for its timeout.
+ * Only used when location.dispatch.mode=http
+ */
+@Component
+@Qualifier(RideRequestDispatcher.TRANSPORT)
+@ConditionalOnProperty(name = "location.dispatch.mode", havingValue = "http")
+@Slf4j
+public class HttpRideRequestDispatcher implements RideRequestDispatcher {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final DriverSearchResponseProducer responseProducer;
+    private final HttpClient httpClient;
+    private final Semaphore inFlight;
+    private final URI sendUri;
+    private final Duration requestTimeout;
+    private final long acquireTimeoutMs;
+    private final int maxAttempts;
+    private final long initialBackoffMs;
+    private final long timeoutSeconds;
+
+    public HttpRideRequestDispatcher(DriverSearchResponseProducer responseProducer,
+                                     @Value("${socket.service.url}") String socketServiceUrl,
+                                     @Value("${location.dispatch.http.connect-timeout-ms:1000}") long connectTimeoutMs,
+                                     @Value("${location.dispatch.http.request-timeout-ms:3000}") long requestTimeoutMs,
+                                     @Value("${location.dispatch.http.max-in-flight:256}") int maxInFlight,
+                                     @Value("${location.dispatch.http.acquire-timeout-ms:50}") long acquireTimeoutMs,
+                                     @Value("${location.dispatch.http.max-attempts:3}") int maxAttempts,
+                                     @Value("${location.dispatch.http.initial-backoff-ms:100}") long initialBackoffMs,
+                                     @Value("${location.dispatch.timeout-seconds:30}") long timeoutSeconds) {
+        this.responseProducer = responseProducer;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2) // Falls back to HTTP/1.1 when the server does not upgrade
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .build();
+        this.inFlight = new Semaphore(maxInFlight);
+        this.sendUri = URI.create(socketServiceUrl + "/api/ride-requests/send");
+        this.requestTimeout = Duration.ofMillis(requestTimeoutMs);
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoffMs = initialBackoffMs;
+        this.timeoutSeconds = timeoutSeconds;
+    }
+
+    @Override
+    public void dispatch(DriverSearchRequestMessage message, List<DriverLocationDto> drivers) {
+        String identifier = identifier(message);
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(sendUri)
+                    .timeout(requestTimeout)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(toRequestBody(message, drivers, timeoutSeconds))))
+                    .build();
+        } catch (JsonProcessingException e) {
+            log.error("Failed to serialize ride request for {}", identifier, e);
+            return;
+        }
+
+        // Waits at most acquireTimeoutMs for a slot, so the listener keeps moving even when socket-service is slow
+        boolean acquired;
+        try {
+            acquired = inFlight.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        if (!acquired) {
+            log.error("Rejecting ride request for {}: in-flight limit to socket service reached", identifier);
+            respondNoDrivers(message, identifier);
+            return;
+        }
+
+        boolean repeatable = message.getRequestId() != null || message.getBookingId() != null;
+        send(request, identifier, drivers.size(), repeatable, 1)
+                .whenComplete((response, e) -> inFlight.release());
+    }
+
+    private CompletableFuture<HttpResponse<String>> send(HttpRequest request, String identifier, int driverCount,
+                                                         boolean repeatable, int attempt) {
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .handle((response, e) -> {
+                    if (e == null && response.statusCode() < 500) {
+                        if (response.statusCode() >= 400) {
+                            log.warn("Socket service rejected ride requests for {}: status={}, body={}",
+                                    identifier, response.statusCode(), response.body());
+                        } else {
+                            log.info("Sent ride requests to socket service for {}, drivers: {}, response: {}",
+                                    identifier, driverCount, response.body());
+                        }
+                        return CompletableFuture.completedFuture(response);
+                    }
+                    if (attempt >= maxAttempts || !(repeatable || isConnectFailure(e))) {
+                        log.error("Failed to send ride requests to socket service for {} after {} attempts",
+                                identifier, attempt, e);
+                        return CompletableFuture.<HttpResponse<String>>completedFuture(response);
+                    }
+                    long backoffMs = initialBackoffMs << (attempt - 1);
+                    log.warn("Attempt {} to send ride requests for {} failed ({}), retrying in {} ms", attempt, identifier,
+                            e != null ? e.getClass().getSimpleName() : "status " + response.statusCode(), backoffMs);
+                    Executor delayed = CompletableFuture.delayedExecutor(backoffMs, TimeUnit.MILLISECONDS);
+                    return CompletableFuture.supplyAsync(() -> request, delayed)
+                            .thenCompose(retry -> send(retry, identifier, driverCount, repeatable, attempt + 1));
+                })
+                .thenCompose(result -> result);
+    }
+
+    // The request never reached socket-service, so sending it again cannot offer the ride twice
+    private static boolean isConnectFailure(Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        return cause instanceof ConnectException || cause instanceof HttpConnectTimeoutException;
+    }
+
+    private void respondNoDrivers(DriverSearchRequestMessage message, String identifier) {
+        try {
+            responseProducer.sendDriverSearchResponse(DriverSearchResponseMessage.builder()
+                    .bookingId(message.getBookingId())
+                    .requestId(message.getRequestId())
+                    .userId(message.getUserId())
+                    .drivers(List.of())
+                    .build());
+        } catch (Exception e) {
+            log.error("Failed to report no drivers for {}", identifier, e);
+        }
+    }
+
+    private static Map<String, Object> toRequestBody(DriverSearchRequestMessage message, List<DriverLocationDto> drivers,
+                                                     long timeoutSeconds) {
+        Map<String, Object> rideRequest = new HashMap<>();
+        rideRequest.put("bookingId", message.getBookingId());
+        rideRequest.put("requestId", message.getRequestId());
+        rideRequest.put("userId", message.getUserId());
+        rideRequest.put("pickupLatitude", message.getPickupLatitude());
+        rideRequest.put("pickupLongitude", message.getPickupLongitude());
+        rideRequest.put("dropoffLatitude", message.getDropoffLatitude());
+        rideRequest.put("dropoffLongitude", message.getDropoffLongitude());
+        rideRequest.put("price", message.getPrice());
+        rideRequest.put("timeoutSeconds", timeoutSeconds);
+
+        // Socket service takes the driver ids from this list
+        List<Map<String, Object>> driverList = drivers.stream()
+                .map(driver -> {
+                    Map<String, Object> driverMap = new HashMap<>();
+                    driverMap.put("driverId", driver.getDriverId());
+                    driverMap.put("latitude", driver.getLatitude());
+                    driverMap.put("longitude", driver.getLongitude());
+                    return driverMap;
+                })
+                .collect(Collectors.toList());
+        rideRequest.put("drivers", driverList);
+        return rideRequest;
+    }
+
+    private static String identifier(DriverSearchRequestMessage message) {
+        return message.getRequestId() != null ? message.getRequestId() :
+               (message.getBookingId() != null ? "bookingId:" + message.getBookingId() : "unknown");
+    }
+}
@@ -0,0 +1,87 @@
+package com.uber.location_service.location_service.dispatch;
+
+import java.util.Arrays;
+
+/**
+ * Minimum-cost assignment (Hungarian algorithm with potentials, O(rows^2 * cols)).
+ * Works on a dense rows x cols matrix with rows <= cols, so every row gets a column
+ */
+public final class HungarianSolver {
+
+    private HungarianSolver() {
+    }
+
+    /**
+     * @param cost row-major cost matrix, cost[row][col]; all rows must have the same length, at least rows.length
+     * @return the column assigned to every row
+     */
+    public static int[] solve(double[][] cost) {
+        int rows = cost.length;
+        if (rows == 0) {
+            return new int[0];
+        }
+        int cols = cost[0].length;
+        if (rows > cols) {
+            throw new IllegalArgumentException("Need at least as many columns as rows, got " + rows + "x" + cols);
+        }
+
+        // 1-based arrays: index 0 is the virtual row/column the augmenting path starts from
+        double[] rowPotential = new double[rows + 1];
+        double[] colPotential = new double[cols + 1];
+        int[] rowOfCol = new int[cols + 1];
+        int[] previousCol = new int[cols + 1];
+        double[] minSlack = new double[cols + 1];
+        boolean[] visited = new boolean[cols + 1];
+
+        for (int row = 1; row <= rows; row++) {
+            rowOfCol[0] = row;
+            int col = 0;
+            Arrays.fill(minSlack, Double.POSITIVE_INFINITY);
+            Arrays.fill(visited, false);
+            // Grow the alternating tree until it reaches a free column
+            do {
+                visited[col] = true;
+                int treeRow = rowOfCol[col];
+                double[] rowCost = cost[treeRow - 1];
+                double delta = Double.POSITIVE_INFINITY;
+                int nextCol = 0;
+                for (int j = 1; j <= cols; j++) {
+                    if (!visited[j]) {
+                        double slack = rowCost[j - 1] - rowPotential[treeRow] - colPotential[j];
+                        if (slack < minSlack[j]) {
+                            minSlack[j] = slack;
+                            previousCol[j] = col;
+                        }
+                        if (minSlack[j] < delta) {
+                            delta = minSlack[j];
+                            nextCol = j;
+                        }
+                    }
+                }
+                for (int j = 0; j <= cols; j++) {
+                    if (visited[j]) {
+                        rowPotential[rowOfCol[j]] += delta;
+                        colPotential[j] -= delta;
+                    } else {
+                        minSlack[j] -= delta;
+                    }
+                }
+                col = nextCol;
+            } while (rowOfCol[col] != 0);
+            // Flip the augmenting path
+            do {
+                int previous = previousCol[col];
+                rowOfCol[col] = rowOfCol[previous];
+                col = previous;
+            } while (col != 0);
+        }
+
+        int[] colOfRow = new int[rows];
+        for (int j = 1; j <= cols; j++) {
+            if (rowOfCol[j] != 0) {
+                colOfRow[rowOfCol[j] - 1] = j - 1;
+            }
+        }
+        return colOfRow;
+    }
+}
@@ -0,0 +1,74 @@
+package com.uber.location_service.location_service.dispatch;
+
+import com.uber.location_service.location_service.dto.DriverLocationDto;
+import com.uber.location_service.location_service.kafka.dto.DriverLocationMessage;
+import com.uber.location_service.location_service.kafka.dto.DriverSearchRequestMessage;
+import com.uber.location_service.location_service.kafka.dto.RideRequestDispatch;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Publishes ride requests to the ride-request-dispatch topic, socket-service consumes it directly.
+ * Default dispatcher, location.dispatch.mode=http switches back to the REST call
+ */
+@Component
+@Qualifier(RideRequestDispatcher.TRANSPORT)
+@ConditionalOnProperty(name = "location.dispatch.mode", havingValue = "kafka", matchIfMissing = true)
+@RequiredArgsConstructor
+@Slf4j
+public class KafkaRideRequestDispatcher implements RideRequestDispatcher {
+
+    private final KafkaTemplate<String, RideRequestDispatch> rideRequestDispatchKafkaTemplate;
+
+    @Value("${kafka.topic.ride-request-dispatch}")
+    private String rideRequestDispatchTopic; // Not final - injected via @Value
+
+    @Value("${location.dispatch.timeout-seconds:30}")
+    private long timeoutSeconds;
+
+    @Override
+    public void dispatch(DriverSearchRequestMessage message, List<DriverLocationDto> drivers) {
+        String key = message.getRequestId() != null ? message.getRequestId() :
+                     (message.getBookingId() != null ? message.getBookingId().toString() : null);
+        if (key == null) {
+            log.error("Dropping ride request without requestId or bookingId");
+            return;
+        }
+
+        RideRequestDispatch event = RideRequestDispatch.builder()
+                .bookingId(message.getBookingId())
+                .requestId(message.getRequestId())
+                .userId(message.getUserId())
+                .pickupLatitude(message.getPickupLatitude())
+                .pickupLongitude(message.getPickupLongitude())
+                .dropoffLatitude(message.getDropoffLatitude())
+                .dropoffLongitude(message.getDropoffLongitude())
+                .price(message.getPrice())
+                .timeoutSeconds(timeoutSeconds)
+                .drivers(drivers.stream()
+                        .map(driver -> DriverLocationMessage.builder()
+                                .driverId(driver.getDriverId())
+                                .latitude(driver.getLatitude())
+                                .longitude(driver.getLongitude())
+                                .build())
+                        .collect(Collectors.toList()))
+                .build();
+
+        rideRequestDispatchKafkaTemplate.send(rideRequestDispatchTopic, key, event)
+                .whenComplete((result, ex) -> {
+                    if (ex == null) {
+                        log.info("Published ride request for {} to {} drivers", key, drivers.size());
+                    } else {
+                        log.error("Failed to publish ride request for {}", key, ex);
+                    }
+                });
+    }
+}
@@ -0,0 +1,21 @@
+package com.uber.location_service.location_service.dispatch;
+
+import com.uber.location_service.location_service.dto.DriverLocationDto;
+import com.uber.location_service.location_service.kafka.dto.DriverSearchRequestMessage;
+
+import java.util.List;
+
+/**
+ * Hands the drivers found for a search request over to socket-service, which offers them the ride.
+ * Implementations must not block the caller (a Kafka listener thread) on the delivery
+ */
+public interface RideRequestDispatcher {
+
+    /**
+     * Qualifier of the dispatcher that actually delivers requests (Kafka or HTTP), as opposed to
+     * strategies such as batch matching that decide which drivers get them
+     */
+    String TRANSPORT = "rideRequestTransport";
+
+    void dispatch(DriverSearchRequestMessage message, List<DriverLocationDto> drivers);
+}
@@ -1,5 +1,6 @@
 package com.uber.location_service.location_service.dto;
 
+import com.uber.entity.models.CarType;
 import lombok.*;
 
 @Getter
@@ -11,4 +12,6 @@ public class DriverLocationDto {
     private String driverId;
     private double latitude;
     private double longitude;
+    private CarType carType; // Vehicle type if known; on updates null keeps the last reported type
+    private Double distance; // Distance from the search point in km, null outside of searches
 }
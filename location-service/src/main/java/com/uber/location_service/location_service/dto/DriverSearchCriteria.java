@@ -0,0 +1,21 @@
+package com.uber.location_service.location_service.dto;
+
+import com.uber.entity.models.CarType;
+import lombok.*;
+
+import java.util.List;
+import java.util.Set;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class DriverSearchCriteria {
+    private double latitude;
+    private double longitude;
+    private Integer limit; // k nearest drivers wanted, null for the configured default
+    private List<Double> radiusStepsKm; // Radii tried in order until limit drivers are found, null for defaults
+    private Double maxRadiusKm; // Hard cap on the search radius, null for the configured default
+    private Set<CarType> carTypes; // Only drivers with one of these vehicle types, null or empty for any
+}
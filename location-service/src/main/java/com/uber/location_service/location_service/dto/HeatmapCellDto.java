@@ -0,0 +1,15 @@
+package com.uber.location_service.location_service.dto;
+
+import lombok.*;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class HeatmapCellDto {
+    private double latitude; // Center of the cell
+    private double longitude;
+    private int availableDrivers;
+    private long rideRequests; // Ride requests picked up in this cell during the demand window
+}
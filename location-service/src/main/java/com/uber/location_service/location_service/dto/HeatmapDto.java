@@ -0,0 +1,16 @@
+package com.uber.location_service.location_service.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class HeatmapDto {
+    private double cellSizeDegrees;
+    private long demandWindowSeconds;
+    private List<HeatmapCellDto> cells; // Only cells with available drivers or recent ride requests
+}
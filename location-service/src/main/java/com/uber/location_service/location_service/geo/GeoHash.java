@@ -0,0 +1,127 @@
+package com.uber.location_service.location_service.geo;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Minimal base32 geohash encoder, used to bucket coordinates into coarse cells
+ */
+public final class GeoHash {
+
+    public static final int MAX_PRECISION = 12;
+    private static final char[] BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+
+    private GeoHash() {
+    }
+
+    public static String encode(double latitude, double longitude, int precision) {
+        checkPrecision(precision);
+        double minLat = -90, maxLat = 90;
+        double minLon = -180, maxLon = 180;
+        StringBuilder hash = new StringBuilder(precision);
+        boolean evenBit = true; // Bits alternate longitude, latitude, longitude...
+        int bit = 0;
+        int ch = 0;
+        while (hash.length() < precision) {
+            if (evenBit) {
+                double mid = (minLon + maxLon) / 2;
+                if (longitude >= mid) {
+                    ch = (ch << 1) | 1;
+                    minLon = mid;
+                } else {
+                    ch = ch << 1;
+                    maxLon = mid;
+                }
+            } else {
+                double mid = (minLat + maxLat) / 2;
+                if (latitude >= mid) {
+                    ch = (ch << 1) | 1;
+                    minLat = mid;
+                } else {
+                    ch = ch << 1;
+                    maxLat = mid;
+                }
+            }
+            evenBit = !evenBit;
+            if (++bit == 5) {
+                hash.append(BASE32[ch]);
+                bit = 0;
+                ch = 0;
+            }
+        }
+        return hash.toString();
+    }
+
+    /**
+     * Height of a cell in degrees of latitude
+     */
+    public static double cellHeightDegrees(int precision) {
+        checkPrecision(precision);
+        int latitudeBits = (5 * precision) / 2;
+        return 180.0 / (1L << latitudeBits);
+    }
+
+    /**
+     * Width of a cell in degrees of longitude
+     */
+    public static double cellWidthDegrees(int precision) {
+        checkPrecision(precision);
+        int longitudeBits = (5 * precision + 1) / 2;
+        return 360.0 / (1L << longitudeBits);
+    }
+
+    /**
+     * Every cell of the given precision that overlaps the bounding box. Longitudes past +-180 wrap around,
+     * so a box crossing the antimeridian also covers the cells on the other side
+     */
+    public static Set<String> covering(double minLat, double minLon, double maxLat, double maxLon, int precision) {
+        Set<String> cells = new LinkedHashSet<>();
+        if (maxLon - minLon >= 360) {
+            addCovering(minLat, -180, maxLat, 180, precision, cells);
+        } else if (minLon < -180) {
+            addCovering(minLat, minLon + 360, maxLat, 180, precision, cells);
+            addCovering(minLat, -180, maxLat, maxLon, precision, cells);
+        } else if (maxLon > 180) {
+            addCovering(minLat, minLon, maxLat, 180, precision, cells);
+            addCovering(minLat, -180, maxLat, maxLon - 360, precision, cells);
+        } else {
+            addCovering(minLat, minLon, maxLat, maxLon, precision, cells);
+        }
+        return cells;
+    }
+
+    private static void addCovering(double minLat, double minLon, double maxLat, double maxLon, int precision,
+                                    Set<String> cells) {
+        double height = cellHeightDegrees(precision);
+        double width = cellWidthDegrees(precision);
+        double south = clampLatitude(minLat);
+        double north = clampLatitude(maxLat);
+        double west = clampLongitude(minLon);
+        double east = clampLongitude(maxLon);
+        for (double lat = south; ; lat = Math.min(north, lat + height)) {
+            for (double lon = west; ; lon = Math.min(east, lon + width)) {
+                cells.add(encode(lat, lon, precision));
+                if (lon >= east) {
+                    break;
+                }
+            }
+            if (lat >= north) {
+                break;
+            }
+        }
+    }
+
+    private static double clampLatitude(double latitude) {
+        return Math.max(-90, Math.min(90, latitude));
+    }
+
+    private static double clampLongitude(double longitude) {
+        return Math.max(-180, Math.min(180, longitude));
+    }
+
+    private static void checkPrecision(int precision) {
+        if (precision < 1 || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("Geohash precision must be between 1 and " + MAX_PRECISION);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.uber.location_service.location_service.geo;
+
+public final class GeoMath {
+
+    public static final double EARTH_RADIUS_KM = 6371.0;
+    public static final double KM_PER_DEGREE_LATITUDE = 110.574;
+    public static final double KM_PER_DEGREE_LONGITUDE_AT_EQUATOR = 111.320;
+
+    private GeoMath() {
+    }
+
+    /**
+     * Haversine formula for the great-circle distance between two coordinates, in km
+     */
+    public static double haversineKm(double lat1, double lon1, double lat2, double lon2) {
+        double latDistance = Math.toRadians(lat2 - lat1);
+        double lonDistance = Math.toRadians(lon2 - lon1);
+        double sinLat = Math.sin(latDistance / 2);
+        double sinLon = Math.sin(lonDistance / 2);
+        double a = sinLat * sinLat
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * sinLon * sinLon;
+        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+        return EARTH_RADIUS_KM * c;
+    }
+
+    /**
+     * Length of one degree of longitude at the given latitude, in km
+     */
+    public static double kmPerDegreeLongitude(double latitude) {
+        return KM_PER_DEGREE_LONGITUDE_AT_EQUATOR * Math.cos(Math.toRadians(latitude));
+    }
+}
@@ -0,0 +1,127 @@
+package com.uber.location_service.location_service.index;
+
+import com.uber.location_service.location_service.configs.RedisGeo;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rebuilds the in-memory driver index and the supply heatmap once the application is up.
+ * The index is first filled from the local snapshot (if a recent one exists) and marked ready, then
+ * caught up from Redis; live updates keep arriving meanwhile and are never overwritten by older data.
+ * Snapshot drivers the catch-up did not find in Redis (deleted or expired since) and that have not reported
+ * since are removed once it finishes. Until then they, and drivers that went busy, can still be offered.
+ * Time from JVM start until searches are served from the index is logged and exposed as
+ * location.index.startup.ready-ms
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DriverIndexLoader {
+
+    private final RedisGeo redisGeo;
+    private final DriverSpatialIndex driverIndex;
+    private final SupplyDemandHeatmap heatmap;
+    private final IndexSnapshotStore snapshotStore;
+    private final MeterRegistry meterRegistry;
+    private final AtomicLong readyMillis = new AtomicLong(-1);
+    private final AtomicLong snapshotDrivers = new AtomicLong(-1);
+
+    @Value("${location.index.enabled:true}")
+    private boolean indexEnabled; // Not final - injected via @Value
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadFromRedis() {
+        if (!indexEnabled && !heatmap.isEnabled()) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            int fromSnapshot = -1;
+            if (indexEnabled) {
+                long snapshotStart = System.nanoTime();
+                fromSnapshot = snapshotStore.load(System.currentTimeMillis());
+                snapshotDrivers.set(fromSnapshot);
+                if (fromSnapshot >= 0) {
+                    markIndexReady();
+                    log.info("Loaded {} drivers from the index snapshot in {} ms, catching up from Redis",
+                            fromSnapshot, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - snapshotStart));
+                }
+            }
+            // Only needed to prune what the snapshot brought in
+            LongIntHashMap inRedis = fromSnapshot > 0 ? new LongIntHashMap(fromSnapshot) : null;
+            long catchUpStartMillis = System.currentTimeMillis();
+            int loaded = redisGeo.forEachDriverLocation((driverId, point, carType, lastSeenMillis, available) -> {
+                try {
+                    long id = Long.parseLong(driverId);
+                    if (inRedis != null) {
+                        inRedis.put(id, 1);
+                    }
+                    // Busy flag before the position, so a busy driver never enters the searchable grid
+                    if (!available) {
+                        if (indexEnabled) {
+                            driverIndex.setAvailable(id, false);
+                        }
+                        if (heatmap.isEnabled()) {
+                            heatmap.setAvailable(id, false);
+                        }
+                    }
+                    if (point == null) {
+                        return;
+                    }
+                    if (indexEnabled) {
+                        driverIndex.upsert(id, point.getY(), point.getX(), lastSeenMillis, carType);
+                    }
+                    if (heatmap.isEnabled()) {
+                        heatmap.onLocation(id, point.getY(), point.getX(), lastSeenMillis);
+                    }
+                } catch (NumberFormatException e) {
+                    log.warn("Skipping non-numeric driverId while loading index: {}", driverId);
+                }
+            });
+            if (inRedis != null) {
+                int pruned = removeMissingFromRedis(inRedis, catchUpStartMillis);
+                log.info("Removed {} snapshot drivers no longer in Redis", pruned);
+            }
+            if (indexEnabled && !driverIndex.isReady()) {
+                markIndexReady();
+            }
+            log.info("Loaded {} driver locations from Redis into the in-memory index in {} ms",
+                    loaded, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (Exception e) {
+            log.error("Failed to load driver index from Redis, searches will keep using Redis", e);
+        }
+    }
+
+    // Drivers that reported after the catch-up started came from live updates and are kept
+    private int removeMissingFromRedis(LongIntHashMap inRedis, long catchUpStartMillis) {
+        List<Long> missing = new ArrayList<>();
+        driverIndex.forEachDriver((driverId, latitude, longitude, lastSeenMillis, carType) -> {
+            if (lastSeenMillis < catchUpStartMillis && inRedis.get(driverId, 0) == 0) {
+                missing.add(driverId);
+            }
+        });
+        for (long driverId : missing) {
+            driverIndex.remove(driverId);
+        }
+        return missing.size();
+    }
+
+    private void markIndexReady() {
+        driverIndex.markReady();
+        readyMillis.set(System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime());
+        meterRegistry.gauge("location.index.startup.ready-ms", readyMillis);
+        meterRegistry.gauge("location.index.startup.snapshot-drivers", snapshotDrivers);
+        log.info("Driver index ready {} ms after JVM start", readyMillis.get());
+    }
+}
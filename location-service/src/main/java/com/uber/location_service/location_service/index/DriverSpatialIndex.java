@@ -0,0 +1,549 @@
+package com.uber.location_service.location_service.index;
+
+import com.uber.entity.models.CarType;
+import com.uber.location_service.location_service.dto.DriverLocationDto;
+import com.uber.location_service.location_service.geo.GeoMath;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory grid index of driver positions.
+ * The world is cut into square cells of cellSizeDegrees; every driver owns a slot in a set of
+ * primitive arrays (driver id -> slot -> cell) and every non-empty cell owns a bucket holding the
+ * slots and packed coordinates of the drivers inside it. Nearest-driver queries walk rings of cells
+ * outwards from the query point until the k best candidates can no longer be beaten.
+ * Each slot also remembers when the driver last reported so searches can skip stale drivers.
+ * Only available drivers are placed in cells; busy drivers (on a trip) keep their slot but stay out
+ * of the grid, so searches never visit them.
+ * Cells are further partitioned by vehicle type: a driver sits in the cell of its CarType (or of the
+ * unknown partition), and a search for given car types only visits those partitions.
+ */
+@Component
+public class DriverSpatialIndex {
+
+    private static final int INITIAL_SLOTS = 1024;
+    private static final int INITIAL_BUCKET_CAPACITY = 4;
+    private static final double COORDINATE_SCALE = 1_000_000d; // Packed coordinates keep 6 decimals (~0.1 m)
+    private static final int NO_VALUE = -1;
+    private static final CarType[] CAR_TYPES = CarType.values();
+    private static final int UNKNOWN_CAR_TYPE = CAR_TYPES.length; // Partition of drivers whose vehicle is unknown
+    private static final int[] ALL_PARTITIONS = allPartitions();
+    private static final int PARTITION_SHIFT = 56; // Cell keys use bits 0-31 for longitude, 32-55 for latitude
+    private static final long MAX_LATITUDE_CELLS = 1L << (PARTITION_SHIFT - 32);
+
+    private final double cellSizeDegrees;
+    private final long longitudeCells;
+    private final long latitudeCells;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean ready;
+
+    // Driver state, indexed by slot
+    private final LongIntHashMap driverSlots = new LongIntHashMap(INITIAL_SLOTS);
+    private long[] slotDriverId = new long[INITIAL_SLOTS];
+    private double[] slotLatitude = new double[INITIAL_SLOTS];
+    private double[] slotLongitude = new double[INITIAL_SLOTS];
+    private long[] slotCell = new long[INITIAL_SLOTS];
+    private long[] slotLastSeen = new long[INITIAL_SLOTS];
+    private int[] slotCarType = new int[INITIAL_SLOTS];
+    private boolean[] slotInGrid = new boolean[INITIAL_SLOTS];
+    private int[] slotBucketPosition = new int[INITIAL_SLOTS];
+    private int[] freeSlots = new int[INITIAL_SLOTS];
+    private int freeSlotCount;
+    private int slotHighWater;
+
+    // Drivers currently on a trip, tracked even before their first position arrives
+    private final LongIntHashMap busyDrivers = new LongIntHashMap(INITIAL_SLOTS);
+
+    // Cell state, indexed by bucket
+    private final LongIntHashMap cellBuckets = new LongIntHashMap(INITIAL_SLOTS);
+    private int[][] bucketSlots = new int[INITIAL_SLOTS][];
+    private long[][] bucketCoordinates = new long[INITIAL_SLOTS][];
+    private int[] bucketSize = new int[INITIAL_SLOTS];
+    private int[] freeBuckets = new int[INITIAL_SLOTS];
+    private int freeBucketCount;
+    private int bucketHighWater;
+
+    public DriverSpatialIndex(@Value("${location.index.cell-size-degrees:0.01}") double cellSizeDegrees) {
+        if (cellSizeDegrees <= 0 || cellSizeDegrees > 1) {
+            throw new IllegalArgumentException("Cell size must be in (0, 1] degrees, got " + cellSizeDegrees);
+        }
+        this.cellSizeDegrees = cellSizeDegrees;
+        this.longitudeCells = (long) Math.ceil(360 / cellSizeDegrees);
+        this.latitudeCells = (long) Math.ceil(180 / cellSizeDegrees);
+        if (latitudeCells > MAX_LATITUDE_CELLS) {
+            throw new IllegalArgumentException("Cell size too small for packed cell keys, got " + cellSizeDegrees);
+        }
+    }
+
+    /**
+     * Insert or move a driver. A null carType keeps the vehicle type last reported for the driver
+     */
+    public void upsert(long driverId, double latitude, double longitude, long seenAtMillis, CarType carType) {
+        long gridCell = cellOf(latitude, longitude);
+        lock.writeLock().lock();
+        try {
+            boolean available = busyDrivers.get(driverId, NO_VALUE) == NO_VALUE;
+            int slot = driverSlots.get(driverId, NO_VALUE);
+            if (slot == NO_VALUE) {
+                slot = allocateSlot();
+                slotDriverId[slot] = driverId;
+                slotInGrid[slot] = false;
+                slotCarType[slot] = UNKNOWN_CAR_TYPE;
+                driverSlots.put(driverId, slot);
+            } else if (seenAtMillis < slotLastSeen[slot]) {
+                return; // Older than what we have, e.g. a snapshot or Redis load racing live updates
+            }
+            if (carType != null) {
+                slotCarType[slot] = carType.ordinal();
+            }
+            long cell = inPartition(gridCell, slotCarType[slot]);
+            if (slotInGrid[slot] && (!available || slotCell[slot] != cell)) {
+                removeFromCell(slot);
+                slotInGrid[slot] = false;
+            }
+            if (available) {
+                if (slotInGrid[slot]) {
+                    int bucket = cellBuckets.get(cell, NO_VALUE);
+                    bucketCoordinates[bucket][slotBucketPosition[slot]] = pack(latitude, longitude);
+                } else {
+                    addToCell(cell, slot, latitude, longitude);
+                    slotInGrid[slot] = true;
+                }
+            }
+            slotLatitude[slot] = latitude;
+            slotLongitude[slot] = longitude;
+            slotLastSeen[slot] = seenAtMillis;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean remove(long driverId) {
+        lock.writeLock().lock();
+        try {
+            int slot = driverSlots.remove(driverId, NO_VALUE);
+            if (slot == NO_VALUE) {
+                return false;
+            }
+            if (slotInGrid[slot]) {
+                removeFromCell(slot);
+            }
+            freeSlot(slot);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Move a driver in or out of the searchable grid when a trip starts or ends
+     */
+    public void setAvailable(long driverId, boolean available) {
+        lock.writeLock().lock();
+        try {
+            if (available) {
+                busyDrivers.remove(driverId, NO_VALUE);
+            } else {
+                busyDrivers.put(driverId, 1);
+            }
+            int slot = driverSlots.get(driverId, NO_VALUE);
+            if (slot == NO_VALUE) {
+                return;
+            }
+            if (!available && slotInGrid[slot]) {
+                removeFromCell(slot);
+                slotInGrid[slot] = false;
+            } else if (available && !slotInGrid[slot]) {
+                double latitude = slotLatitude[slot];
+                double longitude = slotLongitude[slot];
+                addToCell(inPartition(cellOf(latitude, longitude), slotCarType[slot]), slot, latitude, longitude);
+                slotInGrid[slot] = true;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Drop every driver that has not reported since cutoffMillis, returns how many were removed
+     */
+    public int removeStale(long cutoffMillis) {
+        lock.writeLock().lock();
+        try {
+            int removed = 0;
+            for (int slot = 0; slot < slotHighWater; slot++) {
+                long driverId = slotDriverId[slot];
+                if (slotLastSeen[slot] < cutoffMillis && driverSlots.get(driverId, NO_VALUE) == slot) {
+                    driverSlots.remove(driverId, NO_VALUE);
+                    if (slotInGrid[slot]) {
+                        removeFromCell(slot);
+                    }
+                    freeSlot(slot);
+                    removed++;
+                }
+            }
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Up to limit drivers within radiusKm of the point that reported at or after minLastSeenMillis, nearest first.
+     * A null or empty carTypes searches every partition, including drivers whose vehicle is unknown
+     */
+    public List<DriverLocationDto> nearest(double latitude, double longitude, double radiusKm, int limit,
+                                           long minLastSeenMillis, Set<CarType> carTypes) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        int[] partitions = partitionsOf(carTypes);
+        long centerLat = latitudeIndex(latitude);
+        long centerLon = longitudeIndex(longitude);
+        long maxRing = longitudeCells / 2;
+        NearestHeap heap = new NearestHeap(limit);
+
+        lock.readLock().lock();
+        try {
+            for (long ring = 0; ring <= maxRing; ring++) {
+                double ringDistanceKm = ringLowerBoundKm(ring, latitude);
+                if (ringDistanceKm > radiusKm || (heap.isFull() && ringDistanceKm > heap.worstDistance())) {
+                    break;
+                }
+                if (ring == 0) {
+                    scanCell(centerLat, centerLon, latitude, longitude, radiusKm, minLastSeenMillis, partitions, heap);
+                    continue;
+                }
+                for (long d = -ring; d <= ring; d++) {
+                    scanCell(centerLat - ring, centerLon + d, latitude, longitude, radiusKm, minLastSeenMillis, partitions, heap);
+                    scanCell(centerLat + ring, centerLon + d, latitude, longitude, radiusKm, minLastSeenMillis, partitions, heap);
+                }
+                for (long d = -ring + 1; d <= ring - 1; d++) {
+                    scanCell(centerLat + d, centerLon - ring, latitude, longitude, radiusKm, minLastSeenMillis, partitions, heap);
+                    scanCell(centerLat + d, centerLon + ring, latitude, longitude, radiusKm, minLastSeenMillis, partitions, heap);
+                }
+            }
+            return heap.drainSorted(this);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Visit every driver with a position, busy ones included, returns how many were visited.
+     * Runs under the read lock, so the visitor should only copy the values out
+     */
+    public int forEachDriver(DriverVisitor visitor) {
+        lock.readLock().lock();
+        try {
+            int visited = 0;
+            for (int slot = 0; slot < slotHighWater; slot++) {
+                long driverId = slotDriverId[slot];
+                if (driverSlots.get(driverId, NO_VALUE) == slot) {
+                    int carType = slotCarType[slot];
+                    visitor.accept(driverId, slotLatitude[slot], slotLongitude[slot], slotLastSeen[slot],
+                            carType == UNKNOWN_CAR_TYPE ? null : CAR_TYPES[carType]);
+                    visited++;
+                }
+            }
+            return visited;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return driverSlots.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Searches should only be served once the index has been loaded from Redis
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void markReady() {
+        ready = true;
+    }
+
+    private void scanCell(long latIndex, long lonIndex, double latitude, double longitude,
+                          double radiusKm, long minLastSeenMillis, int[] partitions, NearestHeap heap) {
+        if (latIndex < 0 || latIndex >= latitudeCells) {
+            return;
+        }
+        long gridCell = cellKey(latIndex, Math.floorMod(lonIndex, longitudeCells));
+        for (int partition : partitions) {
+            int bucket = cellBuckets.get(inPartition(gridCell, partition), NO_VALUE);
+            if (bucket != NO_VALUE) {
+                scanBucket(bucket, latitude, longitude, radiusKm, minLastSeenMillis, heap);
+            }
+        }
+    }
+
+    private void scanBucket(int bucket, double latitude, double longitude, double radiusKm,
+                            long minLastSeenMillis, NearestHeap heap) {
+        int[] slots = bucketSlots[bucket];
+        long[] coordinates = bucketCoordinates[bucket];
+        for (int i = 0, n = bucketSize[bucket]; i < n; i++) {
+            if (slotLastSeen[slots[i]] < minLastSeenMillis) {
+                continue;
+            }
+            long packed = coordinates[i];
+            double distance = GeoMath.haversineKm(latitude, longitude, unpackLatitude(packed), unpackLongitude(packed));
+            if (distance <= radiusKm) {
+                heap.offer(slots[i], distance);
+            }
+        }
+    }
+
+    // Cells in ring r are at least r - 1 whole cells away from the query point along one axis
+    private double ringLowerBoundKm(long ring, double latitude) {
+        if (ring <= 1) {
+            return 0;
+        }
+        double farthestLatitude = Math.min(89.9, Math.abs(latitude) + ring * cellSizeDegrees);
+        double kmPerDegree = Math.min(GeoMath.KM_PER_DEGREE_LATITUDE, GeoMath.kmPerDegreeLongitude(farthestLatitude));
+        return (ring - 1) * cellSizeDegrees * kmPerDegree;
+    }
+
+    private void addToCell(long cell, int slot, double latitude, double longitude) {
+        int bucket = cellBuckets.get(cell, NO_VALUE);
+        if (bucket == NO_VALUE) {
+            bucket = allocateBucket();
+            cellBuckets.put(cell, bucket);
+        }
+        int position = bucketSize[bucket];
+        if (position == bucketSlots[bucket].length) {
+            bucketSlots[bucket] = Arrays.copyOf(bucketSlots[bucket], position << 1);
+            bucketCoordinates[bucket] = Arrays.copyOf(bucketCoordinates[bucket], position << 1);
+        }
+        bucketSlots[bucket][position] = slot;
+        bucketCoordinates[bucket][position] = pack(latitude, longitude);
+        bucketSize[bucket] = position + 1;
+        slotCell[slot] = cell;
+        slotBucketPosition[slot] = position;
+    }
+
+    private void removeFromCell(int slot) {
+        long cell = slotCell[slot];
+        int bucket = cellBuckets.get(cell, NO_VALUE);
+        int position = slotBucketPosition[slot];
+        int last = --bucketSize[bucket];
+        if (position != last) {
+            // Move the last entry into the hole so buckets stay dense
+            int movedSlot = bucketSlots[bucket][last];
+            bucketSlots[bucket][position] = movedSlot;
+            bucketCoordinates[bucket][position] = bucketCoordinates[bucket][last];
+            slotBucketPosition[movedSlot] = position;
+        }
+        if (last == 0) {
+            cellBuckets.remove(cell, NO_VALUE);
+            freeBucket(bucket);
+        }
+    }
+
+    private int allocateSlot() {
+        if (freeSlotCount > 0) {
+            return freeSlots[--freeSlotCount];
+        }
+        if (slotHighWater == slotDriverId.length) {
+            int capacity = slotHighWater << 1;
+            slotDriverId = Arrays.copyOf(slotDriverId, capacity);
+            slotLatitude = Arrays.copyOf(slotLatitude, capacity);
+            slotLongitude = Arrays.copyOf(slotLongitude, capacity);
+            slotCell = Arrays.copyOf(slotCell, capacity);
+            slotLastSeen = Arrays.copyOf(slotLastSeen, capacity);
+            slotCarType = Arrays.copyOf(slotCarType, capacity);
+            slotInGrid = Arrays.copyOf(slotInGrid, capacity);
+            slotBucketPosition = Arrays.copyOf(slotBucketPosition, capacity);
+        }
+        return slotHighWater++;
+    }
+
+    private void freeSlot(int slot) {
+        if (freeSlotCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeSlotCount << 1);
+        }
+        freeSlots[freeSlotCount++] = slot;
+    }
+
+    private int allocateBucket() {
+        int bucket;
+        if (freeBucketCount > 0) {
+            bucket = freeBuckets[--freeBucketCount];
+        } else {
+            if (bucketHighWater == bucketSlots.length) {
+                int capacity = bucketHighWater << 1;
+                bucketSlots = Arrays.copyOf(bucketSlots, capacity);
+                bucketCoordinates = Arrays.copyOf(bucketCoordinates, capacity);
+                bucketSize = Arrays.copyOf(bucketSize, capacity);
+            }
+            bucket = bucketHighWater++;
+        }
+        bucketSlots[bucket] = new int[INITIAL_BUCKET_CAPACITY];
+        bucketCoordinates[bucket] = new long[INITIAL_BUCKET_CAPACITY];
+        bucketSize[bucket] = 0;
+        return bucket;
+    }
+
+    private void freeBucket(int bucket) {
+        bucketSlots[bucket] = null;
+        bucketCoordinates[bucket] = null;
+        if (freeBucketCount == freeBuckets.length) {
+            freeBuckets = Arrays.copyOf(freeBuckets, freeBucketCount << 1);
+        }
+        freeBuckets[freeBucketCount++] = bucket;
+    }
+
+    private long cellOf(double latitude, double longitude) {
+        return cellKey(latitudeIndex(latitude), longitudeIndex(longitude));
+    }
+
+    private long latitudeIndex(double latitude) {
+        return Math.min(latitudeCells - 1, (long) Math.floor((latitude + 90) / cellSizeDegrees));
+    }
+
+    private long longitudeIndex(double longitude) {
+        return Math.floorMod((long) Math.floor((longitude + 180) / cellSizeDegrees), longitudeCells);
+    }
+
+    private static long cellKey(long latIndex, long lonIndex) {
+        return (latIndex << 32) | lonIndex;
+    }
+
+    private static long inPartition(long gridCell, int partition) {
+        return ((long) partition << PARTITION_SHIFT) | gridCell;
+    }
+
+    private static int[] partitionsOf(Set<CarType> carTypes) {
+        if (carTypes == null || carTypes.isEmpty()) {
+            return ALL_PARTITIONS;
+        }
+        return carTypes.stream().mapToInt(CarType::ordinal).distinct().toArray();
+    }
+
+    private static int[] allPartitions() {
+        int[] partitions = new int[UNKNOWN_CAR_TYPE + 1];
+        for (int i = 0; i < partitions.length; i++) {
+            partitions[i] = i;
+        }
+        return partitions;
+    }
+
+    private static long pack(double latitude, double longitude) {
+        long lat = Math.round(latitude * COORDINATE_SCALE);
+        long lon = Math.round(longitude * COORDINATE_SCALE);
+        return (lat << 32) | (lon & 0xFFFFFFFFL);
+    }
+
+    private static double unpackLatitude(long packed) {
+        return (int) (packed >> 32) / COORDINATE_SCALE;
+    }
+
+    private static double unpackLongitude(long packed) {
+        return (int) packed / COORDINATE_SCALE;
+    }
+
+    private DriverLocationDto toDto(int slot, double distance) {
+        return DriverLocationDto.builder()
+                .driverId(Long.toString(slotDriverId[slot]))
+                .latitude(slotLatitude[slot])
+                .longitude(slotLongitude[slot])
+                .carType(slotCarType[slot] == UNKNOWN_CAR_TYPE ? null : CAR_TYPES[slotCarType[slot]])
+                .distance(distance)
+                .build();
+    }
+
+    /**
+     * Bounded max-heap on distance that keeps the k nearest candidates seen so far
+     */
+    private static final class NearestHeap {
+        private final int[] slots;
+        private final double[] distances;
+        private int size;
+
+        NearestHeap(int capacity) {
+            slots = new int[capacity];
+            distances = new double[capacity];
+        }
+
+        boolean isFull() {
+            return size == slots.length;
+        }
+
+        double worstDistance() {
+            return distances[0];
+        }
+
+        void offer(int slot, double distance) {
+            if (size < slots.length) {
+                int i = size++;
+                while (i > 0) {
+                    int parent = (i - 1) >>> 1;
+                    if (distances[parent] >= distance) {
+                        break;
+                    }
+                    slots[i] = slots[parent];
+                    distances[i] = distances[parent];
+                    i = parent;
+                }
+                slots[i] = slot;
+                distances[i] = distance;
+            } else if (distance < distances[0]) {
+                siftDown(slot, distance);
+            }
+        }
+
+        private void siftDown(int slot, double distance) {
+            int i = 0;
+            while (true) {
+                int child = (i << 1) + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && distances[child + 1] > distances[child]) {
+                    child++;
+                }
+                if (distances[child] <= distance) {
+                    break;
+                }
+                slots[i] = slots[child];
+                distances[i] = distances[child];
+                i = child;
+            }
+            slots[i] = slot;
+            distances[i] = distance;
+        }
+
+        List<DriverLocationDto> drainSorted(DriverSpatialIndex index) {
+            DriverLocationDto[] sorted = new DriverLocationDto[size];
+            while (size > 0) {
+                int slot = slots[0];
+                double distance = distances[0];
+                size--;
+                if (size > 0) {
+                    siftDown(slots[size], distances[size]);
+                }
+                sorted[size] = index.toDto(slot, distance);
+            }
+            return new ArrayList<>(Arrays.asList(sorted));
+        }
+    }
+
+    @FunctionalInterface
+    public interface DriverVisitor {
+        void accept(long driverId, double latitude, double longitude, long lastSeenMillis, CarType carType);
+    }
+}
@@ -0,0 +1,207 @@
+package com.uber.location_service.location_service.index;
+
+import com.uber.entity.models.CarType;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Periodically writes the driver position table of the in-memory index to a memory-mapped file,
+ * so a restart can serve searches from the snapshot before the full reload from Redis finishes.
+ * Layout (little endian): a 32 byte header (magic, version, record count, written-at millis,
+ * CRC32 of the records, 4 bytes padding) followed by one 25 byte record per driver
+ * (id, latitude and longitude in micro-degrees, last seen millis, car type ordinal or -1).
+ * Files are written next to the target and moved over it, so a crash never leaves a torn snapshot
+ */
+@Component
+@Slf4j
+public class IndexSnapshotStore {
+
+    private static final int MAGIC = 0x4C494458; // "LIDX"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    private static final int RECORD_BYTES = 25;
+    private static final double COORDINATE_SCALE = 1_000_000d;
+    private static final CarType[] CAR_TYPES = CarType.values();
+
+    private final DriverSpatialIndex driverIndex;
+    private final boolean enabled;
+    private final Path path;
+    private final long maxAgeMillis;
+
+    public IndexSnapshotStore(DriverSpatialIndex driverIndex,
+                              @Value("${location.snapshot.enabled:true}") boolean enabled,
+                              @Value("${location.snapshot.path:/tmp/location-service/driver-index.snapshot}") String path,
+                              @Value("${location.stale.ttl-seconds:120}") long staleTtlSeconds) {
+        this.driverIndex = driverIndex;
+        this.enabled = enabled;
+        this.path = Path.of(path);
+        // Every driver of an older snapshot would be swept as stale right away
+        this.maxAgeMillis = TimeUnit.SECONDS.toMillis(staleTtlSeconds);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Scheduled(fixedDelayString = "${location.snapshot.interval-ms:30000}", initialDelayString = "${location.snapshot.interval-ms:30000}")
+    public void writeSnapshot() {
+        if (!enabled || !driverIndex.isReady()) {
+            return; // Never overwrite a good snapshot with a half loaded index
+        }
+        long start = System.nanoTime();
+        try {
+            int written = write(System.currentTimeMillis());
+            log.debug("Wrote index snapshot of {} drivers in {} ms", written,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (IOException e) {
+            log.error("Failed to write index snapshot to {}", path, e);
+        }
+    }
+
+    @PreDestroy
+    public void writeOnShutdown() {
+        writeSnapshot();
+    }
+
+    /**
+     * Load the snapshot into the index, returns how many drivers were loaded or -1 when there is no
+     * usable snapshot (missing, corrupt, other version or too old)
+     */
+    public int load(long nowMillis) {
+        if (!enabled || !Files.isRegularFile(path)) {
+            return -1;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES) {
+                log.warn("Ignoring truncated index snapshot {}", path);
+                return -1;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            int magic = buffer.getInt();
+            int version = buffer.getInt();
+            int count = buffer.getInt();
+            long writtenAt = buffer.getLong();
+            long checksum = buffer.getLong();
+            if (magic != MAGIC || version != VERSION) {
+                log.warn("Ignoring index snapshot {} with magic {} version {}", path, Integer.toHexString(magic), version);
+                return -1;
+            }
+            if (count < 0 || size != HEADER_BYTES + (long) count * RECORD_BYTES) {
+                log.warn("Ignoring index snapshot {}: {} records don't match {} bytes", path, count, size);
+                return -1;
+            }
+            if (nowMillis - writtenAt > maxAgeMillis) {
+                log.info("Ignoring index snapshot {} written {} s ago", path, TimeUnit.MILLISECONDS.toSeconds(nowMillis - writtenAt));
+                return -1;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(buffer.slice(HEADER_BYTES, count * RECORD_BYTES));
+            if (crc.getValue() != checksum) {
+                log.warn("Ignoring index snapshot {}: checksum mismatch", path);
+                return -1;
+            }
+
+            buffer.position(HEADER_BYTES);
+            for (int i = 0; i < count; i++) {
+                long driverId = buffer.getLong();
+                double latitude = buffer.getInt() / COORDINATE_SCALE;
+                double longitude = buffer.getInt() / COORDINATE_SCALE;
+                long lastSeen = buffer.getLong();
+                byte carType = buffer.get();
+                driverIndex.upsert(driverId, latitude, longitude, lastSeen, carType < 0 ? null : CAR_TYPES[carType]);
+            }
+            return count;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to read index snapshot {}", path, e);
+            return -1;
+        }
+    }
+
+    private int write(long nowMillis) throws IOException {
+        // Copy out under the index read lock first, the file is written without holding it
+        SnapshotRecords records = new SnapshotRecords(Math.max(16, driverIndex.size()));
+        driverIndex.forEachDriver(records::add);
+
+        Path directory = path.toAbsolutePath().getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        long size = HEADER_BYTES + (long) records.count * RECORD_BYTES;
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            buffer.position(HEADER_BYTES);
+            for (int i = 0; i < records.count; i++) {
+                buffer.putLong(records.driverId[i]);
+                buffer.putInt(records.latitude[i]);
+                buffer.putInt(records.longitude[i]);
+                buffer.putLong(records.lastSeen[i]);
+                buffer.put(records.carType[i]);
+            }
+            CRC32 crc = new CRC32();
+            crc.update(buffer.slice(HEADER_BYTES, records.count * RECORD_BYTES));
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(8, records.count);
+            buffer.putLong(12, nowMillis);
+            buffer.putLong(20, crc.getValue());
+            buffer.force();
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return records.count;
+    }
+
+    // Growable columns of the records to write
+    private static final class SnapshotRecords {
+        private long[] driverId;
+        private int[] latitude;
+        private int[] longitude;
+        private long[] lastSeen;
+        private byte[] carType;
+        private int count;
+
+        private SnapshotRecords(int capacity) {
+            driverId = new long[capacity];
+            latitude = new int[capacity];
+            longitude = new int[capacity];
+            lastSeen = new long[capacity];
+            carType = new byte[capacity];
+        }
+
+        private void add(long id, double lat, double lon, long seenAt, CarType type) {
+            if (count == driverId.length) {
+                int capacity = count << 1;
+                driverId = Arrays.copyOf(driverId, capacity);
+                latitude = Arrays.copyOf(latitude, capacity);
+                longitude = Arrays.copyOf(longitude, capacity);
+                lastSeen = Arrays.copyOf(lastSeen, capacity);
+                carType = Arrays.copyOf(carType, capacity);
+            }
+            driverId[count] = id;
+            latitude[count] = (int) Math.round(lat * COORDINATE_SCALE);
+            longitude[count] = (int) Math.round(lon * COORDINATE_SCALE);
+            lastSeen[count] = seenAt;
+            carType[count] = type == null ? -1 : (byte) type.ordinal();
+            count++;
+        }
+    }
+}
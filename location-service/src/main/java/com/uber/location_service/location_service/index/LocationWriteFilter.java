@@ -0,0 +1,158 @@
+package com.uber.location_service.location_service.index;
+
+import com.uber.location_service.location_service.geo.GeoMath;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Remembers the last position written to Redis for every driver and suppresses writes for drivers
+ * that have barely moved (parked or waiting for a ride).
+ * A write still goes through once the last one is older than maxAge, so the last-seen stamp in Redis
+ * is refreshed well before the stale-driver TTL removes an idle driver.
+ */
+@Component
+public class LocationWriteFilter {
+
+    private static final int INITIAL_SLOTS = 1024;
+    private static final int NO_VALUE = -1;
+
+    private final double minDistanceKm;
+    private final long maxAgeMillis;
+    private final Counter appliedWrites;
+    private final Counter suppressedWrites;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // Last written state, indexed by slot
+    private final LongIntHashMap driverSlots = new LongIntHashMap(INITIAL_SLOTS);
+    private long[] slotDriverId = new long[INITIAL_SLOTS];
+    private double[] slotLatitude = new double[INITIAL_SLOTS];
+    private double[] slotLongitude = new double[INITIAL_SLOTS];
+    private long[] slotWrittenAt = new long[INITIAL_SLOTS];
+    private int[] freeSlots = new int[INITIAL_SLOTS];
+    private int freeSlotCount;
+    private int slotHighWater;
+
+    public LocationWriteFilter(@Value("${location.write-filter.min-distance-m:25}") double minDistanceMeters,
+                               @Value("${location.write-filter.max-age-seconds:60}") long maxAgeSeconds,
+                               @Value("${location.stale.ttl-seconds:120}") long staleTtlSeconds,
+                               MeterRegistry meterRegistry) {
+        if (minDistanceMeters < 0) {
+            throw new IllegalArgumentException("Minimum distance must not be negative, got " + minDistanceMeters);
+        }
+        if (maxAgeSeconds >= staleTtlSeconds) {
+            throw new IllegalArgumentException("Write filter max age (" + maxAgeSeconds
+                    + "s) must be below the stale driver TTL (" + staleTtlSeconds + "s)");
+        }
+        this.minDistanceKm = minDistanceMeters / 1000d;
+        this.maxAgeMillis = TimeUnit.SECONDS.toMillis(maxAgeSeconds);
+        this.appliedWrites = Counter.builder("location.writes")
+                .tag("result", "applied")
+                .description("Driver location writes sent to Redis")
+                .register(meterRegistry);
+        this.suppressedWrites = Counter.builder("location.writes")
+                .tag("result", "suppressed")
+                .description("Driver location writes skipped because the driver barely moved")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Whether the report has to reach Redis: the driver is new, moved at least minDistance,
+     * or the last write is older than maxAge. Counts the report as suppressed otherwise
+     */
+    public boolean shouldWrite(long driverId, double latitude, double longitude, long nowMillis) {
+        lock.lock();
+        try {
+            int slot = driverSlots.get(driverId, NO_VALUE);
+            if (slot == NO_VALUE
+                    || nowMillis - slotWrittenAt[slot] >= maxAgeMillis
+                    || GeoMath.haversineKm(slotLatitude[slot], slotLongitude[slot], latitude, longitude) >= minDistanceKm) {
+                return true;
+            }
+        } finally {
+            lock.unlock();
+        }
+        suppressedWrites.increment();
+        return false;
+    }
+
+    /**
+     * Remember a position once it has been written to Redis
+     */
+    public void recordWrite(long driverId, double latitude, double longitude, long writtenAtMillis) {
+        lock.lock();
+        try {
+            int slot = driverSlots.get(driverId, NO_VALUE);
+            if (slot == NO_VALUE) {
+                slot = allocateSlot();
+                slotDriverId[slot] = driverId;
+                driverSlots.put(driverId, slot);
+            }
+            slotLatitude[slot] = latitude;
+            slotLongitude[slot] = longitude;
+            slotWrittenAt[slot] = writtenAtMillis;
+        } finally {
+            lock.unlock();
+        }
+        appliedWrites.increment();
+    }
+
+    public void forget(long driverId) {
+        lock.lock();
+        try {
+            int slot = driverSlots.remove(driverId, NO_VALUE);
+            if (slot != NO_VALUE) {
+                freeSlot(slot);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drop drivers whose last write is older than cutoffMillis, returns how many were dropped
+     */
+    public int evictOlderThan(long cutoffMillis) {
+        lock.lock();
+        try {
+            int evicted = 0;
+            for (int slot = 0; slot < slotHighWater; slot++) {
+                long driverId = slotDriverId[slot];
+                if (slotWrittenAt[slot] < cutoffMillis && driverSlots.get(driverId, NO_VALUE) == slot) {
+                    driverSlots.remove(driverId, NO_VALUE);
+                    freeSlot(slot);
+                    evicted++;
+                }
+            }
+            return evicted;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int allocateSlot() {
+        if (freeSlotCount > 0) {
+            return freeSlots[--freeSlotCount];
+        }
+        if (slotHighWater == slotDriverId.length) {
+            int capacity = slotHighWater << 1;
+            slotDriverId = Arrays.copyOf(slotDriverId, capacity);
+            slotLatitude = Arrays.copyOf(slotLatitude, capacity);
+            slotLongitude = Arrays.copyOf(slotLongitude, capacity);
+            slotWrittenAt = Arrays.copyOf(slotWrittenAt, capacity);
+        }
+        return slotHighWater++;
+    }
+
+    private void freeSlot(int slot) {
+        if (freeSlotCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeSlotCount << 1);
+        }
+        freeSlots[freeSlotCount++] = slot;
+    }
+}
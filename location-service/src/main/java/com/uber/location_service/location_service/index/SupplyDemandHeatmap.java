@@ -0,0 +1,431 @@
+package com.uber.location_service.location_service.index;
+
+import com.uber.location_service.location_service.dto.HeatmapCellDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Available drivers and recent ride requests per grid cell, kept up to date on every location
+ * write, availability change, delete and search request, so reading a bounding box never touches Redis.
+ * Every driver remembers its cell, a move only decrements the old cell and increments the new one.
+ * Ride requests are counted in a ring of time buckets per cell (a sliding window of demandWindow);
+ * buckets older than the window are reset lazily when their slot is reused.
+ * State is split into lock stripes so concurrent writers rarely contend: a driver's position and
+ * availability live in the stripe of its id, ride requests in the stripe of their cell, and reads
+ * add up the cells of all stripes.
+ */
+@Component
+public class SupplyDemandHeatmap {
+
+    private static final int INITIAL_SLOTS = 256; // Per stripe
+    private static final int NO_VALUE = -1;
+
+    private final boolean enabled;
+    private final double cellSizeDegrees;
+    private final long longitudeCells;
+    private final long demandWindowMillis;
+    private final long bucketMillis;
+    private final int buckets;
+    private final Stripe[] stripes;
+
+    public SupplyDemandHeatmap(@Value("${location.heatmap.enabled:true}") boolean enabled,
+                               @Value("${location.heatmap.cell-size-degrees:0.01}") double cellSizeDegrees,
+                               @Value("${location.heatmap.demand-window-seconds:300}") long demandWindowSeconds,
+                               @Value("${location.heatmap.demand-buckets:10}") int buckets,
+                               @Value("${location.heatmap.stripes:16}") int stripeCount) {
+        if (cellSizeDegrees <= 0 || cellSizeDegrees > 1) {
+            throw new IllegalArgumentException("Cell size must be in (0, 1] degrees, got " + cellSizeDegrees);
+        }
+        if (buckets <= 0 || demandWindowSeconds < buckets) {
+            throw new IllegalArgumentException("Need at least one bucket and one second per bucket, got "
+                    + buckets + " buckets over " + demandWindowSeconds + "s");
+        }
+        if (stripeCount <= 0) {
+            throw new IllegalArgumentException("Need at least one stripe, got " + stripeCount);
+        }
+        this.enabled = enabled;
+        this.cellSizeDegrees = cellSizeDegrees;
+        this.longitudeCells = (long) Math.ceil(360 / cellSizeDegrees);
+        this.demandWindowMillis = TimeUnit.SECONDS.toMillis(demandWindowSeconds);
+        this.bucketMillis = demandWindowMillis / buckets;
+        this.buckets = buckets;
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public double getCellSizeDegrees() {
+        return cellSizeDegrees;
+    }
+
+    public long getDemandWindowSeconds() {
+        return TimeUnit.MILLISECONDS.toSeconds(demandWindowMillis);
+    }
+
+    public void onLocation(long id, double latitude, double longitude, long seenAtMillis) {
+        stripeOf(id).onLocation(id, cellKeyOf(latitude, longitude), seenAtMillis);
+    }
+
+    public void setAvailable(long id, boolean available) {
+        stripeOf(id).setAvailable(id, available, System.currentTimeMillis());
+    }
+
+    public void remove(long id) {
+        stripeOf(id).remove(id);
+    }
+
+    /**
+     * Drop drivers not seen since cutoffMillis and cells left without drivers or recent demand,
+     * returns how many drivers were dropped. Busy drivers that never reported a position are dropped
+     * once they were marked busy before cutoffMillis
+     */
+    public int removeStale(long cutoffMillis, long nowMillis) {
+        int removed = 0;
+        for (Stripe stripe : stripes) {
+            removed += stripe.removeStale(cutoffMillis, nowMillis);
+        }
+        return removed;
+    }
+
+    // Drivers holding a slot, with or without a position
+    int driverCount() {
+        int count = 0;
+        for (Stripe stripe : stripes) {
+            count += stripe.driverCount();
+        }
+        return count;
+    }
+
+    public void recordRideRequest(double latitude, double longitude, long nowMillis) {
+        long key = cellKeyOf(latitude, longitude);
+        stripeOf(key).recordRideRequest(key, nowMillis);
+    }
+
+    /**
+     * Cells inside the bounding box with available drivers or ride requests in the demand window
+     */
+    public List<HeatmapCellDto> cells(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude,
+                                      long nowMillis) {
+        long minRow = row(minLatitude);
+        long maxRow = row(maxLatitude);
+        long minColumn = column(minLongitude);
+        long maxColumn = column(maxLongitude);
+        // cell key -> {available drivers, ride requests}, summed over the stripes
+        Map<Long, long[]> totals = new LinkedHashMap<>();
+        for (Stripe stripe : stripes) {
+            stripe.collect(minRow, maxRow, minColumn, maxColumn, nowMillis, totals);
+        }
+        List<HeatmapCellDto> result = new ArrayList<>();
+        totals.forEach((key, counts) -> {
+            if (counts[0] == 0 && counts[1] == 0) {
+                return;
+            }
+            result.add(HeatmapCellDto.builder()
+                    .latitude((key / longitudeCells + 0.5) * cellSizeDegrees - 90)
+                    .longitude((key % longitudeCells + 0.5) * cellSizeDegrees - 180)
+                    .availableDrivers((int) counts[0])
+                    .rideRequests(counts[1])
+                    .build());
+        });
+        return result;
+    }
+
+    private Stripe stripeOf(long key) {
+        long mixed = key * 0x9E3779B97F4A7C15L; // Spreads sequential ids and neighbouring cells
+        return stripes[(int) ((mixed >>> 32) % stripes.length)];
+    }
+
+    private long cellKeyOf(double latitude, double longitude) {
+        return row(latitude) * longitudeCells + column(longitude);
+    }
+
+    private long row(double latitude) {
+        return (long) Math.floor((Math.max(-90, Math.min(90 - 1e-9, latitude)) + 90) / cellSizeDegrees);
+    }
+
+    private long column(double longitude) {
+        return (long) Math.floor((Math.max(-180, Math.min(180 - 1e-9, longitude)) + 180) / cellSizeDegrees);
+    }
+
+    private static int[] push(int[] stack, int size, int value) {
+        if (size == stack.length) {
+            stack = Arrays.copyOf(stack, size << 1);
+        }
+        stack[size] = value;
+        return stack;
+    }
+
+    /**
+     * One lock stripe: the drivers and cells it owns in slot arrays, guarded by its own lock
+     */
+    private final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+
+        // Driver state, indexed by driver slot
+        private final LongIntHashMap driverSlots = new LongIntHashMap(INITIAL_SLOTS);
+        private long[] driverId = new long[INITIAL_SLOTS];
+        private int[] driverCell = new int[INITIAL_SLOTS]; // NO_VALUE until the first position
+        private boolean[] driverBusy = new boolean[INITIAL_SLOTS];
+        private long[] driverLastSeen = new long[INITIAL_SLOTS];
+        private long[] driverBusySince = new long[INITIAL_SLOTS]; // Sweeps busy drivers that never report
+        private int[] freeDriverSlots = new int[INITIAL_SLOTS];
+        private int freeDriverSlotCount;
+        private int driverHighWater;
+
+        // Cell state, indexed by cell slot; demand buckets of cell c are [c * buckets, (c + 1) * buckets)
+        private final LongIntHashMap cellSlots = new LongIntHashMap(INITIAL_SLOTS);
+        private long[] cellKey = new long[INITIAL_SLOTS];
+        private int[] cellDrivers = new int[INITIAL_SLOTS];
+        private int[] cellAvailable = new int[INITIAL_SLOTS];
+        private long[] bucketCount = new long[INITIAL_SLOTS * buckets];
+        private long[] bucketEpoch = new long[INITIAL_SLOTS * buckets];
+        private boolean[] cellInUse = new boolean[INITIAL_SLOTS];
+        private int[] freeCellSlots = new int[INITIAL_SLOTS];
+        private int freeCellSlotCount;
+        private int cellHighWater;
+
+        private Stripe() {
+            Arrays.fill(driverCell, NO_VALUE);
+        }
+
+        void onLocation(long id, long key, long seenAtMillis) {
+            lock.lock();
+            try {
+                int slot = driverSlot(id);
+                if (seenAtMillis < driverLastSeen[slot]) {
+                    return; // Older than what we have, e.g. the startup load racing live updates
+                }
+                int cell = cellSlot(key);
+                int previousCell = driverCell[slot];
+                if (previousCell != cell) {
+                    if (previousCell != NO_VALUE) {
+                        leaveCell(slot, previousCell);
+                    }
+                    driverCell[slot] = cell;
+                    cellDrivers[cell]++;
+                    if (!driverBusy[slot]) {
+                        cellAvailable[cell]++;
+                    }
+                }
+                driverLastSeen[slot] = seenAtMillis;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void setAvailable(long id, boolean available, long nowMillis) {
+            lock.lock();
+            try {
+                int slot = driverSlots.get(id, NO_VALUE);
+                if (slot == NO_VALUE) {
+                    if (available) {
+                        return; // Unknown drivers count as available once they report
+                    }
+                    slot = driverSlot(id);
+                }
+                if (driverBusy[slot] == !available) {
+                    return;
+                }
+                int cell = driverCell[slot];
+                if (available && cell == NO_VALUE) {
+                    // Only held for its busy flag, forgotten like a driver that never reported
+                    driverSlots.remove(id, NO_VALUE);
+                    releaseDriver(slot);
+                    return;
+                }
+                driverBusy[slot] = !available;
+                driverBusySince[slot] = available ? 0 : nowMillis;
+                if (cell != NO_VALUE) {
+                    cellAvailable[cell] += available ? 1 : -1;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void remove(long id) {
+            lock.lock();
+            try {
+                int slot = driverSlots.remove(id, NO_VALUE);
+                if (slot != NO_VALUE) {
+                    releaseDriver(slot);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int removeStale(long cutoffMillis, long nowMillis) {
+            lock.lock();
+            try {
+                int removed = 0;
+                for (int slot = 0; slot < driverHighWater; slot++) {
+                    // A driver without a position is only held for its busy flag, kept until the flag is stale too
+                    long lastActivity = driverCell[slot] != NO_VALUE ? driverLastSeen[slot] : driverBusySince[slot];
+                    if (lastActivity < cutoffMillis && (driverCell[slot] != NO_VALUE || driverBusy[slot])
+                            && driverSlots.get(driverId[slot], NO_VALUE) == slot) {
+                        driverSlots.remove(driverId[slot], NO_VALUE);
+                        releaseDriver(slot);
+                        removed++;
+                    }
+                }
+                for (int cell = 0; cell < cellHighWater; cell++) {
+                    if (cellInUse[cell] && cellDrivers[cell] == 0 && demand(cell, nowMillis) == 0) {
+                        cellSlots.remove(cellKey[cell], NO_VALUE);
+                        cellInUse[cell] = false;
+                        freeCellSlots = push(freeCellSlots, freeCellSlotCount++, cell);
+                    }
+                }
+                return removed;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int driverCount() {
+            lock.lock();
+            try {
+                return driverSlots.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void recordRideRequest(long key, long nowMillis) {
+            lock.lock();
+            try {
+                int cell = cellSlot(key);
+                long epoch = nowMillis / bucketMillis;
+                int bucket = cell * buckets + (int) (epoch % buckets);
+                if (bucketEpoch[bucket] != epoch) {
+                    bucketEpoch[bucket] = epoch;
+                    bucketCount[bucket] = 0;
+                }
+                bucketCount[bucket]++;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // Adds the available drivers and demand of this stripe's cells inside the box to totals
+        void collect(long minRow, long maxRow, long minColumn, long maxColumn, long nowMillis, Map<Long, long[]> totals) {
+            lock.lock();
+            try {
+                // Walks the active cells, never more than the cells drivers or requests touched recently
+                for (int cell = 0; cell < cellHighWater; cell++) {
+                    if (!cellInUse[cell]) {
+                        continue;
+                    }
+                    long row = cellKey[cell] / longitudeCells;
+                    long column = cellKey[cell] % longitudeCells;
+                    if (row < minRow || row > maxRow || column < minColumn || column > maxColumn) {
+                        continue;
+                    }
+                    long requests = demand(cell, nowMillis);
+                    if (cellAvailable[cell] == 0 && requests == 0) {
+                        continue;
+                    }
+                    long[] counts = totals.computeIfAbsent(cellKey[cell], key -> new long[2]);
+                    counts[0] += cellAvailable[cell];
+                    counts[1] += requests;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private long demand(int cell, long nowMillis) {
+            long oldestEpoch = nowMillis / bucketMillis - buckets + 1;
+            long total = 0;
+            for (int bucket = cell * buckets; bucket < (cell + 1) * buckets; bucket++) {
+                if (bucketEpoch[bucket] >= oldestEpoch) {
+                    total += bucketCount[bucket];
+                }
+            }
+            return total;
+        }
+
+        private void leaveCell(int slot, int cell) {
+            cellDrivers[cell]--;
+            if (!driverBusy[slot]) {
+                cellAvailable[cell]--;
+            }
+        }
+
+        private void releaseDriver(int slot) {
+            if (driverCell[slot] != NO_VALUE) {
+                leaveCell(slot, driverCell[slot]);
+            }
+            driverCell[slot] = NO_VALUE;
+            driverBusy[slot] = false;
+            driverBusySince[slot] = 0;
+            driverLastSeen[slot] = 0;
+            freeDriverSlots = push(freeDriverSlots, freeDriverSlotCount++, slot);
+        }
+
+        private int driverSlot(long id) {
+            int slot = driverSlots.get(id, NO_VALUE);
+            if (slot != NO_VALUE) {
+                return slot;
+            }
+            if (freeDriverSlotCount > 0) {
+                slot = freeDriverSlots[--freeDriverSlotCount];
+            } else {
+                if (driverHighWater == driverId.length) {
+                    int capacity = driverHighWater << 1;
+                    driverId = Arrays.copyOf(driverId, capacity);
+                    driverCell = Arrays.copyOf(driverCell, capacity);
+                    Arrays.fill(driverCell, driverHighWater, capacity, NO_VALUE);
+                    driverBusy = Arrays.copyOf(driverBusy, capacity);
+                    driverLastSeen = Arrays.copyOf(driverLastSeen, capacity);
+                    driverBusySince = Arrays.copyOf(driverBusySince, capacity);
+                }
+                slot = driverHighWater++;
+            }
+            driverId[slot] = id;
+            driverSlots.put(id, slot);
+            return slot;
+        }
+
+        private int cellSlot(long key) {
+            int cell = cellSlots.get(key, NO_VALUE);
+            if (cell != NO_VALUE) {
+                return cell;
+            }
+            if (freeCellSlotCount > 0) {
+                cell = freeCellSlots[--freeCellSlotCount];
+            } else {
+                if (cellHighWater == cellKey.length) {
+                    int capacity = cellHighWater << 1;
+                    cellKey = Arrays.copyOf(cellKey, capacity);
+                    cellDrivers = Arrays.copyOf(cellDrivers, capacity);
+                    cellAvailable = Arrays.copyOf(cellAvailable, capacity);
+                    cellInUse = Arrays.copyOf(cellInUse, capacity);
+                    bucketCount = Arrays.copyOf(bucketCount, capacity * buckets);
+                    bucketEpoch = Arrays.copyOf(bucketEpoch, capacity * buckets);
+                }
+                cell = cellHighWater++;
+            }
+            cellKey[cell] = key;
+            cellDrivers[cell] = 0;
+            cellAvailable[cell] = 0;
+            cellInUse[cell] = true;
+            Arrays.fill(bucketEpoch, cell * buckets, (cell + 1) * buckets, Long.MIN_VALUE);
+            cellSlots.put(key, cell);
+            return cell;
+        }
+    }
+}
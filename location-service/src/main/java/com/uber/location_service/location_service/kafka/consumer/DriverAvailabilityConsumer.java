@@ -0,0 +1,47 @@
+package com.uber.location_service.location_service.kafka.consumer;
+
+import com.uber.location_service.location_service.kafka.dto.DriverAvailabilityMessage;
+import com.uber.location_service.location_service.service.LocationService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DriverAvailabilityConsumer {
+
+    private final LocationService locationService;
+
+    /**
+     * Moves drivers between the available and busy partitions in Redis when a trip is accepted or finished.
+     * The shared group id splits the partitions between instances, so every event is written once
+     */
+    @KafkaListener(topics = "${kafka.topic.driver-availability}", groupId = "${spring.kafka.consumer.group-id}", containerFactory = "driverAvailabilityContainerFactory")
+    public void consumeDriverAvailability(DriverAvailabilityMessage message) {
+        if (message == null || message.getDriverId() == null) {
+            log.warn("Received driver availability message without driverId");
+            return;
+        }
+        try {
+            locationService.persistDriverAvailability(message.getDriverId(), message.isAvailable());
+            log.debug("Driver {} is now {} (bookingId={})", message.getDriverId(),
+                    message.isAvailable() ? "available" : "busy", message.getBookingId());
+        } catch (Exception e) {
+            log.error("Failed to update availability for driver {}", message.getDriverId(), e);
+        }
+    }
+
+    /**
+     * Applies the same events to this instance's in-memory index and heatmap, read under a per-instance
+     * group id (see kafka.driver-availability.index-group-id) so every instance sees all of them
+     */
+    @KafkaListener(topics = "${kafka.topic.driver-availability}", groupId = "${kafka.driver-availability.index-group-id}", containerFactory = "driverAvailabilityContainerFactory")
+    public void indexDriverAvailability(DriverAvailabilityMessage message) {
+        if (message == null || message.getDriverId() == null) {
+            return; // Already reported by the shared listener
+        }
+        locationService.indexDriverAvailability(message.getDriverId(), message.isAvailable());
+    }
+}
@@ -0,0 +1,85 @@
+package com.uber.location_service.location_service.kafka.consumer;
+
+import com.uber.location_service.location_service.dto.DriverLocationDto;
+import com.uber.location_service.location_service.kafka.dto.DriverLocationUpdateMessage;
+import com.uber.location_service.location_service.service.LocationService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DriverLocationUpdateConsumer {
+
+    private final LocationService locationService;
+
+    /**
+     * Each poll is collapsed to the latest report per driver and written to Redis in one pipeline.
+     * The shared group id splits the partitions between instances, so every report is written once.
+     * Reports republished after a REST update are already in Redis and skipped here
+     */
+    @KafkaListener(topics = "${kafka.topic.driver-location-updates}", groupId = "${spring.kafka.consumer.group-id}", containerFactory = "driverLocationBatchContainerFactory")
+    public void consumeDriverLocationUpdates(List<DriverLocationUpdateMessage> messages) {
+        List<DriverLocationUpdateMessage> unpersisted = new ArrayList<>(messages.size());
+        for (DriverLocationUpdateMessage message : messages) {
+            if (message != null && !Boolean.TRUE.equals(message.getPersisted())) {
+                unpersisted.add(message);
+            }
+        }
+        List<DriverLocationDto> locations = latestLocations(unpersisted);
+        if (locations.isEmpty()) {
+            return;
+        }
+        Integer applied = locationService.persistDriverLocations(locations);
+        log.debug("Wrote {} driver locations from {} update messages", applied, messages.size());
+    }
+
+    /**
+     * Feeds this instance's in-memory index, near-cache and heatmap. Every instance serves searches from
+     * its own index, so it reads all partitions under a per-instance group id
+     * (see kafka.location-updates.index-group-id), including the reports other instances took over REST
+     */
+    @KafkaListener(topics = "${kafka.topic.driver-location-updates}", groupId = "${kafka.location-updates.index-group-id}", containerFactory = "driverLocationBatchContainerFactory")
+    public void indexDriverLocationUpdates(List<DriverLocationUpdateMessage> messages) {
+        List<DriverLocationDto> locations = latestLocations(messages);
+        if (locations.isEmpty()) {
+            return;
+        }
+        Integer applied = locationService.indexDriverLocations(locations);
+        log.debug("Indexed {} driver locations from {} update messages", applied, messages.size());
+    }
+
+    private static List<DriverLocationDto> latestLocations(List<DriverLocationUpdateMessage> messages) {
+        Map<String, DriverLocationUpdateMessage> latest = new LinkedHashMap<>();
+        for (DriverLocationUpdateMessage message : messages) {
+            if (message == null || message.getDriverId() == null) {
+                continue;
+            }
+            latest.merge(message.getDriverId(), message, DriverLocationUpdateConsumer::newer);
+        }
+        List<DriverLocationDto> locations = new ArrayList<>(latest.size());
+        latest.values().forEach(message -> locations.add(DriverLocationDto.builder()
+                .driverId(message.getDriverId())
+                .latitude(message.getLatitude())
+                .longitude(message.getLongitude())
+                .carType(message.getCarType())
+                .build()));
+        return locations;
+    }
+
+    // Records of one driver arrive in partition order, so a later record wins unless its device time is older
+    private static DriverLocationUpdateMessage newer(DriverLocationUpdateMessage current, DriverLocationUpdateMessage incoming) {
+        if (current.getReportedAt() != null && incoming.getReportedAt() != null
+                && incoming.getReportedAt() < current.getReportedAt()) {
+            return current;
+        }
+        return incoming;
+    }
+}
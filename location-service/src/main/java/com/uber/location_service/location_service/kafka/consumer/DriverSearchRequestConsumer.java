@@ -1,18 +1,16 @@
 package com.uber.location_service.location_service.kafka.consumer;
 
+import com.uber.location_service.location_service.dispatch.RideRequestDispatcher;
 import com.uber.location_service.location_service.dto.DriverLocationDto;
+import com.uber.location_service.location_service.dto.DriverSearchCriteria;
+import com.uber.location_service.location_service.index.SupplyDemandHeatmap;
 import com.uber.location_service.location_service.service.LocationService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.RestTemplate;
 
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
 
 @Component
 @RequiredArgsConstructor
@@ -20,10 +18,20 @@ import java.util.stream.Collectors;
 public class DriverSearchRequestConsumer {
 
     private final LocationService locationService;
-    private final RestTemplate restTemplate;
-    
-    @Value("${socket.service.url}")
-    private String socketServiceUrl; // Not final - injected via @Value
+    private final RideRequestDispatcher rideRequestDispatcher;
+    private final SupplyDemandHeatmap heatmap;
+
+    /**
+     * Demand for this instance's heatmap. The search itself runs on one instance only (shared group),
+     * so every instance counts ride requests from all partitions under a per-instance group id
+     * (see kafka.driver-search-request.heatmap-group-id)
+     */
+    @KafkaListener(topics = "${kafka.topic.driver-search-request}", groupId = "${kafka.driver-search-request.heatmap-group-id}", containerFactory = "heatmapDemandContainerFactory", autoStartup = "${location.heatmap.enabled:true}")
+    public void recordDemand(com.uber.location_service.location_service.kafka.dto.DriverSearchRequestMessage message) {
+        if (message != null && heatmap.isEnabled()) {
+            heatmap.recordRideRequest(message.getPickupLatitude(), message.getPickupLongitude(), System.currentTimeMillis());
+        }
+    }
 
     @KafkaListener(topics = "${kafka.topic.driver-search-request}", groupId = "${spring.kafka.consumer.group-id}", containerFactory = "kafkaListenerContainerFactory")
     public void consumeDriverSearchRequest(com.uber.location_service.location_service.kafka.dto.DriverSearchRequestMessage message) {
@@ -31,76 +39,28 @@ public class DriverSearchRequestConsumer {
                            (message.getBookingId() != null ? "bookingId:" + message.getBookingId() : "unknown");
         log.info("Received driver search request: {}", identifier);
         
-        // Search for nearby drivers using existing service
-        List<DriverLocationDto> nearbyDrivers = locationService.searchNearBy(
-            message.getPickupLongitude(), 
-            message.getPickupLatitude()
-        );
+        // Search for the k nearest drivers, widening the radius until enough are found
+        List<DriverLocationDto> nearbyDrivers = locationService.searchNearest(DriverSearchCriteria.builder()
+                .latitude(message.getPickupLatitude())
+                .longitude(message.getPickupLongitude())
+                .limit(message.getMaxDrivers())
+                .radiusStepsKm(message.getRadiusStepsKm())
+                .maxRadiusKm(message.getMaxRadiusKm())
+                .carTypes(message.getCarTypes())
+                .build());
         
         if (nearbyDrivers.isEmpty()) {
             log.warn("No drivers found near ({}, {}) for {}", 
                     message.getPickupLatitude(), message.getPickupLongitude(), identifier);
             // Send empty response via socket service (which will forward to Kafka)
-            sendRideRequestsToSocketService(message, List.of(), List.of());
+            rideRequestDispatcher.dispatch(message, List.of());
             return;
         }
         
-        // Extract driver IDs and prepare driver info
-        List<String> driverIds = nearbyDrivers.stream()
-                .map(DriverLocationDto::getDriverId)
-                .collect(Collectors.toList());
-        
         log.info("Found {} nearby drivers for {}, sending ride requests via socket", 
-                driverIds.size(), identifier);
+                nearbyDrivers.size(), identifier);
         
-        // Send ride requests to drivers via socket service (with full driver info)
-        sendRideRequestsToSocketService(message, nearbyDrivers, driverIds);
-    }
-    
-    private void sendRideRequestsToSocketService(
-            com.uber.location_service.location_service.kafka.dto.DriverSearchRequestMessage message,
-            List<DriverLocationDto> driverLocations,
-            List<String> driverIds) {
-        
-        try {
-            // Prepare ride request DTO for socket service
-            Map<String, Object> rideRequest = new HashMap<>();
-            rideRequest.put("bookingId", message.getBookingId());
-            rideRequest.put("requestId", message.getRequestId());
-            rideRequest.put("userId", message.getUserId());
-            rideRequest.put("pickupLatitude", message.getPickupLatitude());
-            rideRequest.put("pickupLongitude", message.getPickupLongitude());
-            rideRequest.put("dropoffLatitude", message.getDropoffLatitude());
-            rideRequest.put("dropoffLongitude", message.getDropoffLongitude());
-            rideRequest.put("price", message.getPrice());
-            rideRequest.put("timeoutSeconds", 30L);
-            rideRequest.put("driverIds", driverIds);
-            
-            // Convert driver locations to map format for socket service
-            List<Map<String, Object>> driverList = driverLocations.stream()
-                    .map(driver -> {
-                        Map<String, Object> driverMap = new HashMap<>();
-                        driverMap.put("driverId", driver.getDriverId());
-                        driverMap.put("latitude", driver.getLatitude());
-                        driverMap.put("longitude", driver.getLongitude());
-                        return driverMap;
-                    })
-                    .collect(Collectors.toList());
-            rideRequest.put("drivers", driverList);
-            
-            // Call socket service REST endpoint
-            String url = socketServiceUrl + "/api/ride-requests/send";
-            String response = restTemplate.postForObject(url, rideRequest, String.class);
-            String identifier = message.getRequestId() != null ? message.getRequestId() : 
-                               (message.getBookingId() != null ? "bookingId:" + message.getBookingId() : "unknown");
-            log.info("Sent ride requests to socket service for {}, drivers: {}, response: {}", 
-                    identifier, driverIds.size(), response);
-            
-        } catch (Exception e) {
-            String identifier = message.getRequestId() != null ? message.getRequestId() : 
-                               (message.getBookingId() != null ? "bookingId:" + message.getBookingId() : "unknown");
-            log.error("Failed to send ride requests to socket service for {}", identifier, e);
-            // TODO: Consider sending error response to booking service
-        }
+        // Hand off to socket service (with full driver info) without waiting for its response
+        rideRequestDispatcher.dispatch(message, nearbyDrivers);
     }
 }
@@ -0,0 +1,18 @@
+package com.uber.location_service.location_service.kafka.dto;
+
+import com.uber.entity.models.CarType;
+import lombok.*;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class DriverLocationUpdateMessage {
+    private String driverId; // Also the Kafka key, so all reports of a driver land on one partition
+    private double latitude;
+    private double longitude;
+    private CarType carType; // Vehicle the driver is on, null if unchanged/unknown
+    private Long reportedAt; // Epoch millis on the driver device, null if unknown
+    private Boolean persisted; // Taken over REST and already in Redis, only the per-instance index feeds apply it
+}
@@ -10,7 +10,8 @@ import java.util.List;
 @AllArgsConstructor
 @NoArgsConstructor
 public class DriverSearchResponseMessage {
-    private Long bookingId;
+    private Long bookingId; // null for new requests
+    private String requestId; // Temporary ID for tracking ride requests before booking is created
     private String userId;
     private List<DriverLocationMessage> drivers;
 }
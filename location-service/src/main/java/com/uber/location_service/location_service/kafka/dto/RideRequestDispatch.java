@@ -0,0 +1,27 @@
+package com.uber.location_service.location_service.kafka.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * Ride request fanned out to the drivers found for a search, consumed by socket-service.
+ * Keyed by requestId (bookingId when there is none) so every event of one request lands on one partition
+ */
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class RideRequestDispatch {
+    private Long bookingId; // null for new requests
+    private String requestId; // Temporary ID for tracking ride requests before booking is created
+    private String userId;
+    private double pickupLatitude;
+    private double pickupLongitude;
+    private double dropoffLatitude;
+    private double dropoffLongitude;
+    private double price;
+    private Long timeoutSeconds; // How long drivers get to accept
+    private List<DriverLocationMessage> drivers; // Empty when no driver was found
+}
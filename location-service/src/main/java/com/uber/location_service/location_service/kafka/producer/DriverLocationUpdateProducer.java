@@ -0,0 +1,50 @@
+package com.uber.location_service.location_service.kafka.producer;
+
+import com.uber.location_service.location_service.dto.DriverLocationDto;
+import com.uber.location_service.location_service.kafka.dto.DriverLocationUpdateMessage;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Republishes location reports taken over REST to driver-location-updates, marked as persisted, so every
+ * instance's index feed applies them while the shared Redis writer skips them
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DriverLocationUpdateProducer {
+
+    private final KafkaTemplate<String, DriverLocationUpdateMessage> driverLocationKafkaTemplate;
+
+    @Value("${kafka.topic.driver-location-updates}")
+    private String driverLocationUpdatesTopic; // Not final - injected via @Value
+
+    // Fire and forget: the report is already in Redis and in this instance's index
+    public void publishPersisted(Map<String, DriverLocationDto> latest, long reportedAt) {
+        latest.forEach((driverId, location) -> {
+            DriverLocationUpdateMessage message = DriverLocationUpdateMessage.builder()
+                    .driverId(driverId)
+                    .latitude(location.getLatitude())
+                    .longitude(location.getLongitude())
+                    .carType(location.getCarType())
+                    .reportedAt(reportedAt)
+                    .persisted(Boolean.TRUE)
+                    .build();
+            try {
+                driverLocationKafkaTemplate.send(driverLocationUpdatesTopic, driverId, message)
+                        .whenComplete((result, ex) -> {
+                            if (ex != null) {
+                                log.warn("Failed to republish location of driver {}", driverId, ex);
+                            }
+                        });
+            } catch (Exception e) {
+                log.warn("Failed to republish location of driver {}", driverId, e);
+            }
+        });
+    }
+}
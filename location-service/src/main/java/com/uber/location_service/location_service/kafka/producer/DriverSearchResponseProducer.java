@@ -22,22 +22,25 @@ public class DriverSearchResponseProducer {
     }
 
     public void sendDriverSearchResponse(DriverSearchResponseMessage message) {
-        if (message.getBookingId() == null) {
-            log.error("BookingId cannot be null when sending driver search response");
-            throw new IllegalArgumentException("BookingId cannot be null when sending driver search response");
+        // Keyed like the ride request itself: requestId, or bookingId for older clients
+        String key = message.getRequestId() != null ? message.getRequestId() :
+                     (message.getBookingId() != null ? message.getBookingId().toString() : null);
+        if (key == null) {
+            log.error("Either bookingId or requestId must be provided when sending driver search response");
+            throw new IllegalArgumentException("Either bookingId or requestId must be provided when sending driver search response");
         }
         try {
-            log.debug("Sending driver search response for bookingId: {}", message.getBookingId());
-            kafkaTemplate.send(driverSearchResponseTopic, message.getBookingId().toString(), message)
+            log.debug("Sending driver search response for {}", key);
+            kafkaTemplate.send(driverSearchResponseTopic, key, message)
                 .whenComplete((result, ex) -> {
                     if (ex == null) {
-                        log.debug("Successfully sent driver search response for bookingId: {}", message.getBookingId());
+                        log.debug("Successfully sent driver search response for {}", key);
                     } else {
-                        log.error("Failed to send driver search response for bookingId: {}", message.getBookingId(), ex);
+                        log.error("Failed to send driver search response for {}", key, ex);
                     }
                 });
         } catch (Exception e) {
-            log.error("Exception while sending driver search response for bookingId: {}", message.getBookingId(), e);
+            log.error("Exception while sending driver search response for {}", key, e);
             throw new RuntimeException("Failed to send driver search response", e);
         }
     }
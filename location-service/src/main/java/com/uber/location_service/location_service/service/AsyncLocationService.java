@@ -0,0 +1,20 @@
+package com.uber.location_service.location_service.service;
+
+import com.uber.location_service.location_service.dto.DriverLocationDto;
+import com.uber.location_service.location_service.dto.DriverSearchCriteria;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking counterpart of LocationService used by the async endpoints.
+ * location.redis.client picks the implementation: blocking (Jedis calls on a bounded pool) or reactive (Lettuce)
+ */
+public interface AsyncLocationService {
+    CompletableFuture<Boolean> updateDriverLocation(DriverLocationDto driverLocationDto);
+    CompletableFuture<Integer> updateDriverLocations(List<DriverLocationDto> driverLocations);
+    CompletableFuture<Optional<DriverLocationDto>> getDriverLocation(String driverId);
+    CompletableFuture<List<DriverLocationDto>> searchNearest(DriverSearchCriteria criteria);
+    CompletableFuture<Boolean> deleteDriverLocation(String driverId);
+}
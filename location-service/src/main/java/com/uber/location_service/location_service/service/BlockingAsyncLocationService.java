@@ -0,0 +1,62 @@
+package com.uber.location_service.location_service.service;
+
+import com.uber.location_service.location_service.dto.DriverLocationDto;
+import com.uber.location_service.location_service.dto.DriverSearchCriteria;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs the blocking LocationService on a bounded pool, so the async endpoints can be benchmarked
+ * against the reactive client with everything else unchanged
+ */
+@Service
+@ConditionalOnProperty(name = "location.redis.client", havingValue = "blocking", matchIfMissing = true)
+public class BlockingAsyncLocationService implements AsyncLocationService {
+
+    private final LocationService locationService;
+    private final ExecutorService executor;
+
+    public BlockingAsyncLocationService(LocationService locationService,
+                                        @Value("${location.redis.blocking-threads:64}") int threads) {
+        this.locationService = locationService;
+        this.executor = Executors.newFixedThreadPool(threads);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> updateDriverLocation(DriverLocationDto driverLocationDto) {
+        return CompletableFuture.supplyAsync(() -> locationService.updateDriverLocation(driverLocationDto), executor);
+    }
+
+    @Override
+    public CompletableFuture<Integer> updateDriverLocations(List<DriverLocationDto> driverLocations) {
+        return CompletableFuture.supplyAsync(() -> locationService.updateDriverLocations(driverLocations), executor);
+    }
+
+    @Override
+    public CompletableFuture<Optional<DriverLocationDto>> getDriverLocation(String driverId) {
+        return CompletableFuture.supplyAsync(() -> locationService.getDriverLocation(driverId), executor);
+    }
+
+    @Override
+    public CompletableFuture<List<DriverLocationDto>> searchNearest(DriverSearchCriteria criteria) {
+        return CompletableFuture.supplyAsync(() -> locationService.searchNearest(criteria), executor);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> deleteDriverLocation(String driverId) {
+        return CompletableFuture.supplyAsync(() -> locationService.deleteDriverLocation(driverId), executor);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,177 @@
+package com.uber.location_service.location_service.service;
+
+import com.uber.entity.models.CarType;
+import com.uber.location_service.location_service.cache.DriverLocationCache;
+import com.uber.location_service.location_service.dto.DriverLocationDto;
+import com.uber.location_service.location_service.dto.DriverSearchCriteria;
+import com.uber.location_service.location_service.index.DriverSpatialIndex;
+import com.uber.location_service.location_service.index.LocationWriteFilter;
+import com.uber.location_service.location_service.index.SupplyDemandHeatmap;
+import com.uber.location_service.location_service.kafka.producer.DriverLocationUpdateProducer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * This instance's in-memory driver state (search index, near-cache, heatmap, write filter) and the rules
+ * that keep it in step with Redis, shared by the blocking and the non-blocking location services so both
+ * apply them the same way: Redis is written first, the in-memory copies once that write succeeded
+ */
+@Component
+@RequiredArgsConstructor
+public class LocalDriverState {
+
+    private final DriverSpatialIndex driverIndex;
+    private final LocationWriteFilter writeFilter;
+    private final SearchDefaults searchDefaults;
+    private final DriverLocationCache locationCache;
+    private final SupplyDemandHeatmap heatmap;
+    private final DriverLocationUpdateProducer locationUpdateProducer;
+
+    @Value("${location.index.enabled:true}")
+    private boolean indexEnabled; // Not final - injected via @Value
+
+    @Value("${location.write-filter.enabled:true}")
+    private boolean writeFilterEnabled;
+
+    @Value("${location.index.share-rest-updates:true}")
+    private boolean shareRestUpdates;
+
+    // Later reports for the same driver overwrite earlier ones in the batch
+    public static Map<String, DriverLocationDto> latestPerDriver(List<DriverLocationDto> driverLocations) {
+        Map<String, DriverLocationDto> latest = new LinkedHashMap<>();
+        for (DriverLocationDto location : driverLocations) {
+            latest.put(location.getDriverId(), location);
+        }
+        return latest;
+    }
+
+    /**
+     * The reports that have to go to Redis: drivers that barely moved since their last write skip it
+     */
+    public Map<String, DriverLocationDto> redisWrites(Map<String, DriverLocationDto> latest, long now) {
+        if (!writeFilterEnabled) {
+            return latest;
+        }
+        Map<String, DriverLocationDto> writes = new LinkedHashMap<>();
+        latest.forEach((driverId, location) -> {
+            if (writeFilter.shouldWrite(Long.parseLong(driverId), location.getLatitude(), location.getLongitude(), now)) {
+                writes.put(driverId, location);
+            }
+        });
+        return writes;
+    }
+
+    // Once the Redis write succeeded
+    public void recordRedisWrites(Map<String, DriverLocationDto> writes, long now) {
+        if (writeFilterEnabled) {
+            writes.forEach((driverId, location) ->
+                    writeFilter.recordWrite(Long.parseLong(driverId), location.getLatitude(), location.getLongitude(), now));
+        }
+    }
+
+    /**
+     * Apply reports to the search index, near-cache and heatmap, including the ones that skipped Redis
+     */
+    public void applyLocations(Map<String, DriverLocationDto> latest, long now) {
+        latest.forEach((driverId, location) ->
+                applyLocation(driverId, location.getLatitude(), location.getLongitude(), location.getCarType(), now));
+    }
+
+    public void applyLocation(String driverId, double latitude, double longitude, CarType carType, long now) {
+        long id = Long.parseLong(driverId);
+        if (indexEnabled) {
+            driverIndex.upsert(id, latitude, longitude, now, carType);
+        }
+        if (locationCache.isEnabled()) {
+            locationCache.refresh(driverId, latitude, longitude, now);
+        }
+        if (heatmap.isEnabled()) {
+            heatmap.onLocation(id, latitude, longitude, now);
+        }
+    }
+
+    /**
+     * Reports taken over REST only reached this instance: republish them so the other instances'
+     * indexes and heatmaps apply them as well (they arrive here again too, which is a no-op)
+     */
+    public void shareLocations(Map<String, DriverLocationDto> latest, long now) {
+        if (shareRestUpdates && !latest.isEmpty()) {
+            locationUpdateProducer.publishPersisted(latest, now);
+        }
+    }
+
+    public void applyAvailability(String driverId, boolean available) {
+        if (indexEnabled) {
+            driverIndex.setAvailable(Long.parseLong(driverId), available);
+        }
+        if (heatmap.isEnabled()) {
+            heatmap.setAvailable(Long.parseLong(driverId), available);
+        }
+    }
+
+    public void forget(String driverId) {
+        long id = Long.parseLong(driverId);
+        writeFilter.forget(id);
+        locationCache.invalidate(driverId);
+        if (heatmap.isEnabled()) {
+            heatmap.remove(id);
+        }
+        if (indexEnabled) {
+            driverIndex.remove(id);
+        }
+    }
+
+    public Optional<DriverLocationDto> cachedLocation(String driverId, long now) {
+        return locationCache.isEnabled() ? locationCache.get(driverId, now) : Optional.empty();
+    }
+
+    public void cacheLocation(String driverId, DriverLocationDto location, long now) {
+        if (locationCache.isEnabled()) {
+            locationCache.put(driverId, location.getLatitude(), location.getLongitude(), now);
+        }
+    }
+
+    /**
+     * Nearest drivers from the in-memory index, empty until the index has been loaded on startup.
+     * The ring walk already expands outwards and stops at the limit, so one call covers every radius step
+     */
+    public Optional<List<DriverLocationDto>> searchIndex(DriverSearchCriteria criteria) {
+        if (!indexEnabled || !driverIndex.isReady()) {
+            return Optional.empty();
+        }
+        return Optional.of(driverIndex.nearest(criteria.getLatitude(), criteria.getLongitude(),
+                searchDefaults.maxRadiusKm(criteria), searchDefaults.limit(criteria), searchDefaults.freshnessCutoff(),
+                criteria.getCarTypes()));
+    }
+
+    /**
+     * Radii to search Redis with, in order: the increasing radius steps up to the max radius, then the max
+     * radius itself. Callers stop at the first radius that returns the limit
+     */
+    public List<Double> redisRadii(DriverSearchCriteria criteria) {
+        double maxRadiusKm = searchDefaults.maxRadiusKm(criteria);
+        List<Double> radii = new ArrayList<>();
+        double searchedRadiusKm = 0;
+        for (double radiusKm : searchDefaults.radiusStepsKm(criteria)) {
+            if (radiusKm <= searchedRadiusKm) {
+                continue;
+            }
+            if (radiusKm > maxRadiusKm) {
+                break;
+            }
+            radii.add(radiusKm);
+            searchedRadiusKm = radiusKm;
+        }
+        if (searchedRadiusKm < maxRadiusKm) {
+            radii.add(maxRadiusKm);
+        }
+        return radii;
+    }
+}
@@ -1,13 +1,23 @@
 package com.uber.location_service.location_service.service;
 
 import com.uber.location_service.location_service.dto.DriverLocationDto;
+import com.uber.location_service.location_service.dto.DriverSearchCriteria;
+import com.uber.location_service.location_service.dto.HeatmapDto;
 
 import java.util.List;
 import java.util.Optional;
 
 public interface LocationService {
     Boolean updateDriverLocation(DriverLocationDto driverLocationDto);
+    Integer updateDriverLocations(List<DriverLocationDto> driverLocations);
+    Integer persistDriverLocations(List<DriverLocationDto> driverLocations);
+    Integer indexDriverLocations(List<DriverLocationDto> driverLocations);
     Optional<DriverLocationDto> getDriverLocation(String driverId);
     List<DriverLocationDto> searchNearBy(double longitude, double latitude);
+    List<DriverLocationDto> searchNearest(DriverSearchCriteria criteria);
     Boolean deleteDriverLocation(String driverId);
+    void updateDriverAvailability(String driverId, boolean available);
+    void persistDriverAvailability(String driverId, boolean available);
+    void indexDriverAvailability(String driverId, boolean available);
+    HeatmapDto getHeatmap(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude);
 }
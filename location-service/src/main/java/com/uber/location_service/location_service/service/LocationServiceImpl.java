@@ -2,38 +2,151 @@ package com.uber.location_service.location_service.service;
 
 import com.uber.location_service.location_service.configs.RedisGeo;
 import com.uber.location_service.location_service.dto.DriverLocationDto;
-import lombok.AllArgsConstructor;
+import com.uber.location_service.location_service.dto.DriverSearchCriteria;
+import com.uber.location_service.location_service.dto.HeatmapDto;
+import com.uber.location_service.location_service.index.SupplyDemandHeatmap;
+import lombok.RequiredArgsConstructor;
 import org.springframework.data.geo.Point;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
-@AllArgsConstructor
+@RequiredArgsConstructor
 public class LocationServiceImpl implements LocationService {
-    
-    private RedisGeo redisGeo;
+
+    private static final double DEFAULT_RADIUS_KM = 5;
+    private static final int DEFAULT_SEARCH_LIMIT = 100;
+
+    private final RedisGeo redisGeo;
+    private final LocalDriverState localState;
+    private final SearchDefaults searchDefaults;
+    private final SupplyDemandHeatmap heatmap;
 
     @Override
     public Boolean updateDriverLocation(DriverLocationDto driverLocationDto) {
-        Point point = new Point(driverLocationDto.getLongitude(), driverLocationDto.getLatitude());
-        redisGeo.setGeo(point, driverLocationDto.getDriverId());
+        Map<String, DriverLocationDto> latest = Map.of(driverLocationDto.getDriverId(), driverLocationDto);
+        long now = System.currentTimeMillis();
+        // Redis stays the durable copy, the in-memory state is written through after it
+        Map<String, DriverLocationDto> writes = localState.redisWrites(latest, now);
+        if (!writes.isEmpty()) {
+            redisGeo.setGeo(new Point(driverLocationDto.getLongitude(), driverLocationDto.getLatitude()),
+                    driverLocationDto.getDriverId(), driverLocationDto.getCarType(), now);
+            localState.recordRedisWrites(writes, now);
+        }
+        localState.applyLocations(latest, now);
+        localState.shareLocations(latest, now);
         return Boolean.TRUE;
     }
 
+    @Override
+    public Integer updateDriverLocations(List<DriverLocationDto> driverLocations) {
+        Map<String, DriverLocationDto> latest = LocalDriverState.latestPerDriver(driverLocations);
+        long now = System.currentTimeMillis();
+        persist(latest, now);
+        localState.applyLocations(latest, now);
+        localState.shareLocations(latest, now);
+        return latest.size();
+    }
+
+    @Override
+    public Integer persistDriverLocations(List<DriverLocationDto> driverLocations) {
+        Map<String, DriverLocationDto> latest = LocalDriverState.latestPerDriver(driverLocations);
+        persist(latest, System.currentTimeMillis());
+        return latest.size();
+    }
+
+    @Override
+    public Integer indexDriverLocations(List<DriverLocationDto> driverLocations) {
+        Map<String, DriverLocationDto> latest = LocalDriverState.latestPerDriver(driverLocations);
+        localState.applyLocations(latest, System.currentTimeMillis());
+        return latest.size();
+    }
+
+    private void persist(Map<String, DriverLocationDto> latest, long now) {
+        Map<String, DriverLocationDto> writes = localState.redisWrites(latest, now);
+        redisGeo.setGeoBatch(writes, now);
+        localState.recordRedisWrites(writes, now);
+    }
+
     @Override
     public Optional<DriverLocationDto> getDriverLocation(String driverId) {
-        return redisGeo.getDriverLocation(driverId);
+        long now = System.currentTimeMillis();
+        Optional<DriverLocationDto> cached = localState.cachedLocation(driverId, now);
+        if (cached.isPresent()) {
+            return cached;
+        }
+        Optional<DriverLocationDto> location = redisGeo.getDriverLocation(driverId);
+        location.ifPresent(found -> localState.cacheLocation(driverId, found, now));
+        return location;
     }
 
     @Override
     public List<DriverLocationDto> searchNearBy(double longitude, double latitude) {
-        return redisGeo.nearBy(longitude, latitude);
+        // Fall back to Redis until the index has been loaded on startup
+        return localState.searchIndex(DriverSearchCriteria.builder()
+                        .latitude(latitude)
+                        .longitude(longitude)
+                        .maxRadiusKm(DEFAULT_RADIUS_KM)
+                        .limit(DEFAULT_SEARCH_LIMIT)
+                        .build())
+                .orElseGet(() -> redisGeo.nearBy(longitude, latitude, DEFAULT_RADIUS_KM, DEFAULT_SEARCH_LIMIT,
+                        searchDefaults.freshnessCutoff(), null));
+    }
+
+    /**
+     * k nearest drivers, widening the radius step by step until k are found or the max radius is hit
+     */
+    @Override
+    public List<DriverLocationDto> searchNearest(DriverSearchCriteria criteria) {
+        Optional<List<DriverLocationDto>> indexed = localState.searchIndex(criteria);
+        if (indexed.isPresent()) {
+            return indexed.get();
+        }
+        int limit = searchDefaults.limit(criteria);
+        long minLastSeenMillis = searchDefaults.freshnessCutoff();
+        List<DriverLocationDto> drivers = List.of();
+        for (double radiusKm : localState.redisRadii(criteria)) {
+            drivers = redisGeo.nearBy(criteria.getLongitude(), criteria.getLatitude(), radiusKm, limit, minLastSeenMillis,
+                    criteria.getCarTypes());
+            if (drivers.size() >= limit) {
+                break;
+            }
+        }
+        return drivers;
     }
 
     @Override
     public Boolean deleteDriverLocation(String driverId) {
-        return redisGeo.deleteDriverLocation(driverId);
+        Boolean deleted = redisGeo.deleteDriverLocation(driverId);
+        localState.forget(driverId);
+        return deleted;
+    }
+
+    @Override
+    public void updateDriverAvailability(String driverId, boolean available) {
+        persistDriverAvailability(driverId, available);
+        indexDriverAvailability(driverId, available);
+    }
+
+    @Override
+    public void persistDriverAvailability(String driverId, boolean available) {
+        redisGeo.setDriverAvailability(driverId, available);
+    }
+
+    @Override
+    public void indexDriverAvailability(String driverId, boolean available) {
+        localState.applyAvailability(driverId, available);
+    }
+
+    @Override
+    public HeatmapDto getHeatmap(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude) {
+        return HeatmapDto.builder()
+                .cellSizeDegrees(heatmap.getCellSizeDegrees())
+                .demandWindowSeconds(heatmap.getDemandWindowSeconds())
+                .cells(heatmap.cells(minLatitude, minLongitude, maxLatitude, maxLongitude, System.currentTimeMillis()))
+                .build();
     }
 }
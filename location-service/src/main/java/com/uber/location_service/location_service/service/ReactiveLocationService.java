@@ -0,0 +1,110 @@
+package com.uber.location_service.location_service.service;
+
+import com.uber.location_service.location_service.configs.ReactiveRedisGeo;
+import com.uber.location_service.location_service.dto.DriverLocationDto;
+import com.uber.location_service.location_service.dto.DriverSearchCriteria;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.geo.Point;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Same write-through and search rules as LocationServiceImpl (both go through LocalDriverState), with
+ * every Redis call issued through the reactive client so no request thread waits on Redis
+ */
+@Service
+@ConditionalOnProperty(name = "location.redis.client", havingValue = "reactive")
+@RequiredArgsConstructor
+public class ReactiveLocationService implements AsyncLocationService {
+
+    private final ReactiveRedisGeo redisGeo;
+    private final LocalDriverState localState;
+    private final SearchDefaults searchDefaults;
+
+    @Override
+    public CompletableFuture<Boolean> updateDriverLocation(DriverLocationDto driverLocationDto) {
+        Map<String, DriverLocationDto> latest = Map.of(driverLocationDto.getDriverId(), driverLocationDto);
+        long now = System.currentTimeMillis();
+        Map<String, DriverLocationDto> writes = localState.redisWrites(latest, now);
+        Mono<Void> write = writes.isEmpty()
+                ? Mono.empty()
+                : redisGeo.setGeo(new Point(driverLocationDto.getLongitude(), driverLocationDto.getLatitude()),
+                        driverLocationDto.getDriverId(), driverLocationDto.getCarType(), now);
+        return write
+                .doOnSuccess(ignored -> {
+                    localState.recordRedisWrites(writes, now);
+                    localState.applyLocations(latest, now);
+                    localState.shareLocations(latest, now);
+                })
+                .thenReturn(Boolean.TRUE)
+                .toFuture();
+    }
+
+    @Override
+    public CompletableFuture<Integer> updateDriverLocations(List<DriverLocationDto> driverLocations) {
+        Map<String, DriverLocationDto> latest = LocalDriverState.latestPerDriver(driverLocations);
+        long now = System.currentTimeMillis();
+        Map<String, DriverLocationDto> writes = localState.redisWrites(latest, now);
+        return redisGeo.setGeoBatch(writes, now)
+                .doOnSuccess(ignored -> {
+                    localState.recordRedisWrites(writes, now);
+                    localState.applyLocations(latest, now);
+                    localState.shareLocations(latest, now);
+                })
+                .thenReturn(latest.size())
+                .toFuture();
+    }
+
+    @Override
+    public CompletableFuture<Optional<DriverLocationDto>> getDriverLocation(String driverId) {
+        long now = System.currentTimeMillis();
+        Optional<DriverLocationDto> cached = localState.cachedLocation(driverId, now);
+        if (cached.isPresent()) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        return redisGeo.getDriverLocation(driverId)
+                .doOnSuccess(location -> location.ifPresent(found -> localState.cacheLocation(driverId, found, now)))
+                .toFuture();
+    }
+
+    /**
+     * Served from the in-memory index without touching Redis once it is loaded,
+     * otherwise the radius steps are chained on the reactive client
+     */
+    @Override
+    public CompletableFuture<List<DriverLocationDto>> searchNearest(DriverSearchCriteria criteria) {
+        Optional<List<DriverLocationDto>> indexed = localState.searchIndex(criteria);
+        if (indexed.isPresent()) {
+            return CompletableFuture.completedFuture(indexed.get());
+        }
+        return searchRedis(criteria, localState.redisRadii(criteria), 0, searchDefaults.limit(criteria),
+                searchDefaults.freshnessCutoff())
+                .toFuture();
+    }
+
+    @Override
+    public CompletableFuture<Boolean> deleteDriverLocation(String driverId) {
+        return redisGeo.deleteDriverLocation(driverId)
+                .doOnSuccess(deleted -> localState.forget(driverId))
+                .toFuture();
+    }
+
+    // Try the next radius, stop once limit drivers are found or the radii run out
+    private Mono<List<DriverLocationDto>> searchRedis(DriverSearchCriteria criteria, List<Double> radiiKm, int step,
+                                                      int limit, long minLastSeenMillis) {
+        if (step == radiiKm.size()) {
+            return Mono.just(List.of());
+        }
+        return redisGeo.nearBy(criteria.getLongitude(), criteria.getLatitude(), radiiKm.get(step), limit, minLastSeenMillis,
+                        criteria.getCarTypes())
+                .flatMap(drivers -> drivers.size() >= limit || step + 1 == radiiKm.size()
+                        ? Mono.just(drivers)
+                        : searchRedis(criteria, radiiKm, step + 1, limit, minLastSeenMillis));
+    }
+}
@@ -0,0 +1,80 @@
+package com.uber.location_service.location_service.service;
+
+import com.uber.location_service.location_service.dto.DriverSearchCriteria;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fills in configured defaults for whatever a search request leaves out, and bounds what it asks for
+ * (limit and radius come straight from Kafka and size the search work), shared by the blocking and the
+ * non-blocking location services
+ */
+@Component
+@Slf4j
+public class SearchDefaults {
+
+    @Value("${location.search.default-limit:10}")
+    private int defaultSearchLimit; // Not final - injected via @Value
+
+    @Value("${location.search.radius-steps-km:1,2,5,10}")
+    private List<Double> defaultRadiusStepsKm;
+
+    @Value("${location.search.max-radius-km:10}")
+    private double defaultMaxRadiusKm;
+
+    @Value("${location.search.limit-cap:100}")
+    private int limitCap;
+
+    @Value("${location.search.radius-cap-km:50}")
+    private double radiusCapKm;
+
+    @Value("${location.stale.ttl-seconds:120}")
+    private long staleTtlSeconds;
+
+    public int limit(DriverSearchCriteria criteria) {
+        int limit = criteria.getLimit() != null && criteria.getLimit() > 0 ? criteria.getLimit() : defaultSearchLimit;
+        return Math.min(limit, limitCap);
+    }
+
+    /**
+     * Radii that are not positive finite numbers are ignored in favour of the default
+     */
+    public double maxRadiusKm(DriverSearchCriteria criteria) {
+        Double requested = criteria.getMaxRadiusKm();
+        if (requested != null && !isValidRadius(requested)) {
+            log.warn("Ignoring invalid max radius {} km in search request", requested);
+            requested = null;
+        }
+        return Math.min(requested != null ? requested : defaultMaxRadiusKm, radiusCapKm);
+    }
+
+    public List<Double> radiusStepsKm(DriverSearchCriteria criteria) {
+        if (criteria.getRadiusStepsKm() == null || criteria.getRadiusStepsKm().isEmpty()) {
+            return defaultRadiusStepsKm;
+        }
+        List<Double> steps = new ArrayList<>(criteria.getRadiusStepsKm().size());
+        for (Double step : criteria.getRadiusStepsKm()) {
+            if (step != null && isValidRadius(step)) {
+                steps.add(Math.min(step, radiusCapKm));
+            }
+        }
+        if (steps.size() < criteria.getRadiusStepsKm().size()) {
+            log.warn("Ignoring invalid radius steps in search request: {}", criteria.getRadiusStepsKm());
+        }
+        return steps.isEmpty() ? defaultRadiusStepsKm : steps;
+    }
+
+    // Drivers that have not reported within the TTL are treated as offline by searches
+    public long freshnessCutoff() {
+        return System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(staleTtlSeconds);
+    }
+
+    private static boolean isValidRadius(double radiusKm) {
+        return radiusKm > 0 && Double.isFinite(radiusKm);
+    }
+}
@@ -0,0 +1,63 @@
+package com.uber.location_service.location_service.service;
+
+import com.uber.location_service.location_service.cache.DriverLocationCache;
+import com.uber.location_service.location_service.configs.RedisGeo;
+import com.uber.location_service.location_service.index.DriverSpatialIndex;
+import com.uber.location_service.location_service.index.LocationWriteFilter;
+import com.uber.location_service.location_service.index.SupplyDemandHeatmap;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Removes drivers whose app stopped reporting (e.g. the app was killed) so they don't
+ * keep showing up as ghost drivers in searches
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class StaleDriverSweeper {
+
+    private final RedisGeo redisGeo;
+    private final DriverSpatialIndex driverIndex;
+    private final LocationWriteFilter writeFilter;
+    private final DriverLocationCache locationCache;
+    private final SupplyDemandHeatmap heatmap;
+
+    @Value("${location.stale.ttl-seconds:120}")
+    private long staleTtlSeconds; // Not final - injected via @Value
+
+    @Value("${location.stale.sweep-batch-size:500}")
+    private int batchSize;
+
+    @Value("${location.stale.max-batches-per-sweep:20}")
+    private int maxBatchesPerSweep;
+
+    @Scheduled(fixedDelayString = "${location.stale.sweep-interval-ms:30000}")
+    public void sweepStaleDrivers() {
+        long cutoff = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(staleTtlSeconds);
+        int removed = 0;
+        try {
+            // Bounded batches per region keep each script call short so Redis is never blocked for long
+            List<String> expired = redisGeo.expireStaleDrivers(cutoff, batchSize, maxBatchesPerSweep);
+            removed = expired.size();
+            expired.forEach(locationCache::invalidate);
+        } catch (Exception e) {
+            log.error("Failed to sweep stale drivers from Redis", e);
+        }
+        int removedFromIndex = driverIndex.removeStale(cutoff);
+        if (heatmap.isEnabled()) {
+            heatmap.removeStale(cutoff, System.currentTimeMillis());
+        }
+        // Swept drivers must be written again on their next report
+        writeFilter.evictOlderThan(cutoff);
+        if (removed > 0 || removedFromIndex > 0) {
+            log.info("Swept stale drivers: redis={}, index={}", removed, removedFromIndex);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+-- Drop a driver's state hash (position, car type, busy flag)
+-- KEYS[1] = driver state hash
+-- Returns {cell, partition} of the stored position, or {} when there was none
+local state = redis.call('HMGET', KEYS[1], 'cell', 'partition')
+redis.call('DEL', KEYS[1])
+if not state[1] or not state[2] then
+    return {}
+end
+return {state[1], state[2]}
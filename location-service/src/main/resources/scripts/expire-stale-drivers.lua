@@ -0,0 +1,11 @@
+-- Remove up to ARGV[2] drivers of one region not seen since ARGV[1] and return their ids
+-- KEYS[1] = region last-seen sorted set, KEYS[2..n] = every geo set of the region
+-- ARGV[1] = cutoff epoch millis, ARGV[2] = batch size
+local stale = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', '(' .. ARGV[1], 'LIMIT', 0, ARGV[2])
+for _, driverId in ipairs(stale) do
+    for i = 2, #KEYS do
+        redis.call('ZREM', KEYS[i], driverId)
+    end
+    redis.call('ZREM', KEYS[1], driverId)
+end
+return stale
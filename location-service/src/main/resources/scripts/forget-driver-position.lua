@@ -0,0 +1,9 @@
+-- Clear the stored position of a driver expired from a region, unless it has moved to another region since.
+-- The car type and busy flag stay until the state hash itself expires
+-- KEYS[1] = driver state hash
+-- ARGV[1] = region cell the driver was expired from
+if redis.call('HGET', KEYS[1], 'cell') ~= ARGV[1] then
+    return 0
+end
+redis.call('HDEL', KEYS[1], 'cell', 'partition', 'lon', 'lat', 'seenAt')
+return 1
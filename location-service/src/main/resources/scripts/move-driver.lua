@@ -0,0 +1,11 @@
+-- Move a driver between two partitions of the same region, keeping its exact position
+-- KEYS[1] = geo set the driver leaves, KEYS[2] = geo set it joins (same region)
+-- ARGV[1] = driverId
+-- Geo sets are sorted sets, copying the score keeps the exact geohash position
+local score = redis.call('ZSCORE', KEYS[1], ARGV[1])
+if not score then
+    return 0
+end
+redis.call('ZREM', KEYS[1], ARGV[1])
+redis.call('ZADD', KEYS[2], score, ARGV[1])
+return 1
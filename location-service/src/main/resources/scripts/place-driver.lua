@@ -0,0 +1,14 @@
+-- Put a driver in a region's geo set and stamp it in the region's last-seen set
+-- All keys share one hash tag: the region's, or the single tag of every region with single-slot
+-- KEYS[1] = geo set, KEYS[2] = last-seen sorted set, KEYS[3] (optional) = geo set the driver leaves,
+-- KEYS[4] (optional) = last-seen sorted set of the region the driver leaves
+-- ARGV[1] = driverId, ARGV[2] = longitude, ARGV[3] = latitude, ARGV[4] = last seen epoch millis
+if KEYS[3] then
+    redis.call('ZREM', KEYS[3], ARGV[1])
+end
+if KEYS[4] then
+    redis.call('ZREM', KEYS[4], ARGV[1])
+end
+redis.call('GEOADD', KEYS[1], ARGV[2], ARGV[3], ARGV[1])
+redis.call('ZADD', KEYS[2], ARGV[4], ARGV[1])
+return 1
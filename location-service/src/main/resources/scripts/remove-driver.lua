@@ -0,0 +1,11 @@
+-- Take a driver out of a region's last-seen set and geo sets
+-- KEYS[1] = last-seen sorted set, KEYS[2..n] = geo sets of the same region (every partition when the driver
+-- left the region, as its partition may have been switched since it was read)
+-- ARGV[1] = driverId
+-- Returns the number of geo sets the driver was removed from
+redis.call('ZREM', KEYS[1], ARGV[1])
+local removed = 0
+for i = 2, #KEYS do
+    removed = removed + redis.call('ZREM', KEYS[i], ARGV[1])
+end
+return removed
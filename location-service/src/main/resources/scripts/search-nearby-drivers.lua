@@ -0,0 +1,50 @@
+-- GEOSEARCH the partitions of one region, keeping up to the limit nearest drivers per partition whose last
+-- report is not older than the cutoff. Stale members met on the way are removed from that partition (the
+-- stale sweep still finds them in the last-seen set and clears the rest), and the partition is searched again
+-- with a larger COUNT until the limit is met or the circle holds no more members, so stale drivers closer to
+-- the pickup never crowd out fresh ones further away
+-- KEYS[1..n-1] = geo sets of the region, KEYS[n] = the region's last-seen sorted set (all share its hash tag)
+-- ARGV[1] = longitude, ARGV[2] = latitude, ARGV[3] = radius km, ARGV[4] = limit per shard,
+-- ARGV[5] = min last seen epoch millis
+-- Returns a flat list: driverId, distance km, longitude, latitude, shard index, last seen epoch millis, ...
+-- (unsorted across shards)
+local lastSeenKey = KEYS[#KEYS]
+local limit = tonumber(ARGV[4])
+local minLastSeen = tonumber(ARGV[5])
+local result = {}
+for i = 1, #KEYS - 1 do
+    local count = limit
+    local fresh
+    while true do
+        local hits = redis.call('GEOSEARCH', KEYS[i], 'FROMLONLAT', ARGV[1], ARGV[2],
+                'BYRADIUS', ARGV[3], 'km', 'ASC', 'COUNT', count, 'WITHCOORD', 'WITHDIST')
+        fresh = {}
+        local purged = 0
+        for _, hit in ipairs(hits) do
+            local lastSeen = redis.call('ZSCORE', lastSeenKey, hit[1])
+            if lastSeen and tonumber(lastSeen) >= minLastSeen then
+                if #fresh < limit then
+                    table.insert(fresh, { hit, lastSeen })
+                end
+            else
+                redis.call('ZREM', KEYS[i], hit[1])
+                purged = purged + 1
+            end
+        end
+        -- Done once enough were found, nothing was in the way or the circle was exhausted
+        if #fresh >= limit or purged == 0 or #hits < count then
+            break
+        end
+        count = count * 4
+    end
+    for _, entry in ipairs(fresh) do
+        local hit = entry[1]
+        table.insert(result, hit[1])
+        table.insert(result, hit[2])
+        table.insert(result, hit[3][1])
+        table.insert(result, hit[3][2])
+        table.insert(result, i)
+        table.insert(result, entry[2])
+    end
+end
+return result
@@ -0,0 +1,21 @@
+-- Mark a driver available or busy in its state hash and switch the partition of its stored position
+-- KEYS[1] = driver state hash
+-- ARGV[1] = '1' for available / '0' for busy, ARGV[2] = state ttl millis
+-- Returns {cell, previous partition, partition}, or {} when no position is stored
+if ARGV[1] == '1' then
+    redis.call('HDEL', KEYS[1], 'busy')
+else
+    redis.call('HSET', KEYS[1], 'busy', '1')
+    redis.call('PEXPIRE', KEYS[1], ARGV[2])
+end
+local state = redis.call('HMGET', KEYS[1], 'cell', 'partition')
+if not state[1] or not state[2] then
+    return {}
+end
+local carType = string.sub(state[2], string.find(state[2], ':', 1, true) + 1)
+local partition = 'busy:' .. carType
+if ARGV[1] == '1' then
+    partition = 'available:' .. carType
+end
+redis.call('HSET', KEYS[1], 'partition', partition)
+return {state[1], state[2], partition}
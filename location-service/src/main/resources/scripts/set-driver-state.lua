@@ -0,0 +1,25 @@
+-- Record a driver's new position and region in its state hash, once the region writes have placed it there.
+-- Only the driver's own key is touched
+-- The partition is {availability}:{car type}: busy drivers go to the busy partition and the car type is
+-- the one reported now, or the one remembered from an earlier report. It is worked out again here because
+-- the busy flag may have changed since the caller read it to place the driver
+-- KEYS[1] = driver state hash
+-- ARGV[1] = longitude, ARGV[2] = latitude, ARGV[3] = last seen epoch millis, ARGV[4] = region cell,
+-- ARGV[5] = car type or '' if not reported, ARGV[6] = car type used when none is known, ARGV[7] = state ttl millis,
+-- ARGV[8] = partition the driver was placed in
+-- Returns {cell, partition placed in, partition}: the caller moves the driver when the last two differ
+local state = redis.call('HMGET', KEYS[1], 'carType', 'busy')
+local carType = ARGV[5]
+if carType == '' then
+    carType = state[1] or ARGV[6]
+else
+    redis.call('HSET', KEYS[1], 'carType', carType)
+end
+local availability = 'available'
+if state[2] == '1' then
+    availability = 'busy'
+end
+local partition = availability .. ':' .. carType
+redis.call('HSET', KEYS[1], 'lon', ARGV[1], 'lat', ARGV[2], 'seenAt', ARGV[3], 'cell', ARGV[4], 'partition', partition)
+redis.call('PEXPIRE', KEYS[1], ARGV[7])
+return {ARGV[4], ARGV[8], partition}
@@ -0,0 +1,142 @@
+package com.uber.location_service.location_service.configs;
+
+import com.uber.entity.models.CarType;
+import com.uber.location_service.location_service.dto.DriverLocationDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.geo.Point;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RedisGeoMoveTest {
+
+    // ~11 km apart on either side of a precision 4 geohash boundary
+    private static final Point WEST = new Point(77.30, 12.97);
+    private static final Point EAST = new Point(77.40, 12.97);
+
+    private ScriptedGeoRedis redis;
+
+    @BeforeEach
+    void setUp() {
+        redis = new ScriptedGeoRedis();
+    }
+
+    @Test
+    void searchesSeeTheDriverOnceAtEveryStepOfAMoveAcrossRegions() {
+        RedisGeo redisGeo = redisGeo(false);
+        assertThat(redisGeo.cellOf(WEST)).isNotEqualTo(redisGeo.cellOf(EAST));
+        redisGeo.setGeo(WEST, "1", CarType.SEDAN, 1_000);
+
+        List<List<DriverLocationDto>> interleaved = new ArrayList<>();
+        redis.beforeEachCall(() -> interleaved.add(search(redisGeo)));
+        redisGeo.setGeo(EAST, "1", CarType.SEDAN, 2_000);
+        redis.beforeEachCall(null);
+
+        assertThat(interleaved).isNotEmpty().allSatisfy(found -> assertThat(found).hasSize(1));
+        assertThat(search(redisGeo)).singleElement()
+                .satisfies(driver -> assertThat(driver.getLongitude()).isEqualTo(EAST.getX()));
+        assertThat(redis.members(redisGeo.regionKey(redisGeo.cellOf(WEST), "available:SEDAN"))).isEmpty();
+        assertThat(redis.hashField(RedisGeo.stateKey("1"), "cell")).isEqualTo(redisGeo.cellOf(EAST));
+    }
+
+    @Test
+    void batchMoveAcrossRegionsIsNeverInvisibleToSearches() {
+        RedisGeo redisGeo = redisGeo(false);
+        redisGeo.setGeoBatch(locations(WEST), 1_000);
+
+        List<List<DriverLocationDto>> interleaved = new ArrayList<>();
+        redis.beforeEachCall(() -> interleaved.add(search(redisGeo)));
+        redisGeo.setGeoBatch(locations(EAST), 2_000);
+        redis.beforeEachCall(null);
+
+        assertThat(interleaved).isNotEmpty().allSatisfy(found -> assertThat(found).hasSize(1));
+        assertThat(search(redisGeo)).singleElement()
+                .satisfies(driver -> assertThat(driver.getLongitude()).isEqualTo(EAST.getX()));
+    }
+
+    @Test
+    void singleSlotMoveIsOneRegionScript() {
+        RedisGeo redisGeo = redisGeo(true);
+        redisGeo.setGeo(WEST, "1", CarType.SEDAN, 1_000);
+        redis.executed().clear();
+
+        List<List<DriverLocationDto>> interleaved = new ArrayList<>();
+        redis.beforeEachCall(() -> interleaved.add(search(redisGeo)));
+        redisGeo.setGeo(EAST, "1", CarType.SEDAN, 2_000);
+        redis.beforeEachCall(null);
+
+        assertThat(redis.executed()).containsExactly(RedisGeo.PLACE_SCRIPT, RedisGeo.SET_STATE_SCRIPT);
+        assertThat(interleaved).allSatisfy(found -> assertThat(found).hasSize(1));
+        assertThat(redis.members(redisGeo.regionKey(redisGeo.cellOf(WEST), "available:SEDAN"))).isEmpty();
+    }
+
+    @Test
+    void moveThatFailsBeforeLeavingTheOldRegionIsRepairedByTheNextWrite() {
+        RedisGeo redisGeo = redisGeo(false);
+        redisGeo.setGeo(WEST, "1", CarType.SEDAN, 1_000);
+
+        redis.failNextCallOf(RedisGeo.REMOVE_SCRIPT);
+        assertThatThrownBy(() -> redisGeo.setGeo(EAST, "1", CarType.SEDAN, 2_000)).isInstanceOf(IllegalStateException.class);
+        // In both regions for now: searches keep the position reported last, the state hash still has the old region
+        assertThat(search(redisGeo)).singleElement()
+                .satisfies(driver -> assertThat(driver.getLongitude()).isEqualTo(EAST.getX()));
+        assertThat(redis.hashField(RedisGeo.stateKey("1"), "cell")).isEqualTo(redisGeo.cellOf(WEST));
+
+        redisGeo.setGeo(EAST, "1", CarType.SEDAN, 3_000);
+        assertThat(redis.members(redisGeo.regionKey(redisGeo.cellOf(WEST), "available:SEDAN"))).isEmpty();
+        assertThat(redis.hashField(RedisGeo.stateKey("1"), "cell")).isEqualTo(redisGeo.cellOf(EAST));
+    }
+
+    @Test
+    void driverMarkedBusyDuringAMoveEndsUpInTheBusyPartition() {
+        RedisGeo redisGeo = redisGeo(false);
+        redisGeo.setGeo(WEST, "1", CarType.SEDAN, 1_000);
+
+        // After the stored placement was read, before the driver is placed in its new region
+        int[] calls = {0};
+        redis.beforeEachCall(() -> {
+            if (calls[0]++ == 1) {
+                redisGeo.setDriverAvailability("1", false);
+            }
+        });
+        redisGeo.setGeo(EAST, "1", CarType.SEDAN, 2_000);
+        redis.beforeEachCall(null);
+
+        String eastCell = redisGeo.cellOf(EAST);
+        assertThat(redis.members(redisGeo.regionKey(eastCell, "available:SEDAN"))).isEmpty();
+        assertThat(redis.members(redisGeo.regionKey(eastCell, "busy:SEDAN"))).containsExactly("1");
+        assertThat(redis.members(redisGeo.regionKey(redisGeo.cellOf(WEST), "busy:SEDAN"))).isEmpty();
+        assertThat(search(redisGeo)).isEmpty();
+    }
+
+    private RedisGeo redisGeo(boolean singleSlot) {
+        RedisGeo redisGeo = new RedisGeo(redis);
+        ReflectionTestUtils.setField(redisGeo, "shardPrecision", 4);
+        ReflectionTestUtils.setField(redisGeo, "stateTtlHours", 24L);
+        ReflectionTestUtils.setField(redisGeo, "singleSlot", singleSlot);
+        return redisGeo;
+    }
+
+    // Halfway between the two positions, wide enough to read both regions
+    private static List<DriverLocationDto> search(RedisGeo redisGeo) {
+        return redisGeo.nearBy(77.35, 12.97, 20, 10, 0, null);
+    }
+
+    private static Map<String, DriverLocationDto> locations(Point point) {
+        Map<String, DriverLocationDto> locations = new LinkedHashMap<>();
+        locations.put("1", DriverLocationDto.builder()
+                .driverId("1")
+                .longitude(point.getX())
+                .latitude(point.getY())
+                .carType(CarType.SEDAN)
+                .build());
+        return locations;
+    }
+}
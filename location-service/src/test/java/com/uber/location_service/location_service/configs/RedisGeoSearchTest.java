@@ -0,0 +1,57 @@
+package com.uber.location_service.location_service.configs;
+
+import com.uber.entity.models.CarType;
+import com.uber.location_service.location_service.dto.DriverLocationDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.geo.Point;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RedisGeoSearchTest {
+
+    private static final double LONGITUDE = 77.59;
+    private static final double LATITUDE = 12.97;
+
+    private final ScriptedGeoRedis redis = new ScriptedGeoRedis();
+    private final RedisGeo redisGeo = redisGeo();
+
+    @Test
+    void staleDriversNearerThanTheLimitDoNotHideFreshOnes() {
+        // Ten drivers right at the pickup stopped reporting, three further out are fresh
+        for (int i = 1; i <= 10; i++) {
+            redisGeo.setGeo(new Point(LONGITUDE + i * 0.0001, LATITUDE), Integer.toString(i), CarType.SEDAN, 1_000);
+        }
+        for (int i = 11; i <= 13; i++) {
+            redisGeo.setGeo(new Point(LONGITUDE + i * 0.001, LATITUDE), Integer.toString(i), CarType.SEDAN, 10_000);
+        }
+
+        List<DriverLocationDto> found = redisGeo.nearBy(LONGITUDE, LATITUDE, 5, 2, 5_000, null);
+
+        assertThat(found).extracting(DriverLocationDto::getDriverId).containsExactly("11", "12");
+    }
+
+    @Test
+    void staleDriversMetBySearchAreDroppedFromThePartitionOnly() {
+        redisGeo.setGeo(new Point(LONGITUDE, LATITUDE), "1", CarType.SEDAN, 1_000);
+        redisGeo.setGeo(new Point(LONGITUDE + 0.01, LATITUDE), "2", CarType.SEDAN, 10_000);
+        String cell = redisGeo.cellOf(new Point(LONGITUDE, LATITUDE));
+
+        assertThat(redisGeo.nearBy(LONGITUDE, LATITUDE, 5, 1, 5_000, null))
+                .extracting(DriverLocationDto::getDriverId).containsExactly("2");
+
+        assertThat(redis.members(redisGeo.regionKey(cell, "available:SEDAN"))).containsExactly("2");
+        // Still in the last-seen set, so the stale sweep finds it and clears its stored position
+        assertThat(redis.lastSeenMembers(redisGeo.lastSeenKey(cell))).containsExactlyInAnyOrder("1", "2");
+    }
+
+    private RedisGeo redisGeo() {
+        RedisGeo redisGeo = new RedisGeo(redis);
+        ReflectionTestUtils.setField(redisGeo, "shardPrecision", 4);
+        ReflectionTestUtils.setField(redisGeo, "stateTtlHours", 24L);
+        ReflectionTestUtils.setField(redisGeo, "singleSlot", false);
+        return redisGeo;
+    }
+}
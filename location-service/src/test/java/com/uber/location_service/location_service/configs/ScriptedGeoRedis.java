@@ -0,0 +1,284 @@
+package com.uber.location_service.location_service.configs;
+
+import com.uber.location_service.location_service.geo.GeoMath;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Redis stand-in for RedisGeo tests: the driver scripts are replayed in Java (searches by brute force),
+ * one command at a time, with a hook that runs before every command so a test can interleave its own
+ * calls with a write, and a way to fail the next call of a script. Single threaded
+ */
+final class ScriptedGeoRedis extends StringRedisTemplate {
+
+    private final Map<String, Map<String, String>> hashes = new HashMap<>();
+    private final Map<String, Map<String, double[]>> geoSets = new HashMap<>();
+    private final Map<String, Map<String, Long>> lastSeen = new HashMap<>();
+    private final List<RedisScript<?>> executed = new ArrayList<>();
+    private Runnable beforeEachCall;
+    private boolean inHook;
+    private RedisScript<?> failNext;
+
+    void beforeEachCall(Runnable hook) {
+        this.beforeEachCall = hook;
+    }
+
+    void failNextCallOf(RedisScript<?> script) {
+        this.failNext = script;
+    }
+
+    List<RedisScript<?>> executed() {
+        return executed;
+    }
+
+    Set<String> members(String geoKey) {
+        return geoSets.getOrDefault(geoKey, Map.of()).keySet();
+    }
+
+    Set<String> lastSeenMembers(String key) {
+        return lastSeen.getOrDefault(key, Map.of()).keySet();
+    }
+
+    String hashField(String key, String field) {
+        return hashes.getOrDefault(key, Map.of()).get(field);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T execute(RedisScript<T> script, List<String> keys, Object... args) {
+        beforeCall();
+        if (script == failNext) {
+            failNext = null;
+            throw new IllegalStateException("Injected failure");
+        }
+        if (!inHook) {
+            executed.add(script);
+        }
+        String[] values = Arrays.stream(args).map(Object::toString).toArray(String[]::new);
+        if (script == RedisGeo.SET_STATE_SCRIPT) {
+            return (T) setState(keys, values);
+        }
+        if (script == RedisGeo.PLACE_SCRIPT) {
+            return (T) place(keys, values);
+        }
+        if (script == RedisGeo.REMOVE_SCRIPT) {
+            return (T) remove(keys, values);
+        }
+        if (script == RedisGeo.MOVE_SCRIPT) {
+            return (T) move(keys, values);
+        }
+        if (script == RedisGeo.SET_AVAILABILITY_SCRIPT) {
+            return (T) setAvailability(keys, values);
+        }
+        if (script == RedisGeo.SEARCH_NEARBY_SCRIPT) {
+            return (T) search(keys, values);
+        }
+        throw new UnsupportedOperationException("Script not supported by the stand-in");
+    }
+
+    @Override
+    public List<Object> executePipelined(RedisCallback<?> action) {
+        Map<String, RedisScript<?>> bySha = new HashMap<>();
+        for (RedisScript<?> script : List.of(RedisGeo.SET_STATE_SCRIPT, RedisGeo.PLACE_SCRIPT, RedisGeo.REMOVE_SCRIPT,
+                RedisGeo.MOVE_SCRIPT, RedisGeo.SET_AVAILABILITY_SCRIPT, RedisGeo.SEARCH_NEARBY_SCRIPT)) {
+            bySha.put(script.getSha1(), script);
+        }
+        List<Object> replies = new ArrayList<>();
+        StringRedisConnection connection = (StringRedisConnection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{StringRedisConnection.class}, (proxy, method, methodArgs) -> {
+                    if (method.getName().equals("hMGet")) {
+                        beforeCall();
+                        replies.add(hashFields(methodArgs[0].toString(), Arrays.asList((Object[]) methodArgs[1])));
+                        return null;
+                    }
+                    if (!method.getName().equals("evalSha") || !(methodArgs[0] instanceof String sha)) {
+                        throw new UnsupportedOperationException(method.getName() + " not supported by the stand-in");
+                    }
+                    int numKeys = (Integer) methodArgs[2];
+                    String[] keysAndArgs = (String[]) methodArgs[3];
+                    List<String> keys = Arrays.asList(keysAndArgs).subList(0, numKeys);
+                    Object[] args = Arrays.copyOfRange(keysAndArgs, numKeys, keysAndArgs.length);
+                    replies.add(execute(bySha.get(sha), keys, args));
+                    return null;
+                });
+        action.doInRedis(connection);
+        return replies;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public HashOperations<String, Object, Object> opsForHash() {
+        return (HashOperations<String, Object, Object>) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{HashOperations.class}, (proxy, method, methodArgs) -> {
+                    if (!method.getName().equals("multiGet")) {
+                        throw new UnsupportedOperationException(method.getName() + " not supported by the stand-in");
+                    }
+                    beforeCall();
+                    return hashFields(methodArgs[0].toString(), new ArrayList<>((Collection<Object>) methodArgs[1]));
+                });
+    }
+
+    // Region registry, not looked at by the tests
+    @Override
+    @SuppressWarnings("unchecked")
+    public SetOperations<String, String> opsForSet() {
+        return (SetOperations<String, String>) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{SetOperations.class}, (proxy, method, methodArgs) -> 1L);
+    }
+
+    private void beforeCall() {
+        if (beforeEachCall != null && !inHook) {
+            inHook = true;
+            try {
+                beforeEachCall.run();
+            } finally {
+                inHook = false;
+            }
+        }
+    }
+
+    private List<Object> hashFields(String key, List<Object> fields) {
+        Map<String, String> hash = hashes.getOrDefault(key, Map.of());
+        List<Object> values = new ArrayList<>(fields.size());
+        for (Object field : fields) {
+            values.add(hash.get(field.toString()));
+        }
+        return values;
+    }
+
+    // set-driver-state.lua
+    private List<Object> setState(List<String> keys, String[] args) {
+        Map<String, String> state = hashes.computeIfAbsent(keys.get(0), key -> new HashMap<>());
+        String carType = args[4];
+        if (carType.isEmpty()) {
+            carType = state.getOrDefault("carType", args[5]);
+        } else {
+            state.put("carType", carType);
+        }
+        String partition = ("1".equals(state.get("busy")) ? "busy" : "available") + ":" + carType;
+        state.put("lon", args[0]);
+        state.put("lat", args[1]);
+        state.put("seenAt", args[2]);
+        state.put("cell", args[3]);
+        state.put("partition", partition);
+        return List.of(args[3], args[7], partition);
+    }
+
+    // place-driver.lua
+    private Long place(List<String> keys, String[] args) {
+        if (keys.size() > 2) {
+            geoSets.getOrDefault(keys.get(2), new HashMap<>()).remove(args[0]);
+        }
+        if (keys.size() > 3) {
+            lastSeen.getOrDefault(keys.get(3), new HashMap<>()).remove(args[0]);
+        }
+        geoSets.computeIfAbsent(keys.get(0), key -> new LinkedHashMap<>())
+                .put(args[0], new double[]{Double.parseDouble(args[1]), Double.parseDouble(args[2])});
+        lastSeen.computeIfAbsent(keys.get(1), key -> new HashMap<>()).put(args[0], Long.parseLong(args[3]));
+        return 1L;
+    }
+
+    // remove-driver.lua
+    private Long remove(List<String> keys, String[] args) {
+        lastSeen.getOrDefault(keys.get(0), new HashMap<>()).remove(args[0]);
+        long removed = 0;
+        for (String key : keys.subList(1, keys.size())) {
+            removed += geoSets.getOrDefault(key, new HashMap<>()).remove(args[0]) != null ? 1 : 0;
+        }
+        return removed;
+    }
+
+    // move-driver.lua
+    private Long move(List<String> keys, String[] args) {
+        double[] position = geoSets.getOrDefault(keys.get(0), new HashMap<>()).remove(args[0]);
+        if (position == null) {
+            return 0L;
+        }
+        geoSets.computeIfAbsent(keys.get(1), key -> new LinkedHashMap<>()).put(args[0], position);
+        return 1L;
+    }
+
+    // set-driver-availability.lua
+    private List<Object> setAvailability(List<String> keys, String[] args) {
+        Map<String, String> state = hashes.computeIfAbsent(keys.get(0), key -> new HashMap<>());
+        if ("1".equals(args[0])) {
+            state.remove("busy");
+        } else {
+            state.put("busy", "1");
+        }
+        String cell = state.get("cell");
+        String previous = state.get("partition");
+        if (cell == null || previous == null) {
+            return List.of();
+        }
+        String partition = ("1".equals(args[0]) ? "available" : "busy") + previous.substring(previous.indexOf(':'));
+        state.put("partition", partition);
+        return List.of(cell, previous, partition);
+    }
+
+    // search-nearby-drivers.lua
+    private List<Object> search(List<String> keys, String[] args) {
+        double longitude = Double.parseDouble(args[0]);
+        double latitude = Double.parseDouble(args[1]);
+        double radiusKm = Double.parseDouble(args[2]);
+        int limit = Integer.parseInt(args[3]);
+        long minLastSeen = Long.parseLong(args[4]);
+        Map<String, Long> seen = lastSeen.getOrDefault(keys.get(keys.size() - 1), Map.of());
+        List<Object> result = new ArrayList<>();
+        for (int i = 0; i < keys.size() - 1; i++) {
+            Map<String, double[]> geoSet = geoSets.getOrDefault(keys.get(i), new HashMap<>());
+            List<Object[]> fresh = new ArrayList<>();
+            for (int count = limit; ; count *= 4) {
+                List<Object[]> hits = new ArrayList<>();
+                geoSet.forEach((member, position) -> {
+                    double distance = GeoMath.haversineKm(latitude, longitude, position[1], position[0]);
+                    if (distance <= radiusKm) {
+                        hits.add(new Object[]{member, distance, position});
+                    }
+                });
+                hits.sort(Comparator.comparingDouble(hit -> (Double) hit[1]));
+                fresh.clear();
+                int purged = 0;
+                for (Object[] hit : hits.subList(0, Math.min(count, hits.size()))) {
+                    Long seenAt = seen.get((String) hit[0]);
+                    if (seenAt != null && seenAt >= minLastSeen) {
+                        if (fresh.size() < limit) {
+                            fresh.add(hit);
+                        }
+                    } else {
+                        geoSet.remove((String) hit[0]);
+                        purged++;
+                    }
+                }
+                if (fresh.size() >= limit || purged == 0 || hits.size() < count) {
+                    break;
+                }
+            }
+            for (Object[] hit : fresh) {
+                double[] position = (double[]) hit[2];
+                result.add(hit[0]);
+                result.add(Double.toString((Double) hit[1]));
+                result.add(Double.toString(position[0]));
+                result.add(Double.toString(position[1]));
+                result.add((long) (i + 1));
+                result.add(Long.toString(seen.get((String) hit[0])));
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,106 @@
+package com.uber.location_service.location_service.dispatch;
+
+import com.uber.location_service.location_service.dto.DriverLocationDto;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class BatchMatcherTest {
+
+    @Test
+    void matchesAsManyRequestsAsBruteForceAtTheSameTotalDistance() {
+        Random random = new Random(5);
+        for (int trial = 0; trial < 2_000; trial++) {
+            int requests = 1 + random.nextInt(6);
+            int drivers = 1 + random.nextInt(6);
+            List<List<DriverLocationDto>> candidates = new ArrayList<>();
+            for (int request = 0; request < requests; request++) {
+                List<DriverLocationDto> requestCandidates = new ArrayList<>();
+                for (int driver = 0; driver < drivers; driver++) {
+                    if (random.nextInt(3) == 0) {
+                        requestCandidates.add(driver("d" + driver, random.nextDouble() * 10));
+                    }
+                }
+                candidates.add(requestCandidates);
+            }
+
+            int[] assigned = BatchMatcher.match(candidates);
+
+            Set<String> usedDrivers = new HashSet<>();
+            int matched = 0;
+            double total = 0;
+            for (int request = 0; request < requests; request++) {
+                if (assigned[request] != BatchMatcher.UNASSIGNED) {
+                    DriverLocationDto driver = candidates.get(request).get(assigned[request]);
+                    assertThat(usedDrivers.add(driver.getDriverId())).isTrue();
+                    matched++;
+                    total += driver.getDistance();
+                }
+            }
+            double[] best = bruteForce(candidates, 0, new HashSet<>());
+            assertThat(matched).isEqualTo((int) best[0]);
+            assertThat(total).isCloseTo(best[1], within(1e-9));
+        }
+    }
+
+    @Test
+    void contendedDriverGoesToTheRequestWithoutAnAlternative() {
+        List<List<DriverLocationDto>> candidates = List.of(
+                List.of(driver("a", 1), driver("b", 5)),
+                List.of(driver("a", 2)));
+
+        assertThat(BatchMatcher.match(candidates)).containsExactly(1, 0);
+    }
+
+    @Test
+    void uncontendedRequestsTakeTheirNearestDriver() {
+        List<List<DriverLocationDto>> candidates = List.of(
+                List.of(driver("a", 3), driver("b", 1)),
+                List.of(driver("c", 2), driver("d", 4)),
+                List.of());
+
+        assertThat(BatchMatcher.match(candidates)).containsExactly(1, 0, BatchMatcher.UNASSIGNED);
+    }
+
+    @Test
+    void requestsOutnumberingTheirSharedDriversLeaveTheFarthestUnassigned() {
+        List<List<DriverLocationDto>> candidates = List.of(
+                List.of(driver("a", 1)),
+                List.of(driver("a", 3)),
+                List.of(driver("a", 2)));
+
+        assertThat(BatchMatcher.match(candidates))
+                .containsExactly(0, BatchMatcher.UNASSIGNED, BatchMatcher.UNASSIGNED);
+    }
+
+    private static DriverLocationDto driver(String driverId, double distance) {
+        return DriverLocationDto.builder().driverId(driverId).distance(distance).build();
+    }
+
+    // {matched, total distance}: most matches first, then the smallest total
+    private static double[] bruteForce(List<List<DriverLocationDto>> candidates, int request, Set<String> usedDrivers) {
+        if (request == candidates.size()) {
+            return new double[]{0, 0};
+        }
+        double[] best = bruteForce(candidates, request + 1, usedDrivers);
+        for (DriverLocationDto driver : candidates.get(request)) {
+            if (usedDrivers.add(driver.getDriverId())) {
+                double[] rest = bruteForce(candidates, request + 1, usedDrivers);
+                usedDrivers.remove(driver.getDriverId());
+                double matched = rest[0] + 1;
+                double total = rest[1] + driver.getDistance();
+                if (matched > best[0] || (matched == best[0] && total < best[1])) {
+                    best = new double[]{matched, total};
+                }
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,74 @@
+package com.uber.location_service.location_service.dispatch;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class HungarianSolverTest {
+
+    @Test
+    void findsTheMinimumCostAssignmentOfSmallMatrices() {
+        Random random = new Random(3);
+        for (int trial = 0; trial < 2_000; trial++) {
+            int rows = 1 + random.nextInt(6);
+            int cols = rows + random.nextInt(3);
+            double[][] cost = new double[rows][cols];
+            for (double[] row : cost) {
+                for (int col = 0; col < cols; col++) {
+                    // Some integer costs so ties between optimal assignments come up as well
+                    row[col] = random.nextBoolean() ? random.nextInt(5) : random.nextDouble() * 10;
+                }
+            }
+
+            int[] colOfRow = HungarianSolver.solve(cost);
+
+            assertThat(colOfRow).doesNotHaveDuplicates();
+            assertThat(total(cost, colOfRow)).isCloseTo(bruteForce(cost, 0, new boolean[cols]), within(1e-9));
+        }
+    }
+
+    @Test
+    void picksTheCheaperOverallAssignmentOverTheGreedyOne() {
+        // Greedy gives row 0 column 0 (1 + 100); the optimum is 2 + 3
+        double[][] cost = {{1, 2}, {3, 100}};
+
+        assertThat(HungarianSolver.solve(cost)).containsExactly(1, 0);
+    }
+
+    @Test
+    void emptyMatrixHasNoAssignment() {
+        assertThat(HungarianSolver.solve(new double[0][0])).isEmpty();
+    }
+
+    @Test
+    void moreRowsThanColumnsIsRejected() {
+        assertThatThrownBy(() -> HungarianSolver.solve(new double[2][1])).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static double total(double[][] cost, int[] colOfRow) {
+        double total = 0;
+        for (int row = 0; row < colOfRow.length; row++) {
+            total += cost[row][colOfRow[row]];
+        }
+        return total;
+    }
+
+    private static double bruteForce(double[][] cost, int row, boolean[] usedCols) {
+        if (row == cost.length) {
+            return 0;
+        }
+        double best = Double.POSITIVE_INFINITY;
+        for (int col = 0; col < usedCols.length; col++) {
+            if (!usedCols[col]) {
+                usedCols[col] = true;
+                best = Math.min(best, cost[row][col] + bruteForce(cost, row + 1, usedCols));
+                usedCols[col] = false;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,63 @@
+package com.uber.location_service.location_service.geo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GeoHashTest {
+
+    @Test
+    void encodesKnownHashes() {
+        assertThat(GeoHash.encode(57.64911, 10.40744, 11)).isEqualTo("u4pruydqqvj");
+        assertThat(GeoHash.encode(12.97, 77.59, 4)).isEqualTo("tdr1");
+    }
+
+    @Test
+    void coveringContainsTheCellOfEveryPointInTheBox() {
+        Random random = new Random(11);
+        for (int box = 0; box < 200; box++) {
+            int precision = 3 + random.nextInt(3);
+            double minLat = -60 + random.nextDouble() * 120;
+            double minLon = -170 + random.nextDouble() * 340;
+            double maxLat = minLat + random.nextDouble() * 4 * GeoHash.cellHeightDegrees(precision);
+            double maxLon = minLon + random.nextDouble() * 4 * GeoHash.cellWidthDegrees(precision);
+
+            Set<String> cells = GeoHash.covering(minLat, minLon, maxLat, maxLon, precision);
+
+            for (int i = 0; i <= 20; i++) {
+                for (int j = 0; j <= 20; j++) {
+                    double lat = minLat + (maxLat - minLat) * i / 20;
+                    double lon = minLon + (maxLon - minLon) * j / 20;
+                    assertThat(cells).contains(GeoHash.encode(lat, lon, precision));
+                }
+            }
+            // Never more than the rows and columns the box can touch
+            long rows = (long) Math.ceil((maxLat - minLat) / GeoHash.cellHeightDegrees(precision)) + 1;
+            long columns = (long) Math.ceil((maxLon - minLon) / GeoHash.cellWidthDegrees(precision)) + 1;
+            assertThat(cells.size()).isLessThanOrEqualTo(rows * columns);
+        }
+    }
+
+    @Test
+    void boxInsideOneCellIsCoveredByThatCell() {
+        assertThat(GeoHash.covering(12.96, 77.58, 12.98, 77.60, 4)).containsExactly("tdr1");
+    }
+
+    @Test
+    void boxCrossingTheAntimeridianCoversBothSides() {
+        Set<String> cells = GeoHash.covering(0.1, 179.9, 0.2, 180.1, 4);
+
+        assertThat(cells).contains(GeoHash.encode(0.15, 179.95, 4), GeoHash.encode(0.15, -179.95, 4));
+        assertThat(GeoHash.covering(0.1, -180.1, 0.2, -179.9, 4)).containsExactlyInAnyOrderElementsOf(cells);
+    }
+
+    @Test
+    void boxPastThePolesIsClamped() {
+        Set<String> cells = GeoHash.covering(89.9, 0, 91, 0.1, 3);
+
+        assertThat(cells).containsExactly(GeoHash.encode(90, 0, 3));
+    }
+}
@@ -0,0 +1,132 @@
+package com.uber.location_service.location_service.index;
+
+import com.uber.entity.models.CarType;
+import com.uber.location_service.location_service.dto.DriverLocationDto;
+import com.uber.location_service.location_service.geo.GeoMath;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class DriverSpatialIndexTest {
+
+    private static final double CELL_SIZE_DEGREES = 0.01;
+
+    private final DriverSpatialIndex index = new DriverSpatialIndex(CELL_SIZE_DEGREES);
+
+    @Test
+    void nearestMatchesBruteForceAcrossRadiiLimitsAndFilters() {
+        Random random = new Random(42);
+        List<Driver> drivers = new ArrayList<>();
+        for (long id = 1; id <= 2_000; id++) {
+            // Clustered around a city centre so most rings hold several drivers
+            Driver driver = new Driver(id, round(12.97 + random.nextGaussian() * 0.05), round(77.59 + random.nextGaussian() * 0.05),
+                    random.nextInt(10_000), random.nextInt(4) == 0 ? null : CarType.values()[random.nextInt(CarType.values().length)],
+                    random.nextInt(10) == 0);
+            drivers.add(driver);
+            index.upsert(id, driver.latitude, driver.longitude, driver.seenAt, driver.carType);
+            if (driver.busy) {
+                index.setAvailable(id, false);
+            }
+        }
+
+        for (int query = 0; query < 300; query++) {
+            double latitude = 12.97 + random.nextGaussian() * 0.05;
+            double longitude = 77.59 + random.nextGaussian() * 0.05;
+            double radiusKm = 0.5 + random.nextDouble() * 15;
+            int limit = 1 + random.nextInt(30);
+            long minLastSeen = random.nextInt(3) == 0 ? random.nextInt(10_000) : 0;
+            Set<CarType> carTypes = random.nextBoolean() ? null : EnumSet.of(CarType.values()[random.nextInt(CarType.values().length)]);
+
+            List<DriverLocationDto> found = index.nearest(latitude, longitude, radiusKm, limit, minLastSeen, carTypes);
+            List<double[]> expected = bruteForce(drivers, latitude, longitude, radiusKm, limit, minLastSeen, carTypes);
+
+            assertThat(found).hasSize(expected.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertThat(found.get(i).getDistance()).isCloseTo(expected.get(i)[1], within(1e-9));
+            }
+        }
+    }
+
+    @Test
+    void nearerDriverInTheNextRingBeatsAFartherOneInTheQueryCell() {
+        // Query at the east edge of its cell: the driver just across the border is closer than the one at the west edge
+        double latitude = 12.975;
+        double longitude = 77.5999;
+        index.upsert(1, latitude, 77.5901, 1, CarType.SEDAN);
+        index.upsert(2, latitude, 77.6001, 1, CarType.SEDAN);
+
+        List<DriverLocationDto> found = index.nearest(latitude, longitude, 5, 1, 0, null);
+
+        assertThat(found).extracting(DriverLocationDto::getDriverId).containsExactly("2");
+    }
+
+    @Test
+    void walkStopsAtTheRadiusEvenWhenFewerThanLimitAreFound() {
+        index.upsert(1, 12.97, 77.59, 1, null);
+        index.upsert(2, 12.97, 77.80, 1, null); // ~23 km east
+
+        assertThat(index.nearest(12.97, 77.59, 5, 10, 0, null))
+                .extracting(DriverLocationDto::getDriverId).containsExactly("1");
+        assertThat(index.nearest(12.97, 77.59, 30, 10, 0, null))
+                .extracting(DriverLocationDto::getDriverId).containsExactly("1", "2");
+    }
+
+    @Test
+    void searchesWrapAroundTheAntimeridian() {
+        index.upsert(1, 0, 179.999, 1, null);
+        index.upsert(2, 0, -179.999, 1, null);
+
+        assertThat(index.nearest(0, -179.9995, 1, 10, 0, null))
+                .extracting(DriverLocationDto::getDriverId).containsExactlyInAnyOrder("1", "2");
+    }
+
+    @Test
+    void busyStaleAndRemovedDriversAreSkipped() {
+        index.upsert(1, 12.97, 77.59, 100, null);
+        index.upsert(2, 12.97, 77.591, 100, null);
+        index.upsert(3, 12.97, 77.592, 10, null);
+        index.upsert(4, 12.97, 77.593, 100, null);
+        index.setAvailable(1, false);
+        index.remove(4);
+
+        assertThat(index.nearest(12.97, 77.59, 5, 10, 50, null))
+                .extracting(DriverLocationDto::getDriverId).containsExactly("2");
+
+        index.setAvailable(1, true);
+        assertThat(index.nearest(12.97, 77.59, 5, 10, 50, null))
+                .extracting(DriverLocationDto::getDriverId).containsExactly("1", "2");
+    }
+
+    private static List<double[]> bruteForce(List<Driver> drivers, double latitude, double longitude, double radiusKm,
+                                             int limit, long minLastSeen, Set<CarType> carTypes) {
+        List<double[]> hits = new ArrayList<>();
+        for (Driver driver : drivers) {
+            if (driver.busy || driver.seenAt < minLastSeen
+                    || (carTypes != null && (driver.carType == null || !carTypes.contains(driver.carType)))) {
+                continue;
+            }
+            double distance = GeoMath.haversineKm(latitude, longitude, driver.latitude, driver.longitude);
+            if (distance <= radiusKm) {
+                hits.add(new double[]{driver.id, distance});
+            }
+        }
+        hits.sort(Comparator.comparingDouble(hit -> hit[1]));
+        return hits.subList(0, Math.min(limit, hits.size()));
+    }
+
+    // Positions the index stores exactly (it packs coordinates to 6 decimals)
+    private static double round(double degrees) {
+        return Math.round(degrees * 1_000_000) / 1_000_000d;
+    }
+
+    private record Driver(long id, double latitude, double longitude, long seenAt, CarType carType, boolean busy) {
+    }
+}
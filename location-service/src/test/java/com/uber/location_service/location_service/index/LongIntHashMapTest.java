@@ -0,0 +1,78 @@
+package com.uber.location_service.location_service.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LongIntHashMapTest {
+
+    private static final int MISSING = -1;
+
+    @Test
+    void matchesHashMapUnderRandomPutsAndRemoves() {
+        // A small key range keeps the table crowded, so removals keep shifting long probe chains back
+        LongIntHashMap map = new LongIntHashMap(16);
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(7);
+        for (int op = 0; op < 200_000; op++) {
+            long key = random.nextInt(512) - 256;
+            if (random.nextInt(3) == 0) {
+                assertThat(map.remove(key, MISSING)).isEqualTo(expected.getOrDefault(key, MISSING));
+                expected.remove(key);
+            } else {
+                int value = random.nextInt(1_000);
+                map.put(key, value);
+                expected.put(key, value);
+            }
+            if (op % 1_000 == 0) {
+                for (long probe = -256; probe < 256; probe++) {
+                    assertThat(map.get(probe, MISSING)).isEqualTo(expected.getOrDefault(probe, MISSING));
+                }
+            }
+        }
+        assertThat(map.size()).isEqualTo(expected.size());
+    }
+
+    @Test
+    void everyOtherKeyRemovedLeavesTheRestReachable() {
+        LongIntHashMap map = new LongIntHashMap(16);
+        for (long key = 0; key < 10_000; key++) {
+            map.put(key * 1_024, (int) key);
+        }
+        for (long key = 0; key < 10_000; key += 2) {
+            assertThat(map.remove(key * 1_024, MISSING)).isEqualTo((int) key);
+        }
+
+        for (long key = 0; key < 10_000; key++) {
+            assertThat(map.get(key * 1_024, MISSING)).isEqualTo(key % 2 == 0 ? MISSING : (int) key);
+        }
+        assertThat(map.size()).isEqualTo(5_000);
+    }
+
+    @Test
+    void removingEverythingEmptiesTheMap() {
+        LongIntHashMap map = new LongIntHashMap(4);
+        for (long key = 1; key <= 100; key++) {
+            map.put(key, 1);
+        }
+        for (long key = 100; key >= 1; key--) {
+            map.remove(key, MISSING);
+        }
+
+        assertThat(map.size()).isZero();
+        assertThat(map.get(50, MISSING)).isEqualTo(MISSING);
+        assertThat(map.remove(50, MISSING)).isEqualTo(MISSING);
+    }
+
+    @Test
+    void reservedKeyIsRejected() {
+        LongIntHashMap map = new LongIntHashMap(16);
+
+        assertThatThrownBy(() -> map.put(Long.MIN_VALUE, 1)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
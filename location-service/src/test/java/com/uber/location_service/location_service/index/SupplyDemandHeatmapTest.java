@@ -0,0 +1,47 @@
+package com.uber.location_service.location_service.index;
+
+import com.uber.location_service.location_service.dto.HeatmapCellDto;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SupplyDemandHeatmapTest {
+
+    private final SupplyDemandHeatmap heatmap = new SupplyDemandHeatmap(true, 0.01, 300, 10, 4);
+
+    @Test
+    void driverMarkedBusyAndAvailableBeforeAnyPositionKeepsNoSlot() {
+        heatmap.setAvailable(1, false);
+        assertThat(heatmap.driverCount()).isEqualTo(1);
+
+        heatmap.setAvailable(1, true);
+
+        assertThat(heatmap.driverCount()).isZero();
+    }
+
+    @Test
+    void driverWithAPositionStaysTrackedAcrossAvailabilityChanges() {
+        heatmap.onLocation(1, 12.97, 77.59, 1_000);
+        heatmap.setAvailable(1, false);
+        assertThat(cells()).isEmpty();
+
+        heatmap.setAvailable(1, true);
+
+        assertThat(heatmap.driverCount()).isEqualTo(1);
+        assertThat(cells()).singleElement().satisfies(cell -> assertThat(cell.getAvailableDrivers()).isEqualTo(1));
+    }
+
+    @Test
+    void busyDriverWithoutAPositionIsSweptOnceTheFlagIsStale() {
+        heatmap.setAvailable(1, false);
+
+        assertThat(heatmap.removeStale(Long.MAX_VALUE, System.currentTimeMillis())).isEqualTo(1);
+        assertThat(heatmap.driverCount()).isZero();
+    }
+
+    private List<HeatmapCellDto> cells() {
+        return heatmap.cells(12.9, 77.5, 13.0, 77.6, System.currentTimeMillis());
+    }
+}
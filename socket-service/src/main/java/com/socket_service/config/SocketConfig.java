@@ -14,6 +14,7 @@ public class SocketConfig implements WebSocketMessageBrokerConfigurer {
         registry.addEndpoint("/ws-uber").setAllowedOriginPatterns("*").withSockJS(); // ws://localhost:8080/ws-chat
     }
 
+    // In-process broker: only clients connected to this instance get its messages (single replica)
     @Override
     public void configureMessageBroker(MessageBrokerRegistry registry) {
         registry.enableSimpleBroker("/topic");
@@ -0,0 +1,26 @@
+package com.socket_service.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * Ride request published by location-service once drivers have been found, keyed by requestId
+ */
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class RideRequestDispatch {
+    private Long bookingId; // null for new requests
+    private String requestId; // Temporary ID for tracking ride requests before booking is created
+    private String userId;
+    private Double pickupLatitude;
+    private Double pickupLongitude;
+    private Double dropoffLatitude;
+    private Double dropoffLongitude;
+    private Double price;
+    private Long timeoutSeconds; // Timeout for driver to accept (default 60 seconds)
+    private List<DriverLocationMessage> drivers; // Empty when no driver was found
+}
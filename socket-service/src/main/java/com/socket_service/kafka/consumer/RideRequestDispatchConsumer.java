@@ -0,0 +1,33 @@
+package com.socket_service.kafka.consumer;
+
+import com.socket_service.dto.RideRequestDispatch;
+import com.socket_service.service.RideRequestService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RideRequestDispatchConsumer {
+
+    private final RideRequestService rideRequestService;
+
+    /**
+     * Ride requests fanned out by location-service, offered to the drivers over WebSocket.
+     * The group is shared, so each request reaches one instance only (see RideRequestService: single replica)
+     */
+    @KafkaListener(topics = "${kafka.topic.ride-request-dispatch}", groupId = "${spring.kafka.consumer.group-id}", containerFactory = "rideRequestDispatchContainerFactory")
+    public void consumeRideRequestDispatch(RideRequestDispatch dispatch) {
+        if (dispatch == null || (dispatch.getRequestId() == null && dispatch.getBookingId() == null)) {
+            log.warn("Received ride request dispatch without requestId or bookingId");
+            return;
+        }
+        try {
+            rideRequestService.sendRideRequests(dispatch);
+        } catch (Exception e) {
+            log.error("Failed to send ride requests for {}", dispatch.getRequestId(), e);
+        }
+    }
+}
@@ -0,0 +1,421 @@
+package com.socket_service.service;
+
+import com.socket_service.dto.DriverLocationMessage;
+import com.socket_service.dto.DriverRideRequestDTO;
+import com.socket_service.dto.DriverSearchResponseMessage;
+import com.socket_service.dto.RideRequestDTO;
+import com.socket_service.dto.RideRequestDispatch;
+import com.socket_service.dto.RideRequestResponseDTO;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Offers ride requests to drivers over WebSocket and reports the initial driver list, acceptances
+ * and timeouts back to booking-service.
+ * With socket.dispatch.strategy=broadcast every driver gets the offer at once; with cascade the drivers
+ * (nearest first, as ordered by location-service) get it in waves of wave-size, each with a short
+ * offer timeout, and the next wave goes out as soon as the current one timed out or rejected.
+ * Pending offers, acceptances and cascades are held in this instance, drivers are reached through its
+ * in-process STOMP broker and dispatches come from a consumer group shared by all instances, so a second
+ * replica would offer requests to drivers it cannot reach and drop their answers: socket-service must run
+ * as a single replica
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RideRequestService {
+
+    private final SimpMessagingTemplate simpMessagingTemplate;
+    private final KafkaTemplate<String, DriverSearchResponseMessage> kafkaTemplate;
+
+    @Value("${kafka.topic.driver-search-response}")
+    private String driverSearchResponseTopic; // Not final - injected via @Value
+
+    @Value("${socket.dispatch.strategy:broadcast}")
+    private String dispatchStrategy;
+
+    @Value("${socket.dispatch.cascade.offer-timeout-seconds:8}")
+    private long cascadeOfferTimeoutSeconds;
+
+    @Value("${socket.dispatch.cascade.wave-size:1}")
+    private int cascadeWaveSize;
+
+    @Value("${socket.dispatch.cascade.max-timeout-seconds:55}")
+    private long cascadeMaxTimeoutSeconds;
+
+    // Store pending ride requests: requestId/bookingId -> RideRequestDTO (contains userId and other details)
+    private final ConcurrentHashMap<String, RideRequestDTO> pendingRequests = new ConcurrentHashMap<>();
+
+    // Store accepted requests: requestId/bookingId -> driverId
+    private final ConcurrentHashMap<String, String> acceptedRequests = new ConcurrentHashMap<>();
+
+    // Cascading offers in progress: requestId/bookingId -> drivers still to ask and the current wave
+    private final ConcurrentHashMap<String, CascadeOffer> cascades = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(10);
+
+    /**
+     * Send a ride request to every driver of the dispatch, returns how many drivers it was sent to.
+     * Repeats of a request that is still pending or was accepted are ignored, so senders may retry
+     */
+    public int sendRideRequests(RideRequestDispatch dispatch) {
+        RideRequestDTO rideRequest = RideRequestDTO.builder()
+                .bookingId(dispatch.getBookingId())
+                .requestId(dispatch.getRequestId())
+                .userId(dispatch.getUserId())
+                .pickupLatitude(dispatch.getPickupLatitude())
+                .pickupLongitude(dispatch.getPickupLongitude())
+                .dropoffLatitude(dispatch.getDropoffLatitude())
+                .dropoffLongitude(dispatch.getDropoffLongitude())
+                .price(dispatch.getPrice())
+                .timeoutSeconds(dispatch.getTimeoutSeconds() != null ? dispatch.getTimeoutSeconds() : 60L)
+                .build();
+        List<DriverLocationMessage> drivers = dispatch.getDrivers() != null ? dispatch.getDrivers() : Collections.emptyList();
+        boolean cascade = "cascade".equalsIgnoreCase(dispatchStrategy);
+        if (cascade) {
+            rideRequest.setTimeoutSeconds(cascadeTimeoutSeconds(rideRequest.getTimeoutSeconds(), drivers.size()));
+        }
+
+        String identifier = rideRequest.getRequestId() != null ? rideRequest.getRequestId() :
+                           (rideRequest.getBookingId() != null ? "bookingId:" + rideRequest.getBookingId() : "unknown");
+
+        if (drivers.isEmpty()) {
+            log.warn("No drivers provided for {}", identifier);
+            // Send empty response to Kafka if no drivers found
+            if (rideRequest.getRequestId() != null) {
+                DriverSearchResponseMessage emptyResponse = DriverSearchResponseMessage.builder()
+                        .bookingId(rideRequest.getBookingId())
+                        .requestId(rideRequest.getRequestId())
+                        .userId(rideRequest.getUserId())
+                        .drivers(Collections.emptyList())
+                        .build();
+                kafkaTemplate.send(driverSearchResponseTopic, rideRequest.getRequestId(), emptyResponse);
+                log.info("Sent empty response to booking service for requestId: {}", rideRequest.getRequestId());
+            }
+            return 0;
+        }
+
+        // Store pending request with full details using requestId or bookingId as key. A request that is already
+        // pending or accepted is a repeat (a retried POST or a redelivered dispatch) and is not offered again
+        String requestKey = rideRequest.getRequestId() != null ? rideRequest.getRequestId() :
+                           (rideRequest.getBookingId() != null ? rideRequest.getBookingId().toString() : null);
+        if (requestKey != null && (acceptedRequests.containsKey(requestKey)
+                || pendingRequests.putIfAbsent(requestKey, rideRequest) != null)) {
+            log.info("Ride request for {} was already sent to drivers, ignoring the repeat", identifier);
+            return drivers.size();
+        }
+
+        log.info("Sending ride request for {} to {} drivers", identifier, drivers.size());
+
+        long timeoutSeconds = rideRequest.getTimeoutSeconds();
+        long expiresAt = Instant.now().plusSeconds(timeoutSeconds).toEpochMilli(); // Use milliseconds for consistency with frontend
+
+        if (cascade && requestKey != null) {
+            cascades.put(requestKey, new CascadeOffer(rideRequest, drivers));
+            offerNextWave(requestKey, 0);
+        } else {
+            // Send to each driver via their personal topic
+            DriverRideRequestDTO driverRequest = toDriverRequest(rideRequest, expiresAt);
+            for (DriverLocationMessage driver : drivers) {
+                sendOffer(driver.getDriverId(), driverRequest);
+            }
+        }
+
+        // Send initial driver list to Kafka so booking service can store it
+        if (rideRequest.getRequestId() != null) {
+            DriverSearchResponseMessage initialResponse = DriverSearchResponseMessage.builder()
+                    .bookingId(rideRequest.getBookingId())
+                    .requestId(rideRequest.getRequestId())
+                    .userId(rideRequest.getUserId())
+                    .drivers(drivers)
+                    .build();
+
+            kafkaTemplate.send(driverSearchResponseTopic, rideRequest.getRequestId(), initialResponse);
+            log.info("Sent initial driver list to booking service for requestId: {}, drivers: {}",
+                    rideRequest.getRequestId(), drivers.size());
+        }
+
+        // Schedule timeout task
+        scheduler.schedule(() -> {
+            if (requestKey != null && pendingRequests.containsKey(requestKey) &&
+                !acceptedRequests.containsKey(requestKey)) {
+                log.warn("Ride request for {} timed out - no driver accepted", requestKey);
+                pendingRequests.remove(requestKey);
+                cancelCascade(requestKey);
+
+                // Send timeout response to booking service (empty drivers list indicates timeout)
+                // Booking service will check if drivers were already stored to distinguish timeout from "no drivers found"
+                DriverSearchResponseMessage timeoutResponse = DriverSearchResponseMessage.builder()
+                        .bookingId(rideRequest.getBookingId())
+                        .requestId(rideRequest.getRequestId())
+                        .userId(rideRequest.getUserId())
+                        .drivers(Collections.emptyList()) // Empty list indicates timeout (not initial "no drivers found")
+                        .build();
+
+                kafkaTemplate.send(driverSearchResponseTopic, requestKey, timeoutResponse);
+                log.info("Sent timeout response to booking service for {}", requestKey);
+
+                // Also notify client via WebSocket about timeout
+                String userTopic = "/topic/user/" + requestKey + "/ride-status";
+                simpMessagingTemplate.convertAndSend(userTopic,
+                    "Request timed out - no driver accepted. Please try again.");
+            }
+        }, timeoutSeconds, TimeUnit.SECONDS);
+
+        return drivers.size();
+    }
+
+    /**
+     * Record a driver's acceptance or rejection, the first acceptance wins
+     */
+    public void handleDriverResponse(RideRequestResponseDTO response) {
+        // response.getBookingId() or response.getRequestId() - check both
+        String requestKey = response.getRequestId() != null ? response.getRequestId() :
+                           (response.getBookingId() != null ? response.getBookingId().toString() : null);
+
+        if (requestKey == null) {
+            log.warn("Received response without requestId or bookingId");
+            return;
+        }
+
+        log.info("Received driver response: requestKey={}, driverId={}, action={}",
+                requestKey, response.getDriverId(), response.getAction());
+
+        RideRequestDTO request = pendingRequests.get(requestKey);
+        if (request == null) {
+            log.warn("Received response for non-pending request: {}", requestKey);
+            return;
+        }
+
+        CascadeOffer cascade = cascades.get(requestKey);
+        if (cascade != null && !cascade.isOffered(response.getDriverId())) {
+            log.warn("Ignoring response from driver {} for {}: no open offer", response.getDriverId(), requestKey);
+            return;
+        }
+
+        if ("ACCEPT".equalsIgnoreCase(response.getAction())) {
+            // Mark as accepted, unless another driver was first
+            String acceptedBy = acceptedRequests.putIfAbsent(requestKey, response.getDriverId());
+            if (acceptedBy != null) {
+                log.warn("Request {} already accepted by driver {}", requestKey, acceptedBy);
+                return;
+            }
+            pendingRequests.remove(requestKey);
+            cancelCascade(requestKey);
+
+            log.info("Driver {} accepted ride request for {}", response.getDriverId(), requestKey);
+
+            // Send acceptance to booking service via Kafka
+            DriverLocationMessage acceptedDriver = DriverLocationMessage.builder()
+                    .driverId(response.getDriverId())
+                    .latitude(0.0) // Location not needed for acceptance
+                    .longitude(0.0)
+                    .build();
+
+            DriverSearchResponseMessage kafkaResponse = DriverSearchResponseMessage.builder()
+                    .bookingId(request.getBookingId())
+                    .requestId(request.getRequestId())
+                    .userId(request.getUserId())
+                    .drivers(Collections.singletonList(acceptedDriver))
+                    .build();
+
+            kafkaTemplate.send(driverSearchResponseTopic, requestKey, kafkaResponse);
+            log.info("Sent driver acceptance to booking service for {}", requestKey);
+
+            // Notify user that driver accepted (will be updated with bookingId by booking service)
+            String userTopic = "/topic/user/" + requestKey + "/ride-status";
+
+            // Send structured message
+            Map<String, Object> acceptanceMessage = new HashMap<>();
+            acceptanceMessage.put("type", "DRIVER_ACCEPTED");
+            acceptanceMessage.put("requestId", request.getRequestId());
+            acceptanceMessage.put("driverId", response.getDriverId());
+            acceptanceMessage.put("content", "Driver " + response.getDriverId() + " accepted your ride request");
+            acceptanceMessage.put("status", "CONFIRMED");
+
+            // Use String destination explicitly to avoid method ambiguity
+            simpMessagingTemplate.convertAndSend(userTopic, (Object) acceptanceMessage);
+            log.info("Sent driver acceptance notification to user via topic: {}", userTopic);
+
+        } else if ("REJECT".equalsIgnoreCase(response.getAction())) {
+            log.info("Driver {} rejected ride request for {}", response.getDriverId(), requestKey);
+            // Driver rejection doesn't need to be sent to booking service
+            // Only when all drivers reject or timeout, we send empty list
+            int rejectedWave = cascade != null ? cascade.reject(response.getDriverId()) : CascadeOffer.NO_WAVE;
+            if (rejectedWave != CascadeOffer.NO_WAVE) {
+                offerNextWave(requestKey, rejectedWave); // Whole wave said no, don't wait for its timeout
+            }
+        }
+    }
+
+    /**
+     * The dispatch timeout (location.dispatch.timeout-seconds) alone would end a cascade after a few waves,
+     * so it is stretched to give every wave its offer timeout, up to cascade.max-timeout-seconds
+     */
+    private long cascadeTimeoutSeconds(long dispatchTimeoutSeconds, int drivers) {
+        int waveSize = Math.max(1, cascadeWaveSize);
+        long waves = (drivers + waveSize - 1) / waveSize;
+        long allWavesSeconds = Math.min(waves * cascadeOfferTimeoutSeconds, cascadeMaxTimeoutSeconds);
+        return Math.max(dispatchTimeoutSeconds, allWavesSeconds);
+    }
+
+    /**
+     * Offer the request to the next wave of drivers and schedule the move to the wave after it.
+     * Only moves on if afterWave is still the current wave, so a rejection racing the wave timeout
+     * can't skip a wave. Once every driver has been asked the request is left to the overall timeout
+     */
+    private void offerNextWave(String requestKey, int afterWave) {
+        CascadeOffer cascade = cascades.get(requestKey);
+        if (cascade == null) {
+            return;
+        }
+        long expiresAt = Instant.now().plusSeconds(cascadeOfferTimeoutSeconds).toEpochMilli();
+        List<DriverLocationMessage> wave;
+        synchronized (cascade) {
+            if (cascade.waveNumber != afterWave) {
+                return;
+            }
+            wave = cascade.nextWave(cascadeWaveSize);
+            if (wave.isEmpty()) {
+                log.info("All {} drivers were offered ride request {} without accepting", cascade.offeredCount(), requestKey);
+                return;
+            }
+            int currentWave = cascade.waveNumber;
+            cascade.waveTimeout = scheduler.schedule(() -> offerNextWave(requestKey, currentWave),
+                    cascadeOfferTimeoutSeconds, TimeUnit.SECONDS);
+        }
+        DriverRideRequestDTO driverRequest = toDriverRequest(cascade.rideRequest, expiresAt);
+        for (DriverLocationMessage driver : wave) {
+            sendOffer(driver.getDriverId(), driverRequest);
+        }
+    }
+
+    private void cancelCascade(String requestKey) {
+        CascadeOffer cascade = cascades.remove(requestKey);
+        if (cascade != null) {
+            synchronized (cascade) {
+                if (cascade.waveTimeout != null) {
+                    cascade.waveTimeout.cancel(false);
+                }
+            }
+        }
+    }
+
+    private void sendOffer(String driverId, DriverRideRequestDTO driverRequest) {
+        String topic = "/topic/driver/" + driverId + "/ride-requests";
+        simpMessagingTemplate.convertAndSend(topic, driverRequest);
+        log.info("Sent ride request to driver {} via topic: {}", driverId, topic);
+    }
+
+    // Create driver-friendly request DTO
+    private static DriverRideRequestDTO toDriverRequest(RideRequestDTO rideRequest, long expiresAt) {
+        return DriverRideRequestDTO.builder()
+                .bookingId(rideRequest.getBookingId())
+                .requestId(rideRequest.getRequestId())
+                .userId(rideRequest.getUserId())
+                .pickupLatitude(rideRequest.getPickupLatitude())
+                .pickupLongitude(rideRequest.getPickupLongitude())
+                .dropoffLatitude(rideRequest.getDropoffLatitude())
+                .dropoffLongitude(rideRequest.getDropoffLongitude())
+                .price(rideRequest.getPrice())
+                .expiresAt(expiresAt)
+                .message("New ride request available")
+                .build();
+    }
+
+    public RideRequestResponseDTO getRideStatus(String requestId) {
+        if (acceptedRequests.containsKey(requestId)) {
+            RideRequestDTO request = pendingRequests.get(requestId);
+            return RideRequestResponseDTO.builder()
+                    .requestId(requestId)
+                    .bookingId(request != null ? request.getBookingId() : null)
+                    .driverId(acceptedRequests.get(requestId))
+                    .action("ACCEPT")
+                    .message("Driver accepted")
+                    .build();
+        } else if (pendingRequests.containsKey(requestId)) {
+            RideRequestDTO request = pendingRequests.get(requestId);
+            return RideRequestResponseDTO.builder()
+                    .requestId(requestId)
+                    .bookingId(request != null ? request.getBookingId() : null)
+                    .action("PENDING")
+                    .message("Waiting for driver response")
+                    .build();
+        } else {
+            return RideRequestResponseDTO.builder()
+                    .requestId(requestId)
+                    .action("TIMEOUT")
+                    .message("No driver accepted")
+                    .build();
+        }
+    }
+
+    /**
+     * Drivers of a cascading request still to be asked, and the wave that currently holds the offer.
+     * Guarded by its own monitor
+     */
+    private static final class CascadeOffer {
+        private static final int NO_WAVE = -1;
+
+        private final RideRequestDTO rideRequest;
+        private final List<DriverLocationMessage> drivers;
+        private final Set<String> currentWave = new HashSet<>();
+        private int nextDriver;
+        private int waveNumber;
+        private ScheduledFuture<?> waveTimeout;
+
+        private CascadeOffer(RideRequestDTO rideRequest, List<DriverLocationMessage> drivers) {
+            this.rideRequest = rideRequest;
+            this.drivers = drivers;
+        }
+
+        /**
+         * Replace the current wave with the next waveSize drivers, empty when everyone was asked
+         */
+        private List<DriverLocationMessage> nextWave(int waveSize) {
+            if (waveTimeout != null) {
+                waveTimeout.cancel(false);
+                waveTimeout = null;
+            }
+            currentWave.clear();
+            int end = Math.min(drivers.size(), nextDriver + Math.max(1, waveSize));
+            List<DriverLocationMessage> wave = drivers.subList(nextDriver, end);
+            nextDriver = end;
+            waveNumber++;
+            wave.forEach(driver -> currentWave.add(driver.getDriverId()));
+            return wave;
+        }
+
+        private synchronized boolean isOffered(String driverId) {
+            return currentWave.contains(driverId);
+        }
+
+        /**
+         * Returns the wave number when this rejection emptied the current wave, NO_WAVE otherwise
+         */
+        private synchronized int reject(String driverId) {
+            return currentWave.remove(driverId) && currentWave.isEmpty() ? waveNumber : NO_WAVE;
+        }
+
+        private int offeredCount() {
+            return nextDriver;
+        }
+    }
+}
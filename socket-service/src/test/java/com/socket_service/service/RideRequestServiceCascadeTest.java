@@ -0,0 +1,286 @@
+package com.socket_service.service;
+
+import com.socket_service.dto.DriverLocationMessage;
+import com.socket_service.dto.DriverSearchResponseMessage;
+import com.socket_service.dto.RideRequestDispatch;
+import com.socket_service.dto.RideRequestResponseDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RideRequestServiceCascadeTest {
+
+    private static final long OFFER_TIMEOUT_SECONDS = 8;
+
+    private RecordingMessagingTemplate messaging;
+    private RecordingKafkaTemplate kafka;
+    private ManualScheduler scheduler;
+    private RideRequestService service;
+
+    @BeforeEach
+    void setUp() {
+        messaging = new RecordingMessagingTemplate();
+        kafka = new RecordingKafkaTemplate();
+        scheduler = new ManualScheduler();
+        service = new RideRequestService(messaging, kafka);
+        ReflectionTestUtils.setField(service, "scheduler", scheduler);
+        ReflectionTestUtils.setField(service, "driverSearchResponseTopic", "driver-search-responses");
+        ReflectionTestUtils.setField(service, "dispatchStrategy", "cascade");
+        ReflectionTestUtils.setField(service, "cascadeOfferTimeoutSeconds", OFFER_TIMEOUT_SECONDS);
+        ReflectionTestUtils.setField(service, "cascadeWaveSize", 2);
+        ReflectionTestUtils.setField(service, "cascadeMaxTimeoutSeconds", 55L);
+    }
+
+    @Test
+    void wavesGoOutNearestFirstOneOfferTimeoutApart() {
+        service.sendRideRequests(dispatch(5));
+        assertThat(messaging.offeredDrivers()).containsExactly("1", "2");
+
+        scheduler.runPending(OFFER_TIMEOUT_SECONDS);
+        assertThat(messaging.offeredDrivers()).containsExactly("1", "2", "3", "4");
+
+        scheduler.runPending(OFFER_TIMEOUT_SECONDS);
+        assertThat(messaging.offeredDrivers()).containsExactly("1", "2", "3", "4", "5");
+
+        scheduler.runPending(OFFER_TIMEOUT_SECONDS);
+        assertThat(messaging.offeredDrivers()).hasSize(5);
+    }
+
+    @Test
+    void overallTimeoutIsStretchedSoEveryWaveGetsItsTurn() {
+        service.sendRideRequests(dispatch(5));
+
+        // Three waves of 8 s, longer than the 10 s the dispatch asked for
+        assertThat(scheduler.delaysSeconds()).contains(3 * OFFER_TIMEOUT_SECONDS);
+    }
+
+    @Test
+    void wholeWaveRejectingMovesOnWithoutWaitingForTheTimeout() {
+        service.sendRideRequests(dispatch(5));
+
+        service.handleDriverResponse(response("1", "REJECT"));
+        assertThat(messaging.offeredDrivers()).containsExactly("1", "2");
+
+        service.handleDriverResponse(response("2", "REJECT"));
+        assertThat(messaging.offeredDrivers()).containsExactly("1", "2", "3", "4");
+
+        // The first wave's timeout firing just before it was cancelled must not skip the second wave
+        scheduler.runCancelled(OFFER_TIMEOUT_SECONDS);
+        assertThat(messaging.offeredDrivers()).containsExactly("1", "2", "3", "4");
+    }
+
+    @Test
+    void driversOutsideTheCurrentWaveCannotAccept() {
+        service.sendRideRequests(dispatch(5));
+
+        service.handleDriverResponse(response("3", "ACCEPT"));
+
+        assertThat(kafka.acceptedDrivers()).isEmpty();
+        assertThat(service.getRideStatus("req-1").getAction()).isEqualTo("PENDING");
+    }
+
+    @Test
+    void acceptanceEndsTheCascade() {
+        service.sendRideRequests(dispatch(5));
+
+        service.handleDriverResponse(response("2", "ACCEPT"));
+        scheduler.runPending(OFFER_TIMEOUT_SECONDS);
+
+        assertThat(kafka.acceptedDrivers()).containsExactly("2");
+        assertThat(messaging.offeredDrivers()).containsExactly("1", "2");
+        service.handleDriverResponse(response("1", "ACCEPT"));
+        assertThat(kafka.acceptedDrivers()).containsExactly("2");
+    }
+
+    @Test
+    void repeatedDispatchIsNotOfferedAgain() {
+        service.sendRideRequests(dispatch(5));
+        int scheduled = scheduler.delaysSeconds().size();
+
+        assertThat(service.sendRideRequests(dispatch(5))).isEqualTo(5);
+
+        assertThat(messaging.offeredDrivers()).containsExactly("1", "2");
+        assertThat(kafka.sent).hasSize(1);
+        assertThat(scheduler.delaysSeconds()).hasSize(scheduled);
+    }
+
+    @Test
+    void dispatchRepeatedAfterAcceptanceIsNotOfferedAgain() {
+        service.sendRideRequests(dispatch(5));
+        service.handleDriverResponse(response("1", "ACCEPT"));
+
+        service.sendRideRequests(dispatch(5));
+
+        assertThat(messaging.offeredDrivers()).containsExactly("1", "2");
+        assertThat(service.getRideStatus("req-1").getAction()).isEqualTo("ACCEPT");
+    }
+
+    private static RideRequestDispatch dispatch(int drivers) {
+        return RideRequestDispatch.builder()
+                .requestId("req-1")
+                .userId("7")
+                .pickupLatitude(12.97)
+                .pickupLongitude(77.59)
+                .dropoffLatitude(12.99)
+                .dropoffLongitude(77.61)
+                .price(150.0)
+                .timeoutSeconds(10L)
+                .drivers(IntStream.rangeClosed(1, drivers)
+                        .mapToObj(id -> DriverLocationMessage.builder().driverId(Integer.toString(id)).build())
+                        .toList())
+                .build();
+    }
+
+    private static RideRequestResponseDTO response(String driverId, String action) {
+        return RideRequestResponseDTO.builder().requestId("req-1").driverId(driverId).action(action).build();
+    }
+
+    private static final class RecordingMessagingTemplate extends SimpMessagingTemplate {
+        private final List<String> destinations = new ArrayList<>();
+
+        RecordingMessagingTemplate() {
+            super((message, timeout) -> true);
+        }
+
+        @Override
+        public void convertAndSend(String destination, Object payload) {
+            destinations.add(destination);
+        }
+
+        List<String> offeredDrivers() {
+            return destinations.stream()
+                    .filter(destination -> destination.startsWith("/topic/driver/"))
+                    .map(destination -> destination.split("/")[3])
+                    .toList();
+        }
+    }
+
+    private static final class RecordingKafkaTemplate extends KafkaTemplate<String, DriverSearchResponseMessage> {
+        private final List<DriverSearchResponseMessage> sent = new ArrayList<>();
+
+        RecordingKafkaTemplate() {
+            super(() -> {
+                throw new UnsupportedOperationException("Nothing is sent to Kafka in these tests");
+            });
+        }
+
+        @Override
+        public CompletableFuture<SendResult<String, DriverSearchResponseMessage>> send(String topic, String key,
+                                                                                      DriverSearchResponseMessage data) {
+            sent.add(data);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        // A single driver after the initial list is an acceptance
+        List<String> acceptedDrivers() {
+            return sent.stream()
+                    .skip(1)
+                    .filter(message -> message.getDrivers().size() == 1)
+                    .map(message -> message.getDrivers().get(0).getDriverId())
+                    .toList();
+        }
+    }
+
+    /**
+     * Holds scheduled tasks until the test runs them, so wave timeouts fire on demand
+     */
+    private static final class ManualScheduler extends ScheduledThreadPoolExecutor {
+        private final List<ManualTask> tasks = new ArrayList<>();
+
+        ManualScheduler() {
+            super(1);
+        }
+
+        @Override
+        public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+            ManualTask task = new ManualTask(command, unit.toSeconds(delay));
+            tasks.add(task);
+            return task;
+        }
+
+        List<Long> delaysSeconds() {
+            return tasks.stream().map(task -> task.delaySeconds).toList();
+        }
+
+        // Run the live tasks scheduled with this delay, the ones they schedule in turn wait for the next call
+        void runPending(long delaySeconds) {
+            run(delaySeconds, false);
+        }
+
+        // Run the cancelled ones instead, like a timer that went off just before its cancel
+        void runCancelled(long delaySeconds) {
+            run(delaySeconds, true);
+        }
+
+        private void run(long delaySeconds, boolean cancelled) {
+            for (ManualTask task : List.copyOf(tasks)) {
+                if (task.delaySeconds == delaySeconds && !task.done && task.cancelled == cancelled) {
+                    task.done = true;
+                    task.command.run();
+                }
+            }
+        }
+    }
+
+    private static final class ManualTask implements ScheduledFuture<Object> {
+        private final Runnable command;
+        private final long delaySeconds;
+        private boolean cancelled;
+        private boolean done;
+
+        private ManualTask(Runnable command, long delaySeconds) {
+            this.command = command;
+            this.delaySeconds = delaySeconds;
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            cancelled = true;
+            return !done;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public boolean isDone() {
+            return done || cancelled;
+        }
+
+        @Override
+        public Object get() {
+            return null;
+        }
+
+        @Override
+        public Object get(long timeout, TimeUnit unit) {
+            return null;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(delaySeconds, TimeUnit.SECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(getDelay(TimeUnit.SECONDS), other.getDelay(TimeUnit.SECONDS));
+        }
+    }
+}